@@ -0,0 +1,86 @@
+package com.facebook.fresco.helper.benchmark;
+
+import com.facebook.fresco.helper.blur.ParallelStackBlur;
+import com.facebook.fresco.helper.blur.StackBlur;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各模糊引擎基于像素数组的核心算法在不同图片尺寸和模糊半径下的吞吐量
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlurBenchmark {
+
+    /**
+     * 参与测试的模糊引擎，新增引擎时在这里添加
+     */
+    public enum Engine {
+        STACK {
+            @Override
+            void blur(int[] pix, int w, int h, int radius) {
+                StackBlur.blur(pix, w, h, radius);
+            }
+        },
+        PARALLEL_STACK {
+            @Override
+            void blur(int[] pix, int w, int h, int radius) {
+                ParallelStackBlur.blur(pix, w, h, radius);
+            }
+        };
+
+        abstract void blur(int[] pix, int w, int h, int radius);
+    }
+
+    @Param({"STACK", "PARALLEL_STACK"})
+    public Engine engine;
+
+    /**
+     * 图片的宽高
+     */
+    @Param({"128", "512", "1080"})
+    public int size;
+
+    @Param({"5", "25"})
+    public int radius;
+
+    private int[] mSource;
+
+    private int[] mPixels;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(size);
+        mSource = new int[size * size];
+        for (int i = 0; i < mSource.length; i++) {
+            mSource[i] = random.nextInt() | 0xff000000;
+        }
+        mPixels = new int[mSource.length];
+    }
+
+    @Benchmark
+    public int[] blur() {
+        // 原地模糊会改变输入，每次从原图拷贝，拷贝的开销远小于模糊本身
+        System.arraycopy(mSource, 0, mPixels, 0, mSource.length);
+        engine.blur(mPixels, size, size, radius);
+        return mPixels;
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.facebook.fresco.helper.benchmark;
+
+import com.facebook.fresco.helper.utils.StreamTool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StreamTool读、写、拷贝在不同数据大小下的吞吐量，文件位于系统临时目录
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamToolBenchmark {
+
+    /**
+     * 数据大小，单位字节，分别对应小图标、普通图片和大图
+     */
+    @Param({"4096", "262144", "4194304"})
+    public int payloadSize;
+
+    private File mDir;
+
+    private byte[] mPayload;
+
+    private String mSourcePath;
+
+    private String mTargetPath;
+
+    @Setup
+    public void setUp() throws IOException {
+        mPayload = new byte[payloadSize];
+        new Random(payloadSize).nextBytes(mPayload);
+
+        mDir = File.createTempFile("stream-tool-", "");
+        if (!mDir.delete() || !mDir.mkdir()) {
+            throw new IOException("failed to create " + mDir);
+        }
+        mSourcePath = new File(mDir, "source.jpg").getPath();
+        mTargetPath = new File(mDir, "target.jpg").getPath();
+        StreamTool.write(mSourcePath, mPayload);
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDir.delete();
+    }
+
+    @Benchmark
+    public byte[] readFile() throws IOException {
+        return StreamTool.read(mSourcePath);
+    }
+
+    /**
+     * 不经过磁盘，只测量读取流的开销
+     */
+    @Benchmark
+    public byte[] readStream() throws IOException {
+        return StreamTool.read(new ByteArrayInputStream(mPayload));
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        StreamTool.write(mTargetPath, mPayload);
+    }
+
+    @Benchmark
+    public void copy() throws IOException {
+        StreamTool.copy(mSourcePath, mTargetPath);
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.facebook.fresco.helper;
+
+import android.graphics.Bitmap;
+
+import com.facebook.common.references.CloseableReference;
+import com.facebook.imagepipeline.image.CloseableBitmap;
+import com.facebook.imagepipeline.image.CloseableImage;
+
+import java.io.Closeable;
+
+/**
+ * 对内存缓存中已解码图片的一次"租用"，持有期间Bitmap不会被Fresco回收或复用。
+ * <p>
+ * 与LoadImageResult每次都拷贝一份Bitmap不同，租用不产生任何拷贝，但使用方必须遵守以下约定：
+ * 1、使用完毕后调用release()（或close()），否则该Bitmap将一直占用内存缓存
+ * 2、release()之后不能再使用getBitmap()返回的Bitmap，也不能调用Bitmap.recycle()
+ * 3、需要长期持有或修改Bitmap时，调用copyBitmap()获得一份归自己所有的拷贝
+ * 4、需要在其他地方继续使用时，调用acquire()获得一个新的租用，各自独立释放
+ */
+public final class BitmapLease implements Closeable {
+
+    private CloseableReference<CloseableImage> mImageReference;
+
+    private BitmapLease(CloseableReference<CloseableImage> imageReference) {
+        mImageReference = imageReference;
+    }
+
+    /**
+     * 基于已有的引用创建租用，内部会clone该引用，调用方仍需自行关闭传入的引用
+     *
+     * @return BitmapLease，引用无效或不是静态图片时返回null
+     */
+    public static BitmapLease of(CloseableReference<CloseableImage> imageReference) {
+        if (!CloseableReference.isValid(imageReference)
+                || !(imageReference.get() instanceof CloseableBitmap)) {
+            return null;
+        }
+
+        Bitmap bitmap = ((CloseableBitmap) imageReference.get()).getUnderlyingBitmap();
+        if (bitmap == null || bitmap.isRecycled()) {
+            return null;
+        }
+        return new BitmapLease(imageReference.clone());
+    }
+
+    /**
+     * 获取租用的Bitmap，只在release()之前有效，不要修改或回收它
+     *
+     * @throws IllegalStateException 已经release()
+     */
+    public synchronized Bitmap getBitmap() {
+        if (mImageReference == null) {
+            throw new IllegalStateException("BitmapLease has been released");
+        }
+        return ((CloseableBitmap) mImageReference.get()).getUnderlyingBitmap();
+    }
+
+    /**
+     * 拷贝一份归调用方所有的Bitmap，可在release()之后继续使用
+     */
+    public Bitmap copyBitmap() {
+        Bitmap bitmap = getBitmap();
+        return bitmap.copy(bitmap.getConfig(), false);
+    }
+
+    /**
+     * 对同一张图片再租用一次，新的租用需要单独release()
+     *
+     * @throws IllegalStateException 已经release()
+     */
+    public synchronized BitmapLease acquire() {
+        if (mImageReference == null) {
+            throw new IllegalStateException("BitmapLease has been released");
+        }
+        return new BitmapLease(mImageReference.clone());
+    }
+
+    public synchronized boolean isReleased() {
+        return mImageReference == null;
+    }
+
+    /**
+     * 归还租用，可重复调用
+     */
+    public synchronized void release() {
+        CloseableReference.closeSafely(mImageReference);
+        mImageReference = null;
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+}
@@ -11,38 +11,49 @@ import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
 
-import com.facebook.common.executors.UiThreadImmediateExecutorService;
+import com.facebook.common.executors.CallerThreadExecutor;
 import com.facebook.common.references.CloseableReference;
 import com.facebook.common.util.UriUtil;
 import com.facebook.datasource.BaseDataSubscriber;
 import com.facebook.datasource.DataSource;
-import com.facebook.datasource.DataSubscriber;
-import com.facebook.drawee.backends.pipeline.Fresco;
 import com.facebook.drawee.backends.pipeline.PipelineDraweeControllerBuilder;
+import com.facebook.drawee.controller.AbstractDraweeController;
 import com.facebook.drawee.controller.BaseControllerListener;
 import com.facebook.drawee.controller.ControllerListener;
+import com.facebook.drawee.controller.ForwardingControllerListener;
 import com.facebook.drawee.interfaces.DraweeController;
 import com.facebook.drawee.view.SimpleDraweeView;
 import com.facebook.fresco.helper.blur.BitmapBlurHelper;
+import com.facebook.fresco.helper.blur.BlurPostprocessor;
+import com.facebook.fresco.helper.executor.ImageExecutors;
 import com.facebook.fresco.helper.listener.DownloadImageResult;
+import com.facebook.fresco.helper.listener.LoadBitmapLeaseResult;
 import com.facebook.fresco.helper.listener.LoadImageResult;
+import com.facebook.fresco.helper.policy.RequestLevelPolicy;
+import com.facebook.fresco.helper.resize.CdnResizer;
+import com.facebook.fresco.helper.resize.ViewSizeResolver;
+import com.facebook.fresco.helper.utils.InFlightRequests;
 import com.facebook.fresco.helper.utils.StreamTool;
+import com.facebook.imagepipeline.cache.CacheKeyFactory;
 import com.facebook.imagepipeline.common.ResizeOptions;
 import com.facebook.imagepipeline.common.RotationOptions;
 import com.facebook.imagepipeline.core.ImagePipeline;
-import com.facebook.imagepipeline.image.CloseableBitmap;
 import com.facebook.imagepipeline.image.CloseableImage;
 import com.facebook.imagepipeline.image.ImageInfo;
 import com.facebook.imagepipeline.memory.PooledByteBuffer;
-import com.facebook.imagepipeline.memory.PooledByteBufferInputStream;
 import com.facebook.imagepipeline.request.BasePostprocessor;
 import com.facebook.imagepipeline.request.ImageRequest;
 import com.facebook.imagepipeline.request.ImageRequestBuilder;
+import com.facebook.imagepipeline.request.Postprocessor;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 /**
  * 提供基于Fresco的图片加载工具类
@@ -54,6 +65,38 @@ import java.util.concurrent.Executors;
  */
 public class ImageLoader {
 
+    /**
+     * 进行中的已解码图片请求，key为Fresco内存缓存的key
+     */
+    private static final InFlightRequests<Object, DecodedWaiter> sDecodedRequests = new InFlightRequests<>();
+
+    /**
+     * 进行中的下载请求，key为URL和目标路径
+     */
+    private static final InFlightRequests<String, DownloadImageResult> sDownloadRequests = new InFlightRequests<>();
+
+    private static volatile boolean sAutoResizeEnabled;
+
+    private static volatile RequestLevelPolicy sRequestLevelPolicy;
+
+    /**
+     * 因RequestLevelPolicy的限制未能加载的View，只在主线程中访问。
+     * PendingRebind由View当前的Controller持有，这里只保留弱引用，避免Controller的监听器引用View时无法回收
+     */
+    private static final Map<SimpleDraweeView, WeakReference<PendingRebind>> sPendingRebinds = new WeakHashMap<>();
+
+    private static final RequestLevelPolicy.OnRelaxedListener sRebindOnRelaxed = new RequestLevelPolicy.OnRelaxedListener() {
+        @Override
+        public void onRequestLevelRelaxed() {
+            ImageExecutors.forMainThread().execute(new Runnable() {
+                @Override
+                public void run() {
+                    rebindPendingViews();
+                }
+            });
+        }
+    };
+
     /*******************************************************************************************
      * 加载网络图片相关的方法                              *
      *******************************************************************************************/
@@ -277,7 +320,9 @@ public class ImageLoader {
 
             @Override
             public void onResult(Bitmap source) {
-                Bitmap blurBitmap = BitmapBlurHelper.blur(view.getContext(), source);
+                // 背景Drawable会自动拉伸到View的大小，无需将模糊结果放大回原尺寸
+                Bitmap blurBitmap = BitmapBlurHelper.blur(view.getContext(), source,
+                        BitmapBlurHelper.DEFAULT_RADIUS, view.getWidth(), view.getHeight(), false);
                 view.setBackground(new BitmapDrawable(view.getContext().getResources(), blurBitmap));
             }
         });
@@ -288,94 +333,36 @@ public class ImageLoader {
 
             @Override
             public void onResult(Bitmap source) {
-                Bitmap blurBitmap = BitmapBlurHelper.blur(view.getContext(), source);
+                // 背景Drawable会自动拉伸到View的大小，无需将模糊结果放大回原尺寸
+                Bitmap blurBitmap = BitmapBlurHelper.blur(view.getContext(), source,
+                        BitmapBlurHelper.DEFAULT_RADIUS, view.getWidth(), view.getHeight(), false);
                 view.setBackground(new BitmapDrawable(view.getContext().getResources(), blurBitmap));
             }
         });
     }
 
     public static void loadImageBlur(final SimpleDraweeView draweeView, String url) {
-        loadImage(draweeView, url, new BasePostprocessor() {
-            @Override
-            public String getName() {
-                return "blurPostprocessor";
-            }
-
-            @Override
-            public void process(Bitmap bitmap) {
-                BitmapBlurHelper.blur(bitmap, 35);
-            }
-        });
+        loadImage(draweeView, url, new BlurPostprocessor());
     }
 
     public static void loadImageBlur(final SimpleDraweeView draweeView, String url, final int reqWidth, final int reqHeight) {
-        loadImage(draweeView, url, reqWidth, reqHeight, new BasePostprocessor() {
-            @Override
-            public String getName() {
-                return "blurPostprocessor";
-            }
-
-            @Override
-            public void process(Bitmap bitmap) {
-                BitmapBlurHelper.blur(bitmap, 35);
-            }
-        });
+        loadImage(draweeView, url, reqWidth, reqHeight, new BlurPostprocessor());
     }
 
     public static void loadFileBlur(final SimpleDraweeView draweeView, String filePath) {
-        loadFile(draweeView, filePath, new BasePostprocessor() {
-            @Override
-            public String getName() {
-                return "blurPostprocessor";
-            }
-
-            @Override
-            public void process(Bitmap bitmap) {
-                BitmapBlurHelper.blur(bitmap, 35);
-            }
-        });
+        loadFile(draweeView, filePath, new BlurPostprocessor());
     }
 
     public static void loadFileBlur(final SimpleDraweeView draweeView, String filePath, final int reqWidth, final int reqHeight) {
-        loadFile(draweeView, filePath, reqWidth, reqHeight, new BasePostprocessor() {
-            @Override
-            public String getName() {
-                return "blurPostprocessor";
-            }
-
-            @Override
-            public void process(Bitmap bitmap) {
-                BitmapBlurHelper.blur(bitmap, 35);
-            }
-        });
+        loadFile(draweeView, filePath, reqWidth, reqHeight, new BlurPostprocessor());
     }
 
     public static void loadDrawableBlur(SimpleDraweeView simpleDraweeView, int resId, final int reqWidth, final int reqHeight) {
-        loadDrawable(simpleDraweeView, resId, reqWidth, reqHeight, new BasePostprocessor() {
-            @Override
-            public String getName() {
-                return "blurPostprocessor";
-            }
-
-            @Override
-            public void process(Bitmap bitmap) {
-                BitmapBlurHelper.blur(bitmap, 35);
-            }
-        });
+        loadDrawable(simpleDraweeView, resId, reqWidth, reqHeight, new BlurPostprocessor());
     }
 
     public static void loadDrawableBlur(SimpleDraweeView simpleDraweeView, int resId) {
-        loadDrawable(simpleDraweeView, resId, new BasePostprocessor() {
-            @Override
-            public String getName() {
-                return "blurPostprocessor";
-            }
-
-            @Override
-            public void process(Bitmap bitmap) {
-                BitmapBlurHelper.blur(bitmap, 35);
-            }
-        });
+        loadDrawable(simpleDraweeView, resId, new BlurPostprocessor());
     }
 
     public static void loadImage(SimpleDraweeView simpleDraweeView,
@@ -385,6 +372,81 @@ public class ImageLoader {
                                  BasePostprocessor postprocessor,
                                  ControllerListener<ImageInfo> controllerListener,
                                  boolean isSmall) {
+        loadImage(simpleDraweeView, uri, reqWidth, reqHeight, postprocessor, controllerListener, isSmall,
+                sAutoResizeEnabled);
+    }
+
+    /**
+     * @param autoResize 未指定reqWidth和reqHeight时，是否等View测量完成后按View的大小设置ResizeOptions
+     */
+    public static void loadImage(final SimpleDraweeView simpleDraweeView,
+                                 final Uri uri,
+                                 int reqWidth,
+                                 int reqHeight,
+                                 final BasePostprocessor postprocessor,
+                                 final ControllerListener<ImageInfo> controllerListener,
+                                 final boolean isSmall,
+                                 boolean autoResize) {
+        if (autoResize && (reqWidth <= 0 || reqHeight <= 0)) {
+            ViewSizeResolver.resolve(simpleDraweeView, new ViewSizeResolver.SizeCallback() {
+                @Override
+                public void onSizeReady(int width, int height) {
+                    setImageRequest(simpleDraweeView, uri, width, height, postprocessor, controllerListener, isSmall);
+                }
+            });
+        } else {
+            // 之前等待测量的请求已过时
+            ViewSizeResolver.cancel(simpleDraweeView);
+            setImageRequest(simpleDraweeView, uri, reqWidth, reqHeight, postprocessor, controllerListener, isSmall);
+        }
+    }
+
+    /**
+     * 开启后，所有未指定尺寸的SimpleDraweeView加载都会等View测量完成后按View的大小解码，
+     * 而不是按原图大小解码。默认关闭
+     */
+    public static void setAutoResizeEnabled(boolean autoResizeEnabled) {
+        sAutoResizeEnabled = autoResizeEnabled;
+    }
+
+    public static boolean isAutoResizeEnabled() {
+        return sAutoResizeEnabled;
+    }
+
+    private static void setImageRequest(SimpleDraweeView simpleDraweeView,
+                                        Uri uri,
+                                        int reqWidth,
+                                        int reqHeight,
+                                        BasePostprocessor postprocessor,
+                                        ControllerListener<ImageInfo> controllerListener,
+                                        boolean isSmall) {
+        ImageRequest imageRequest = buildImageRequest(uri, reqWidth, reqHeight, postprocessor, isSmall);
+        setController(simpleDraweeView, imageRequest, null, null, controllerListener);
+    }
+
+    /**
+     * 按loadImage()的配置创建ImageRequest，用作低分辨率图片等请求时，参数与列表页等处的加载一致才能命中同一个缓存
+     */
+    public static ImageRequest buildImageRequest(Uri uri,
+                                                 int reqWidth,
+                                                 int reqHeight,
+                                                 BasePostprocessor postprocessor,
+                                                 boolean isSmall) {
+        return buildImageRequest(uri, reqWidth, reqHeight, postprocessor, isSmall, ImageRequest.RequestLevel.FULL_FETCH);
+    }
+
+    /**
+     * @param lowestPermittedRequestLevel 请求最低允许到达的层级，例如RequestLevel.DISK_CACHE表示只从缓存加载，
+     *                                    设置了RequestLevelPolicy时取两者中较高的一个
+     */
+    public static ImageRequest buildImageRequest(Uri uri,
+                                                 int reqWidth,
+                                                 int reqHeight,
+                                                 BasePostprocessor postprocessor,
+                                                 boolean isSmall,
+                                                 ImageRequest.RequestLevel lowestPermittedRequestLevel) {
+        // 指定了尺寸的网络图片由CDN缩放后再下载
+        uri = CdnResizer.rewrite(uri, reqWidth, reqHeight);
 
         ImageRequestBuilder imageRequestBuilder = ImageRequestBuilder.newBuilderWithSource(uri);
         imageRequestBuilder.setRotationOptions(RotationOptions.autoRotate());
@@ -406,11 +468,146 @@ public class ImageLoader {
             imageRequestBuilder.setPostprocessor(postprocessor);
         }
 
-        ImageRequest imageRequest = imageRequestBuilder.build();
+        imageRequestBuilder.setLowestPermittedRequestLevel(lowestPermittedRequestLevel);
+        return imageRequestBuilder.build();
+    }
+
+    /**
+     * 为SimpleDraweeView设置Controller
+     *
+     * @param imageRequest                 要显示的图片，使用firstAvailableImageRequests时为null
+     * @param lowResImageRequest           在imageRequest加载完成之前显示的低分辨率图片，可为null
+     * @param firstAvailableImageRequests 按顺序显示第一张已缓存的图片，都没有缓存时依次从网络加载，可为null
+     * @param controllerListener           可为null
+     */
+    public static void setController(SimpleDraweeView simpleDraweeView,
+                                     ImageRequest imageRequest,
+                                     ImageRequest lowResImageRequest,
+                                     ImageRequest[] firstAvailableImageRequests,
+                                     ControllerListener<ImageInfo> controllerListener) {
+        sPendingRebinds.remove(simpleDraweeView);
+
+        RequestLevelPolicy policy = sRequestLevelPolicy;
+        ImageRequest restrictedImageRequest = imageRequest;
+        ImageRequest restrictedLowResImageRequest = lowResImageRequest;
+        ImageRequest[] restrictedFirstAvailableImageRequests = firstAvailableImageRequests;
+        if (policy != null) {
+            restrictedImageRequest = restrict(policy, imageRequest);
+            restrictedLowResImageRequest = restrict(policy, lowResImageRequest);
+            restrictedFirstAvailableImageRequests = restrict(policy, firstAvailableImageRequests);
+        }
+
+        if (!isCacheOnly(restrictedImageRequest) && !isCacheOnly(restrictedFirstAvailableImageRequests)) {
+            buildController(simpleDraweeView, imageRequest, lowResImageRequest, firstAvailableImageRequests,
+                    controllerListener);
+            return;
+        }
+
+        // 只从缓存加载的请求未命中时显示占位图；被全局限制的请求在限制解除后重新加载
+        PendingRebind pendingRebind = null;
+        if (restrictedImageRequest != imageRequest
+                || restrictedFirstAvailableImageRequests != firstAvailableImageRequests) {
+            pendingRebind = new PendingRebind(imageRequest, lowResImageRequest, firstAvailableImageRequests,
+                    controllerListener);
+        }
+
+        ForwardingControllerListener<ImageInfo> forwardingListener = new ForwardingControllerListener<>();
+        if (controllerListener != null) {
+            forwardingListener.addListener(controllerListener);
+        }
+        forwardingListener.addListener(new RestrictedRequestListener(simpleDraweeView, pendingRebind));
+        buildController(simpleDraweeView, restrictedImageRequest, restrictedLowResImageRequest,
+                restrictedFirstAvailableImageRequests, forwardingListener);
+    }
+
+    private static boolean isCacheOnly(ImageRequest imageRequest) {
+        return imageRequest != null
+                && imageRequest.getLowestPermittedRequestLevel() != ImageRequest.RequestLevel.FULL_FETCH;
+    }
+
+    /**
+     * @return 所有请求都只从缓存加载时，整组请求才可能因缓存未命中而失败
+     */
+    private static boolean isCacheOnly(ImageRequest[] imageRequests) {
+        if (imageRequests == null || imageRequests.length == 0) {
+            return false;
+        }
+
+        for (ImageRequest imageRequest : imageRequests) {
+            if (!isCacheOnly(imageRequest)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 设置请求层级的全局限制，例如快速滑动或没有网络时只从缓存加载，null表示不限制
+     */
+    public static void setRequestLevelPolicy(RequestLevelPolicy policy) {
+        RequestLevelPolicy oldPolicy = sRequestLevelPolicy;
+        if (oldPolicy != null) {
+            oldPolicy.removeOnRelaxedListener(sRebindOnRelaxed);
+        }
+        sRequestLevelPolicy = policy;
+        if (policy != null) {
+            policy.addOnRelaxedListener(sRebindOnRelaxed);
+        }
+    }
+
+    public static RequestLevelPolicy getRequestLevelPolicy() {
+        return sRequestLevelPolicy;
+    }
+
+    private static ImageRequest restrict(RequestLevelPolicy policy, ImageRequest imageRequest) {
+        if (imageRequest == null) {
+            return null;
+        }
+
+        ImageRequest.RequestLevel level = policy.apply(imageRequest.getLowestPermittedRequestLevel());
+        if (level == imageRequest.getLowestPermittedRequestLevel()) {
+            return imageRequest;
+        }
+        return ImageRequestBuilder.fromRequest(imageRequest).setLowestPermittedRequestLevel(level).build();
+    }
+
+    /**
+     * @return 都未被限制时返回原数组
+     */
+    private static ImageRequest[] restrict(RequestLevelPolicy policy, ImageRequest[] imageRequests) {
+        if (imageRequests == null) {
+            return null;
+        }
+
+        ImageRequest[] restricted = null;
+        for (int i = 0; i < imageRequests.length; i++) {
+            ImageRequest imageRequest = restrict(policy, imageRequests[i]);
+            if (imageRequest != imageRequests[i]) {
+                if (restricted == null) {
+                    restricted = imageRequests.clone();
+                }
+                restricted[i] = imageRequest;
+            }
+        }
+        return restricted != null ? restricted : imageRequests;
+    }
 
-        PipelineDraweeControllerBuilder draweeControllerBuilder = Fresco.newDraweeControllerBuilder();
+    private static void buildController(SimpleDraweeView simpleDraweeView,
+                                        ImageRequest imageRequest,
+                                        ImageRequest lowResImageRequest,
+                                        ImageRequest[] firstAvailableImageRequests,
+                                        ControllerListener<ImageInfo> controllerListener) {
+        PipelineDraweeControllerBuilder draweeControllerBuilder = Phoenix.newDraweeControllerBuilder();
         draweeControllerBuilder.setOldController(simpleDraweeView.getController());
-        draweeControllerBuilder.setImageRequest(imageRequest);
+        if (firstAvailableImageRequests != null) {
+            draweeControllerBuilder.setFirstAvailableImageRequests(firstAvailableImageRequests);
+        } else {
+            draweeControllerBuilder.setImageRequest(imageRequest);
+        }
+
+        if (lowResImageRequest != null) {
+            draweeControllerBuilder.setLowResImageRequest(lowResImageRequest);
+        }
 
         if (controllerListener != null) {
             draweeControllerBuilder.setControllerListener(controllerListener);
@@ -422,95 +619,87 @@ public class ImageLoader {
         simpleDraweeView.setController(draweeController);
     }
 
+    /**
+     * 加载原始图，在主线程中回调。
+     * 同时请求同一张图片的回调共用一个Bitmap，不要修改或recycle()它，需要修改时先拷贝
+     */
     public static void loadImage(Context context, String url, final LoadImageResult loadImageResult) {
-        loadOriginalImage(context, url, loadImageResult, UiThreadImmediateExecutorService.getInstance());
+        loadOriginalImage(context, url, loadImageResult, ImageExecutors.forMainThread());
     }
 
     /**
      * 根据提供的图片URL加载原始图（该方法仅针对大小在100k以内的图片，若不确定图片大小，
      * 请使用下面的downloadImage(String url, final DownloadImageResult loadFileResult) ）
+     * 同时请求同一张图片的回调共用一个Bitmap，不要修改或recycle()它，需要修改时先拷贝
      *
      * @param url             图片URL
      * @param loadImageResult LoadImageResult
      */
     public static void loadOriginalImage(Context context, String url, final LoadImageResult loadImageResult) {
-        loadOriginalImage(context, url, loadImageResult, Executors.newSingleThreadExecutor());
+        loadOriginalImage(context, url, loadImageResult, ImageExecutors.forCpu());
     }
 
     /**
      * 根据提供的图片URL加载原始图（该方法仅针对大小在100k以内的图片，若不确定图片大小，
      * 请使用下面的downloadImage(String url, final DownloadImageResult loadFileResult) ）
+     * 同时请求同一张图片的回调共用一个Bitmap，不要修改或recycle()它，需要修改时先拷贝
      *
      * @param url             图片URL
      * @param loadImageResult LoadImageResult
      * @param executor        的取值有以下三个：
-     *                        UiThreadImmediateExecutorService.getInstance() 在回调中进行任何UI操作
+     *                        ImageExecutors.forMainThread() 在回调中进行任何UI操作
      *                        CallerThreadExecutor.getInstance() 在回调里面做的事情比较少，并且不涉及UI
-     *                        Executors.newSingleThreadExecutor() 你需要做一些比较复杂、耗时的操作，并且不涉及UI（如数据库读写、文件IO），你就不能用上面两个Executor。
-     *                        你需要开启一个后台Executor，可以参考DefaultExecutorSupplier.forBackgroundTasks。
+     *                        ImageExecutors.forIo()/forCpu() 你需要做一些比较复杂、耗时的操作，并且不涉及UI（如数据库读写、文件IO），你就不能用上面两个Executor。
+     *                        请使用共享的线程池，不要为每次请求创建新的Executor（线程不会被回收）。
      */
     public static void loadOriginalImage(Context context, String url, final LoadImageResult loadImageResult, Executor executor) {
         if (TextUtils.isEmpty(url)) {
             return;
         }
 
-        Uri uri = Uri.parse(url);
-        ImagePipeline imagePipeline = Fresco.getImagePipeline();
-        ImageRequestBuilder builder = ImageRequestBuilder.newBuilderWithSource(uri);
-        ImageRequest imageRequest = builder.build();
-        // 获取已解码的图片，返回的是Bitmap
-        DataSource<CloseableReference<CloseableImage>> dataSource = imagePipeline.fetchDecodedImage(imageRequest, context);
-        DataSubscriber dataSubscriber = new BaseDataSubscriber<CloseableReference<CloseableBitmap>>() {
-            @Override
-            public void onNewResultImpl(DataSource<CloseableReference<CloseableBitmap>> dataSource) {
-                if (!dataSource.isFinished()) {
-                    return;
-                }
+        ImageRequest imageRequest = ImageRequestBuilder.newBuilderWithSource(Uri.parse(url)).build();
+        fetchBitmap(context, imageRequest, loadImageResult, executor);
+    }
 
-                CloseableReference<CloseableBitmap> imageReference = dataSource.getResult();
-                if (imageReference != null) {
-                    final CloseableReference<CloseableBitmap> closeableReference = imageReference.clone();
-                    try {
-                        CloseableBitmap closeableBitmap = closeableReference.get();
-                        Bitmap bitmap = closeableBitmap.getUnderlyingBitmap();
-                        if (bitmap != null && !bitmap.isRecycled()) {
-                            // https://github.com/facebook/fresco/issues/648
-                            final Bitmap tempBitmap = bitmap.copy(bitmap.getConfig(), false);
-                            loadImageResult.onResult(tempBitmap);
-                        }
-                    } finally {
-                        imageReference.close();
-                        closeableReference.close();
-                    }
-                }
-            }
+    /**
+     * 根据提供的图片URL加载原始图，以租用的方式返回内存缓存中的Bitmap，不做拷贝。
+     * 使用完毕后必须调用BitmapLease.release()
+     *
+     * @param url         图片URL
+     * @param leaseResult LoadBitmapLeaseResult
+     * @param executor    执行回调的线程池，参考loadOriginalImage(Context, String, LoadImageResult, Executor)
+     */
+    public static void loadImageLease(Context context, String url, LoadBitmapLeaseResult leaseResult, Executor executor) {
+        if (TextUtils.isEmpty(url)) {
+            return;
+        }
 
-            @Override
-            public void onFailureImpl(DataSource dataSource) {
-                Throwable throwable = dataSource.getFailureCause();
-                if (throwable != null) {
-                    Log.e("ImageLoader", "onFailureImpl = " + throwable.toString());
-                }
-            }
-        };
-        dataSource.subscribe(dataSubscriber, executor);
+        ImageRequest imageRequest = ImageRequestBuilder.newBuilderWithSource(Uri.parse(url)).build();
+        fetchBitmapLease(context, imageRequest, leaseResult, executor);
     }
 
     /**
      * 从网络下载图片
      * 1、根据提供的图片URL，获取图片数据流
      * 2、将得到的数据流写入指定路径的本地文件
+     * <p>
+     * 同一URL下载到同一路径的请求同时进行时，只下载和写入一次，所有的DownloadImageResult都会收到结果
      *
      * @param url            URL
      * @param loadFileResult LoadFileResult
      */
-    public static void downloadImage(Context context, String url, final DownloadImageResult loadFileResult) {
+    public static void downloadImage(Context context, final String url, final DownloadImageResult loadFileResult) {
         if (TextUtils.isEmpty(url)) {
             return;
         }
 
+        final String requestKey = loadFileResult != null ? url + "->" + loadFileResult.getFilePath() : null;
+        if (requestKey != null && !sDownloadRequests.join(requestKey, loadFileResult)) {
+            return;
+        }
+
         Uri uri = Uri.parse(url);
-        ImagePipeline imagePipeline = Fresco.getImagePipeline();
+        ImagePipeline imagePipeline = Phoenix.getImagePipeline();
         ImageRequestBuilder builder = ImageRequestBuilder.newBuilderWithSource(uri);
         ImageRequest imageRequest = builder.build();
 
@@ -523,32 +712,32 @@ public class ImageLoader {
                     return;
                 }
 
+                String photoPath = null;
+                boolean written = false;
                 CloseableReference<PooledByteBuffer> imageReference = dataSource.getResult();
-                if (imageReference != null) {
-                    final CloseableReference<PooledByteBuffer> closeableReference = imageReference.clone();
-                    try {
-                        PooledByteBuffer pooledByteBuffer = closeableReference.get();
-                        InputStream inputStream = new PooledByteBufferInputStream(pooledByteBuffer);
-                        String photoPath = loadFileResult.getFilePath();
+                try {
+                    if (imageReference != null) {
+                        PooledByteBuffer pooledByteBuffer = imageReference.get();
+                        photoPath = loadFileResult.getFilePath();
                         Log.i("ImageLoader", "photoPath = " + photoPath);
 
-                        byte[] data = StreamTool.read(inputStream);
-                        StreamTool.write(photoPath, data);
-                        loadFileResult.onResult(photoPath);
-                    } catch (IOException e) {
-                        loadFileResult.onResult(null);
-                        e.printStackTrace();
-                    } finally {
-                        imageReference.close();
-                        closeableReference.close();
+                        // 分块写入临时文件后重命名，不在Java堆中保留完整的图片数据
+                        StreamTool.write(photoPath, pooledByteBuffer);
+                        written = true;
                     }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } finally {
+                    CloseableReference.closeSafely(imageReference);
+                    // 写入时抛出任何异常都要结束这次请求，否则同一key的后续请求会一直等待
+                    dispatchDownloadResult(requestKey, written ? photoPath : null);
                 }
             }
 
             @Override
             public void onFailureImpl(DataSource dataSource) {
                 if (loadFileResult != null) {
-                    loadFileResult.onResult(null);
+                    dispatchDownloadResult(requestKey, null);
                 }
 
                 Throwable throwable = dataSource.getFailureCause();
@@ -556,56 +745,266 @@ public class ImageLoader {
                     Log.e("ImageLoader", "onFailureImpl = " + throwable.toString());
                 }
             }
-        }, Executors.newSingleThreadExecutor());
+        }, ImageExecutors.forIo());
+    }
+
+    private static void dispatchDownloadResult(String requestKey, String filePath) {
+        for (DownloadImageResult result : sDownloadRequests.complete(requestKey)) {
+            result.onResult(filePath);
+        }
     }
 
+    /**
+     * 按指定的尺寸加载图片，在主线程中回调。
+     * 同时请求同一张图片的回调共用一个Bitmap，不要修改或recycle()它，需要修改时先拷贝
+     */
     public static void loadImage(Context context, String url, final int reqWidth, final int reqHeight, final LoadImageResult loadImageResult) {
         if (TextUtils.isEmpty(url)) {
             return;
         }
 
-        Uri uri = Uri.parse(url);
-        ImagePipeline imagePipeline = Fresco.getImagePipeline();
+        Uri uri = CdnResizer.rewrite(Uri.parse(url), reqWidth, reqHeight);
+        ImageRequest imageRequest = ImageRequestBuilder.newBuilderWithSource(uri)
+                .setResizeOptions(new ResizeOptions(reqWidth, reqHeight))
+                .build();
+        fetchBitmap(context, imageRequest, loadImageResult, ImageExecutors.forMainThread());
+    }
+
+    /**
+     * 按指定的尺寸加载图片，以租用的方式返回内存缓存中的Bitmap，不做拷贝。
+     * 使用完毕后必须调用BitmapLease.release()
+     */
+    public static void loadImageLease(Context context, String url, final int reqWidth, final int reqHeight,
+                                      LoadBitmapLeaseResult leaseResult, Executor executor) {
+        if (TextUtils.isEmpty(url)) {
+            return;
+        }
 
+        Uri uri = CdnResizer.rewrite(Uri.parse(url), reqWidth, reqHeight);
         ImageRequest imageRequest = ImageRequestBuilder.newBuilderWithSource(uri)
                 .setResizeOptions(new ResizeOptions(reqWidth, reqHeight))
                 .build();
+        fetchBitmapLease(context, imageRequest, leaseResult, executor);
+    }
+
+    /**
+     * 加载Bitmap并拷贝一份交给LoadImageResult。同时请求同一张图片的多个回调共用一次加载和一份拷贝，
+     * 因此拿到的Bitmap可能是同一个不可变对象，不要修改或recycle()它
+     */
+    private static void fetchBitmap(Context context, ImageRequest imageRequest,
+                                    LoadImageResult loadImageResult, Executor executor) {
+        fetchDecodedImage(context, imageRequest, new DecodedWaiter(null, loadImageResult, executor));
+    }
+
+    private static void fetchBitmapLease(Context context, ImageRequest imageRequest,
+                                         LoadBitmapLeaseResult leaseResult, Executor executor) {
+        fetchDecodedImage(context, imageRequest, new DecodedWaiter(leaseResult, null, executor));
+    }
+
+    /**
+     * 获取已解码的图片，对同一缓存key（URI、尺寸、后处理等）的进行中请求只发起一次，结果分发给所有等待的回调
+     */
+    private static void fetchDecodedImage(Context context, ImageRequest imageRequest, DecodedWaiter waiter) {
+        ImagePipeline imagePipeline = Phoenix.getImagePipeline();
+        final Object requestKey = getDecodedRequestKey(imagePipeline, imageRequest, waiter);
+        if (!sDecodedRequests.join(requestKey, waiter)) {
+            return;
+        }
 
-        // 获取已解码的图片，返回的是Bitmap
         DataSource<CloseableReference<CloseableImage>> dataSource = imagePipeline.fetchDecodedImage(imageRequest, context);
-        DataSubscriber dataSubscriber = new BaseDataSubscriber<CloseableReference<CloseableBitmap>>() {
+        dataSource.subscribe(new BaseDataSubscriber<CloseableReference<CloseableImage>>() {
             @Override
-            public void onNewResultImpl(DataSource<CloseableReference<CloseableBitmap>> dataSource) {
+            public void onNewResultImpl(DataSource<CloseableReference<CloseableImage>> dataSource) {
                 if (!dataSource.isFinished()) {
                     return;
                 }
 
-                CloseableReference<CloseableBitmap> imageReference = dataSource.getResult();
-                if (imageReference != null) {
-                    final CloseableReference<CloseableBitmap> closeableReference = imageReference.clone();
-                    try {
-                        CloseableBitmap closeableBitmap = closeableReference.get();
-                        Bitmap bitmap = closeableBitmap.getUnderlyingBitmap();
-                        if (bitmap != null && !bitmap.isRecycled()) {
-                            final Bitmap tempBitmap = bitmap.copy(bitmap.getConfig(), false);
-                            loadImageResult.onResult(tempBitmap);
-                        }
-                    } finally {
-                        imageReference.close();
-                        closeableReference.close();
-                    }
+                List<DecodedWaiter> waiters = sDecodedRequests.complete(requestKey);
+                CloseableReference<CloseableImage> imageReference = dataSource.getResult();
+                BitmapLease lease;
+                try {
+                    lease = BitmapLease.of(imageReference);
+                } finally {
+                    CloseableReference.closeSafely(imageReference);
+                }
+                if (lease != null) {
+                    dispatchLease(lease, waiters);
                 }
             }
 
             @Override
             public void onFailureImpl(DataSource dataSource) {
+                sDecodedRequests.complete(requestKey);
                 Throwable throwable = dataSource.getFailureCause();
                 if (throwable != null) {
                     Log.e("ImageLoader", "onFailureImpl = " + throwable.toString());
                 }
             }
-        };
-        dataSource.subscribe(dataSubscriber, UiThreadImmediateExecutorService.getInstance());
+        }, CallerThreadExecutor.getInstance());
+    }
+
+    /**
+     * 每个租用回调各得到一个独立的租用；拷贝回调只拷贝一次，在CPU线程池中完成后分发
+     */
+    private static void dispatchLease(final BitmapLease lease, List<DecodedWaiter> waiters) {
+        final List<DecodedWaiter> copyWaiters = new ArrayList<>();
+        for (final DecodedWaiter waiter : waiters) {
+            if (waiter.mLeaseResult == null) {
+                copyWaiters.add(waiter);
+                continue;
+            }
+
+            final BitmapLease waiterLease = lease.acquire();
+            waiter.mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    waiter.mLeaseResult.onResult(waiterLease);
+                }
+            });
+        }
+
+        if (copyWaiters.isEmpty()) {
+            lease.release();
+            return;
+        }
+
+        ImageExecutors.forCpu().execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap;
+                try {
+                    // https://github.com/facebook/fresco/issues/648
+                    bitmap = lease.copyBitmap();
+                } finally {
+                    lease.release();
+                }
+
+                for (final DecodedWaiter waiter : copyWaiters) {
+                    waiter.mExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            waiter.mLoadImageResult.onResult(bitmap);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * 与Fresco内存缓存的key一致；后处理器没有提供缓存key时无法判断两个请求是否相同，不做合并
+     */
+    private static Object getDecodedRequestKey(ImagePipeline imagePipeline, ImageRequest imageRequest,
+                                               DecodedWaiter waiter) {
+        Postprocessor postprocessor = imageRequest.getPostprocessor();
+        if (postprocessor != null && postprocessor.getPostprocessorCacheKey() == null) {
+            return waiter;
+        }
+
+        CacheKeyFactory cacheKeyFactory = imagePipeline.getCacheKeyFactory();
+        return postprocessor != null
+                ? cacheKeyFactory.getPostprocessedBitmapCacheKey(imageRequest, null)
+                : cacheKeyFactory.getBitmapCacheKey(imageRequest, null);
+    }
+
+    private static void rebindPendingViews() {
+        if (sPendingRebinds.isEmpty()) {
+            return;
+        }
+
+        Map<SimpleDraweeView, WeakReference<PendingRebind>> pendingRebinds = new HashMap<>(sPendingRebinds);
+        sPendingRebinds.clear();
+        for (Map.Entry<SimpleDraweeView, WeakReference<PendingRebind>> entry : pendingRebinds.entrySet()) {
+            SimpleDraweeView simpleDraweeView = entry.getKey();
+            PendingRebind pendingRebind = entry.getValue().get();
+            // 失败后又被绑定了其他请求的View不需要重新加载。Controller实例会被复用，只能比较每次绑定生成的id
+            if (pendingRebind != null && pendingRebind.isBoundTo(simpleDraweeView.getController())) {
+                setController(simpleDraweeView, pendingRebind.mImageRequest, pendingRebind.mLowResImageRequest,
+                        pendingRebind.mFirstAvailableImageRequests, pendingRebind.mControllerListener);
+            }
+        }
+    }
+
+    /**
+     * 只从缓存加载的请求失败时显示占位图，被全局限制的请求登记到sPendingRebinds
+     */
+    private static final class RestrictedRequestListener extends BaseControllerListener<ImageInfo> {
+
+        private final WeakReference<SimpleDraweeView> mViewReference;
+
+        @Nullable
+        private final PendingRebind mPendingRebind;
+
+        RestrictedRequestListener(SimpleDraweeView simpleDraweeView, @Nullable PendingRebind pendingRebind) {
+            mViewReference = new WeakReference<>(simpleDraweeView);
+            mPendingRebind = pendingRebind;
+        }
+
+        @Override
+        public void onFailure(String id, Throwable throwable) {
+            SimpleDraweeView simpleDraweeView = mViewReference.get();
+            if (simpleDraweeView == null) {
+                return;
+            }
+
+            // 缓存未命中不是真正的失败，不显示失败图或重试图
+            simpleDraweeView.getHierarchy().reset();
+            if (mPendingRebind != null) {
+                mPendingRebind.mControllerId = id;
+                sPendingRebinds.put(simpleDraweeView, new WeakReference<>(mPendingRebind));
+            }
+        }
+
+    }
+
+    /**
+     * 未被限制的原始请求，限制解除后用于重新加载
+     */
+    private static final class PendingRebind {
+
+        final ImageRequest mImageRequest;
+
+        final ImageRequest mLowResImageRequest;
+
+        final ImageRequest[] mFirstAvailableImageRequests;
+
+        final ControllerListener<ImageInfo> mControllerListener;
+
+        String mControllerId;
+
+        PendingRebind(ImageRequest imageRequest, ImageRequest lowResImageRequest,
+                      ImageRequest[] firstAvailableImageRequests, ControllerListener<ImageInfo> controllerListener) {
+            mImageRequest = imageRequest;
+            mLowResImageRequest = lowResImageRequest;
+            mFirstAvailableImageRequests = firstAvailableImageRequests;
+            mControllerListener = controllerListener;
+        }
+
+        boolean isBoundTo(DraweeController controller) {
+            return controller instanceof AbstractDraweeController
+                    && mControllerId != null
+                    && mControllerId.equals(((AbstractDraweeController) controller).getId());
+        }
+
+    }
+
+    /**
+     * 等待已解码图片的回调，mLeaseResult和mLoadImageResult二选一
+     */
+    private static final class DecodedWaiter {
+
+        final LoadBitmapLeaseResult mLeaseResult;
+
+        final LoadImageResult mLoadImageResult;
+
+        final Executor mExecutor;
+
+        DecodedWaiter(LoadBitmapLeaseResult leaseResult, LoadImageResult loadImageResult, Executor executor) {
+            mLeaseResult = leaseResult;
+            mLoadImageResult = loadImageResult;
+            mExecutor = executor;
+        }
+
     }
 
 }
@@ -3,17 +3,54 @@ package com.facebook.fresco.helper;
 import android.content.Context;
 import android.net.Uri;
 import android.text.TextUtils;
+import android.util.Log;
 import android.view.ViewGroup;
 
+import com.facebook.common.internal.Supplier;
 import com.facebook.common.util.UriUtil;
 import com.facebook.drawee.backends.pipeline.Fresco;
+import com.facebook.drawee.backends.pipeline.PipelineDraweeControllerBuilder;
 import com.facebook.drawee.controller.ControllerListener;
 import com.facebook.drawee.view.SimpleDraweeView;
+import com.facebook.fresco.helper.blur.BlurPostprocessor;
+import com.facebook.fresco.helper.cache.CacheEviction;
+import com.facebook.fresco.helper.cache.CacheKeyIndex;
+import com.facebook.fresco.helper.cache.DiskCacheQuery;
+import com.facebook.fresco.helper.config.AdaptiveDiskCacheSizer;
+import com.facebook.fresco.helper.config.DiskCacheStats;
 import com.facebook.fresco.helper.config.ImageLoaderConfig;
+import com.facebook.fresco.helper.config.InitTrace;
+import com.facebook.fresco.helper.config.NetworkConfig;
+import com.facebook.fresco.helper.executor.ImageExecutors;
+import com.facebook.fresco.helper.metrics.MetricsSnapshot;
+import com.facebook.fresco.helper.metrics.PipelineMetrics;
+import com.facebook.fresco.helper.policy.RequestLevelPolicy;
+import com.facebook.fresco.helper.prefetch.PrefetchGroup;
+import com.facebook.fresco.helper.resize.CdnResizer;
+import com.facebook.fresco.helper.resize.UrlResizer;
+import com.facebook.fresco.helper.resize.ViewSizeResolver;
+import com.facebook.fresco.helper.warmup.CacheWarmer;
+import com.facebook.fresco.helper.warmup.WarmupStats;
+import com.facebook.imagepipeline.common.Priority;
+import com.facebook.imagepipeline.common.ResizeOptions;
+import com.facebook.imagepipeline.common.RotationOptions;
 import com.facebook.imagepipeline.core.ImagePipeline;
+import com.facebook.imagepipeline.core.ImagePipelineConfig;
+import com.facebook.imagepipeline.core.ImagePipelineFactory;
 import com.facebook.imagepipeline.image.ImageInfo;
 import com.facebook.imagepipeline.request.BasePostprocessor;
 import com.facebook.imagepipeline.request.ImageRequest;
+import com.facebook.imagepipeline.request.ImageRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+import okhttp3.OkHttpClient;
 
 /**
  * Facebook开源的Android图片加载库Fresco的使用帮助类
@@ -23,15 +60,212 @@ import com.facebook.imagepipeline.request.ImageRequest;
 
 public final class Phoenix {
 
+    private static final String TAG = "Phoenix";
+
+    private static int sWarmupMaxImages = CacheWarmer.DEFAULT_MAX_IMAGES;
+
+    private static long sWarmupMaxBytes = CacheWarmer.DEFAULT_MAX_BYTES;
+
+    /**
+     * initAsync()时不为null，初始化完成后计数归零
+     */
+    private static volatile CountDownLatch sInitLatch;
+
+    private static volatile Throwable sInitError;
+
     private Phoenix() {
 
     }
 
     public static void init(Context context) {
-        Fresco.initialize(context, ImageLoaderConfig.getImagePipelineConfig(context));
+        init(context, NetworkConfig.newBuilder().build());
+    }
+
+    /**
+     * 初始化，并指定图片下载的网络配置（每个host的并发数、连接池、超时、拦截器等）
+     */
+    public static void init(Context context, NetworkConfig networkConfig) {
+        doInit(context, networkConfig);
+    }
+
+    /**
+     * 在后台线程中初始化，OkHttpClient、磁盘缓存配置、内存缓存配置及ImagePipeline都不在主线程中创建，
+     * 可缩短Application.onCreate()的耗时。
+     * <p>
+     * 初始化完成之前，创建SimpleDraweeView（包括从布局文件中加载）、调用with()以及其他访问缓存的方法
+     * 会阻塞当前线程直到初始化完成，各阶段的耗时和主线程的等待时长可通过getInitTrace()查看
+     */
+    public static void initAsync(Context context) {
+        initAsync(context, NetworkConfig.newBuilder().build());
+    }
+
+    /**
+     * 在后台线程中初始化，并指定图片下载的网络配置，参见initAsync(Context)
+     */
+    public static void initAsync(Context context, final NetworkConfig networkConfig) {
+        final Context applicationContext = context.getApplicationContext();
+        final CountDownLatch initLatch = new CountDownLatch(1);
+        sInitLatch = initLatch;
+
+        // Fresco.initialize()完成后会替换为Fresco自己的Supplier
+        SimpleDraweeView.initialize(new Supplier<PipelineDraweeControllerBuilder>() {
+            @Override
+            public PipelineDraweeControllerBuilder get() {
+                awaitInitialized();
+                return Fresco.newDraweeControllerBuilder();
+            }
+        });
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    doInit(applicationContext, networkConfig);
+                } catch (Throwable t) {
+                    sInitError = t;
+                    Log.e(TAG, "initAsync failed", t);
+                } finally {
+                    initLatch.countDown();
+                }
+            }
+        }, "Phoenix-init");
+        thread.start();
+    }
+
+    /**
+     * 阻塞当前线程直到initAsync()的初始化完成，已完成或使用init()初始化时立即返回
+     *
+     * @throws IllegalStateException 后台初始化失败
+     */
+    public static void awaitInitialized() {
+        CountDownLatch initLatch = sInitLatch;
+        if (initLatch != null && initLatch.getCount() > 0) {
+            long start = System.nanoTime();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    initLatch.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            InitTrace initTrace = ImageLoaderConfig.getInitTrace();
+            if (initTrace != null) {
+                initTrace.addBlocked(System.nanoTime() - start);
+            }
+        }
+
+        if (sInitError != null) {
+            throw new IllegalStateException("Phoenix initialization failed", sInitError);
+        }
+    }
+
+    /**
+     * 是否已初始化完成，不会阻塞
+     */
+    public static boolean isInitialized() {
+        CountDownLatch initLatch = sInitLatch;
+        return initLatch != null ? initLatch.getCount() == 0 && sInitError == null : Fresco.hasBeenInitialized();
+    }
+
+    /**
+     * 初始化各阶段的耗时及等待初始化完成的时长，未初始化时返回null
+     */
+    public static InitTrace getInitTrace() {
+        return ImageLoaderConfig.getInitTrace();
+    }
+
+    private static void doInit(Context context, NetworkConfig networkConfig) {
+        ImagePipelineConfig imagePipelineConfig = ImageLoaderConfig.getImagePipelineConfig(context, networkConfig);
+        InitTrace initTrace = ImageLoaderConfig.getInitTrace();
+        Fresco.initialize(context, imagePipelineConfig);
+        initTrace.mark("fresco_initialize");
+        ImageLoaderConfig.getCacheWarmer().warmUp(sWarmupMaxImages, sWarmupMaxBytes);
+        initTrace.mark("cache_warmup");
+        Log.i(TAG, initTrace.toString());
+    }
+
+    /**
+     * 获取ImagePipeline，使用initAsync()时先等待初始化完成。库内访问ImagePipeline都应经过这里
+     *
+     * @throws IllegalStateException 后台初始化失败
+     */
+    public static ImagePipeline getImagePipeline() {
+        awaitInitialized();
+        return Fresco.getImagePipeline();
+    }
+
+    /**
+     * 使用initAsync()时先等待初始化完成
+     */
+    static PipelineDraweeControllerBuilder newDraweeControllerBuilder() {
+        awaitInitialized();
+        return Fresco.newDraweeControllerBuilder();
+    }
+
+    /**
+     * 设置冷启动时预热内存缓存的上限，需在init()之前调用。init()之后在后台从磁盘缓存解码上次最常显示的图片，
+     * 不访问网络
+     *
+     * @param maxImages 最多预热的图片数，0表示关闭预热
+     * @param maxBytes  预热的已解码图片占用的内存上限，单位字节
+     */
+    public static void setCacheWarmupBudget(int maxImages, long maxBytes) {
+        sWarmupMaxImages = maxImages;
+        sWarmupMaxBytes = maxBytes;
+    }
+
+    /**
+     * 冷启动内存缓存预热的统计信息，包括预热的图片数、占用的内存以及被使用的比例
+     *
+     * @return WarmupStats，未调用init()时返回null
+     */
+    public static WarmupStats getWarmupStats() {
+        CacheWarmer cacheWarmer = ImageLoaderConfig.getCacheWarmer();
+        return cacheWarmer != null ? cacheWarmer.getStats() : null;
+    }
+
+    /**
+     * 设置CDN的URL改写策略，之后通过setWidth()和setHeight()指定了尺寸的网络图片都由服务端缩放后再下载，
+     * 尺寸按CdnResizer.getSizeBuckets()的档位向上取整。null表示关闭。
+     * <p>
+     * 缓存key是改写后的URL：用原始URL调用isInDiskCache()、isInBitmapMemoryCache()、prefetch等方法不会命中
+     * 按尺寸加载的版本；evictFromCache()等删除方法会一并删除最近改写过的版本
+     */
+    public static void setUrlResizer(UrlResizer urlResizer) {
+        CdnResizer.setUrlResizer(urlResizer);
+    }
+
+    /**
+     * 对所有未指定尺寸的加载开启或关闭按View大小解码，参见Builder.setAutoResize()
+     */
+    public static void setAutoResizeEnabled(boolean autoResizeEnabled) {
+        ImageLoader.setAutoResizeEnabled(autoResizeEnabled);
+    }
+
+    /**
+     * 设置请求层级的全局限制，例如快速滑动或没有网络时只从缓存加载，null表示不限制
+     * <pre>
+     * RequestLevelPolicy policy = new RequestLevelPolicy().setMeteredLevel(RequestLevel.DISK_CACHE);
+     * policy.startMonitoringNetwork(context);
+     * Phoenix.setRequestLevelPolicy(policy);
+     * </pre>
+     */
+    public static void setRequestLevelPolicy(RequestLevelPolicy policy) {
+        ImageLoader.setRequestLevelPolicy(policy);
+    }
+
+    public static RequestLevelPolicy getRequestLevelPolicy() {
+        return ImageLoader.getRequestLevelPolicy();
     }
 
     public static Builder with(SimpleDraweeView simpleDraweeView) {
+        awaitInitialized();
         return new Builder().build(simpleDraweeView);
     }
 
@@ -42,9 +276,19 @@ public final class Phoenix {
         private int mHeight;
         private float mAspectRatio;
         private boolean mNeedBlur;
+        private int mBlurRadius = BlurPostprocessor.DEFAULT_RADIUS;
+        private int mBlurSampling = 1;
         private boolean mSmallDiskCache;
         private BasePostprocessor mPostprocessor;
         private ControllerListener<ImageInfo> mControllerListener;
+        private boolean mAutoResize;
+        private String mLowResUrl;
+        private int mLowResWidth;
+        private int mLowResHeight;
+        private boolean mLowResSmallDiskCache;
+        private String[] mFirstAvailableUrls;
+        private ImageRequest.RequestLevel mRequestLevel = ImageRequest.RequestLevel.FULL_FETCH;
+        private String[] mTags;
 
         public Builder build(SimpleDraweeView simpleDraweeView) {
             this.mSimpleDraweeView = simpleDraweeView;
@@ -71,6 +315,20 @@ public final class Phoenix {
             return this;
         }
 
+        /**
+         * 对图片做高斯模糊处理，模糊后的结果会进入内存缓存，相同参数的图片再次显示时不会重复模糊
+         *
+         * @param radius   模糊半径，取值范围1~100
+         * @param sampling 降采样倍数，大于1时先缩小再模糊，可显著降低内存和耗时
+         * @return Builder
+         */
+        public Builder setNeedBlur(int radius, int sampling) {
+            this.mNeedBlur = true;
+            this.mBlurRadius = radius;
+            this.mBlurSampling = sampling;
+            return this;
+        }
+
         public Builder setSmallDiskCache(boolean smallDiskCache) {
             this.mSmallDiskCache = smallDiskCache;
             return this;
@@ -86,11 +344,79 @@ public final class Phoenix {
             return this;
         }
 
+        /**
+         * 未通过setWidth()和setHeight()指定尺寸时，等View测量完成后再发起请求，按View的大小解码图片。
+         * 也可通过Phoenix.setAutoResizeEnabled()对所有加载开启
+         */
+        public Builder setAutoResize(boolean autoResize) {
+            this.mAutoResize = autoResize;
+            return this;
+        }
+
+        /**
+         * 在大图加载完成之前先显示低分辨率的图片，例如详情页先显示列表页已加载过的缩略图
+         */
+        public Builder setLowResUrl(String lowResUrl) {
+            return setLowResUrl(lowResUrl, 0, 0);
+        }
+
+        /**
+         * 在大图加载完成之前先显示低分辨率的图片。width和height需要与加载缩略图时指定的尺寸一致，
+         * 才能直接命中已解码图片的内存缓存。缩略图按ImageLoader.loadImage()的方式请求：不使用后处理，使用默认磁盘缓存
+         */
+        public Builder setLowResUrl(String lowResUrl, int width, int height) {
+            return setLowResUrl(lowResUrl, width, height, false);
+        }
+
+        /**
+         * @param smallDiskCache 缩略图是否由ImageLoader.loadImageSmall()等使用小图磁盘缓存的方式加载，需与列表页一致
+         */
+        public Builder setLowResUrl(String lowResUrl, int width, int height, boolean smallDiskCache) {
+            this.mLowResUrl = lowResUrl;
+            this.mLowResWidth = width;
+            this.mLowResHeight = height;
+            this.mLowResSmallDiskCache = smallDiskCache;
+            return this;
+        }
+
+        /**
+         * 除load()的url之外可接受的其他版本，按load()的url、urls的顺序显示第一张已缓存的图片，
+         * 都没有缓存时按相同的顺序从网络加载，前一个失败时再加载下一个
+         */
+        public Builder setFirstAvailableUrls(String... urls) {
+            this.mFirstAvailableUrls = urls;
+            return this;
+        }
+
+        /**
+         * 请求最低允许到达的层级，例如RequestLevel.DISK_CACHE表示只从缓存加载，不访问网络，
+         * 缓存未命中时显示占位图。设置了全局的RequestLevelPolicy时取两者中较高的一个
+         */
+        public Builder setLowestPermittedRequestLevel(ImageRequest.RequestLevel requestLevel) {
+            this.mRequestLevel = requestLevel;
+            return this;
+        }
+
+        /**
+         * 给加载的图片（包括低分辨率和其他可接受的版本）添加标签，之后可通过Phoenix.evictByTag()批量删除缓存，
+         * 例如setTags("user:" + userId)
+         */
+        public Builder setTags(String... tags) {
+            this.mTags = tags;
+            return this;
+        }
+
         public void load(String url) {
             if(TextUtils.isEmpty(url) || mSimpleDraweeView == null) {
                 return;
             }
 
+            if (!TextUtils.isEmpty(mLowResUrl) || (mFirstAvailableUrls != null && mFirstAvailableUrls.length > 0)
+                    || mRequestLevel != ImageRequest.RequestLevel.FULL_FETCH || (mTags != null && mTags.length > 0)) {
+                loadWithRequests(url);
+                return;
+            }
+
             if(!mNeedBlur) {
                 loadNormal(url);
             } else {
@@ -118,8 +444,9 @@ public final class Phoenix {
                     ImageLoader.loadDrawable(mSimpleDraweeView, resId);
                 }
             } else {
+                BlurPostprocessor blurPostprocessor = new BlurPostprocessor(mBlurRadius, mBlurSampling);
                 if (mWidth > 0 && mHeight > 0) {
-                    ImageLoader.loadDrawableBlur(mSimpleDraweeView, resId, mWidth, mHeight);
+                    ImageLoader.loadDrawable(mSimpleDraweeView, resId, mWidth, mHeight, blurPostprocessor);
                 } else {
                     if (mAspectRatio > 0 && (mWidth > 0 || mHeight > 0)) {
                         ViewGroup.LayoutParams lvp = mSimpleDraweeView.getLayoutParams();
@@ -129,7 +456,7 @@ public final class Phoenix {
                         mSimpleDraweeView.setAspectRatio(mAspectRatio);
                     }
 
-                    ImageLoader.loadDrawableBlur(mSimpleDraweeView, resId);
+                    ImageLoader.loadDrawable(mSimpleDraweeView, resId, blurPostprocessor);
                 }
             }
         }
@@ -160,7 +487,10 @@ public final class Phoenix {
                     mSimpleDraweeView.setAspectRatio(mAspectRatio);
                 }
 
-                if (UriUtil.isNetworkUri(uri)) {
+                if (mAutoResize) {
+                    ImageLoader.loadImage(mSimpleDraweeView, toImageUri(url), 0, 0, mPostprocessor,
+                            mControllerListener, mSmallDiskCache, true);
+                } else if (UriUtil.isNetworkUri(uri)) {
                     ImageLoader.loadImage(mSimpleDraweeView, url, mPostprocessor);
                 } else {
                     ImageLoader.loadFile(mSimpleDraweeView, url, mPostprocessor);
@@ -170,11 +500,12 @@ public final class Phoenix {
 
         private void loadBlur(String url) {
             Uri uri = Uri.parse(url);
+            BlurPostprocessor blurPostprocessor = new BlurPostprocessor(mBlurRadius, mBlurSampling);
             if(mWidth > 0 && mHeight > 0) {
                 if (UriUtil.isNetworkUri(uri)) {
-                    ImageLoader.loadImageBlur(mSimpleDraweeView, url, mWidth, mHeight);
+                    ImageLoader.loadImage(mSimpleDraweeView, url, mWidth, mHeight, blurPostprocessor);
                 } else {
-                    ImageLoader.loadFileBlur(mSimpleDraweeView, url, mWidth, mHeight);
+                    ImageLoader.loadFile(mSimpleDraweeView, url, mWidth, mHeight, blurPostprocessor);
                 }
             } else {
                 if(mAspectRatio > 0 && (mWidth > 0 || mHeight > 0)) {
@@ -185,26 +516,201 @@ public final class Phoenix {
                     mSimpleDraweeView.setAspectRatio(mAspectRatio);
                 }
 
-                if (UriUtil.isNetworkUri(uri)) {
-                    ImageLoader.loadImageBlur(mSimpleDraweeView, url);
+                if (mAutoResize) {
+                    ImageLoader.loadImage(mSimpleDraweeView, toImageUri(url), 0, 0, blurPostprocessor,
+                            null, false, true);
+                } else if (UriUtil.isNetworkUri(uri)) {
+                    ImageLoader.loadImage(mSimpleDraweeView, url, blurPostprocessor);
                 } else {
-                    ImageLoader.loadFileBlur(mSimpleDraweeView, url);
+                    ImageLoader.loadFile(mSimpleDraweeView, url, blurPostprocessor);
+                }
+            }
+        }
+
+        private void loadWithRequests(final String url) {
+            if (mWidth > 0 && mHeight > 0) {
+                ViewSizeResolver.cancel(mSimpleDraweeView);
+                setRequestsController(url, mWidth, mHeight);
+                return;
+            }
+
+            if (mAspectRatio > 0 && (mWidth > 0 || mHeight > 0)) {
+                ViewGroup.LayoutParams lvp = mSimpleDraweeView.getLayoutParams();
+                lvp.width = mWidth;
+                lvp.height = mHeight;
+                // 设置宽高比
+                mSimpleDraweeView.setAspectRatio(mAspectRatio);
+            }
+
+            if (mAutoResize || ImageLoader.isAutoResizeEnabled()) {
+                ViewSizeResolver.resolve(mSimpleDraweeView, new ViewSizeResolver.SizeCallback() {
+                    @Override
+                    public void onSizeReady(int width, int height) {
+                        setRequestsController(url, width, height);
+                    }
+                });
+            } else {
+                ViewSizeResolver.cancel(mSimpleDraweeView);
+                setRequestsController(url, 0, 0);
+            }
+        }
+
+        private void setRequestsController(String url, int width, int height) {
+            BasePostprocessor postprocessor = mNeedBlur
+                    ? new BlurPostprocessor(mBlurRadius, mBlurSampling) : mPostprocessor;
+
+            ImageRequest imageRequest = null;
+            ImageRequest[] firstAvailableImageRequests = null;
+            if (mFirstAvailableUrls != null && mFirstAvailableUrls.length > 0) {
+                List<ImageRequest> requests = new ArrayList<>(mFirstAvailableUrls.length + 1);
+                requests.add(ImageLoader.buildImageRequest(toImageUri(url), width, height, postprocessor,
+                        mSmallDiskCache, mRequestLevel));
+                for (String firstAvailableUrl : mFirstAvailableUrls) {
+                    if (!TextUtils.isEmpty(firstAvailableUrl)) {
+                        requests.add(ImageLoader.buildImageRequest(toImageUri(firstAvailableUrl), width, height,
+                                postprocessor, mSmallDiskCache, mRequestLevel));
+                    }
                 }
+                firstAvailableImageRequests = requests.toArray(new ImageRequest[requests.size()]);
+            } else {
+                imageRequest = ImageLoader.buildImageRequest(toImageUri(url), width, height, postprocessor,
+                        mSmallDiskCache, mRequestLevel);
+            }
+
+            ImageRequest lowResImageRequest = null;
+            if (!TextUtils.isEmpty(mLowResUrl)) {
+                // 后处理和磁盘缓存与列表页加载缩略图时一致，才能命中已有的缓存，而不是再请求一次
+                lowResImageRequest = ImageLoader.buildImageRequest(toImageUri(mLowResUrl), mLowResWidth,
+                        mLowResHeight, null, mLowResSmallDiskCache, mRequestLevel);
             }
+
+            if (mTags != null && mTags.length > 0) {
+                // 按实际请求的Uri记录，CDN缩放改写过的Uri同样能被删除
+                tag(imageRequest);
+                tag(lowResImageRequest);
+                if (firstAvailableImageRequests != null) {
+                    for (ImageRequest request : firstAvailableImageRequests) {
+                        tag(request);
+                    }
+                }
+            }
+
+            ImageLoader.setController(mSimpleDraweeView, imageRequest, lowResImageRequest,
+                    firstAvailableImageRequests, mControllerListener);
+        }
+
+        private void tag(ImageRequest request) {
+            if (request != null) {
+                CacheEviction.tag(request.getSourceUri(), mTags);
+            }
+        }
+
+        /**
+         * 网络图片直接解析，其他的按本地文件路径处理
+         */
+        private static Uri toImageUri(String url) {
+            Uri uri = Uri.parse(url);
+            if (UriUtil.isNetworkUri(uri)) {
+                return uri;
+            }
+            return new Uri.Builder()
+                    .scheme(UriUtil.LOCAL_FILE_SCHEME)
+                    .path(url)
+                    .build();
         }
 
     }
 
+    /**
+     * 批量预加载时默认的并发请求数
+     */
+    public static final int DEFAULT_PREFETCH_CONCURRENCY = 3;
+
+    /**
+     * 批量预加载图片到磁盘缓存，已在磁盘缓存中的图片会被跳过
+     *
+     * @param uris 图片Uri列表，重复的Uri只加载一次
+     * @return PrefetchGroup，可用于取消和查询进度
+     */
+    public static PrefetchGroup prefetchToDisk(List<Uri> uris) {
+        return prefetchToDisk(uris, DEFAULT_PREFETCH_CONCURRENCY, null);
+    }
+
+    /**
+     * 批量预加载图片到磁盘缓存，已在磁盘缓存中的图片会被跳过
+     *
+     * @param uris          图片Uri列表，重复的Uri只加载一次
+     * @param maxConcurrent 同时进行中的请求数上限
+     * @param listener      PrefetchGroup.Listener，在后台线程回调，可为null
+     * @return PrefetchGroup，可用于取消和查询进度
+     */
+    public static PrefetchGroup prefetchToDisk(List<Uri> uris, int maxConcurrent, PrefetchGroup.Listener listener) {
+        awaitInitialized();
+        return new PrefetchGroup(buildPrefetchRequests(uris, null), false, maxConcurrent, listener).start();
+    }
+
+    /**
+     * 批量预加载图片到已解码图片的内存缓存，已在内存缓存中的图片会被跳过
+     *
+     * @param uris          图片Uri列表，重复的Uri只加载一次
+     * @param resizeOptions 与显示时一致的ResizeOptions，否则显示时无法命中缓存；可为null
+     * @return PrefetchGroup，可用于取消和查询进度
+     */
+    public static PrefetchGroup prefetchToBitmapCache(List<Uri> uris, ResizeOptions resizeOptions) {
+        return prefetchToBitmapCache(uris, resizeOptions, DEFAULT_PREFETCH_CONCURRENCY, null);
+    }
+
+    /**
+     * 批量预加载图片到已解码图片的内存缓存，已在内存缓存中的图片会被跳过
+     *
+     * @param uris          图片Uri列表，重复的Uri只加载一次
+     * @param resizeOptions 与显示时一致的ResizeOptions，否则显示时无法命中缓存；可为null
+     * @param maxConcurrent 同时进行中的请求数上限
+     * @param listener      PrefetchGroup.Listener，在后台线程回调，可为null
+     * @return PrefetchGroup，可用于取消和查询进度
+     */
+    public static PrefetchGroup prefetchToBitmapCache(List<Uri> uris, ResizeOptions resizeOptions,
+                                                      int maxConcurrent, PrefetchGroup.Listener listener) {
+        awaitInitialized();
+        return new PrefetchGroup(buildPrefetchRequests(uris, resizeOptions), true, maxConcurrent, listener).start();
+    }
+
+    private static List<ImageRequest> buildPrefetchRequests(List<Uri> uris, ResizeOptions resizeOptions) {
+        List<ImageRequest> requests = new ArrayList<>(uris.size());
+        for (Uri uri : new LinkedHashSet<>(uris)) {
+            if (uri == null) {
+                continue;
+            }
+
+            // 与ImageLoader.loadImage()保持一致，才能命中同一个缓存
+            if (resizeOptions != null) {
+                uri = CdnResizer.rewrite(uri, resizeOptions.width, resizeOptions.height);
+            }
+            ImageRequestBuilder builder = ImageRequestBuilder.newBuilderWithSource(uri)
+                    .setRotationOptions(RotationOptions.autoRotate())
+                    .setRequestPriority(Priority.LOW);
+            if (resizeOptions != null) {
+                builder.setResizeOptions(resizeOptions);
+            }
+            requests.add(builder.build());
+        }
+        return requests;
+    }
+
     /**
      * 从内存缓存中移除指定图片的缓存
      *
      * @param uri
      */
     public static void evictFromMemoryCache(final Uri uri) {
-        ImagePipeline imagePipeline = Fresco.getImagePipeline();
+        ImagePipeline imagePipeline = getImagePipeline();
         if (imagePipeline.isInBitmapMemoryCache(uri)) {
             imagePipeline.evictFromMemoryCache(uri);
         }
+        // 按尺寸加载时缓存的是CDN改写后的URL
+        for (Uri resizedUri : CdnResizer.getResizedUris(uri)) {
+            imagePipeline.evictFromMemoryCache(resizedUri);
+        }
     }
 
     /**
@@ -213,9 +719,13 @@ public final class Phoenix {
      * @param uri
      */
     public static void evictFromDiskCache(final Uri uri) {
-        ImagePipeline imagePipeline = Fresco.getImagePipeline();
-        if (imagePipeline.isInDiskCacheSync(uri)) {
-            imagePipeline.evictFromDiskCache(uri);
+        // 删除操作在Fresco的磁盘写线程中异步执行，不存在时不做任何事，无需先同步检查
+        ImagePipeline imagePipeline = getImagePipeline();
+        imagePipeline.evictFromDiskCache(uri);
+        DiskCacheQuery.invalidate(uri);
+        for (Uri resizedUri : CdnResizer.getResizedUris(uri)) {
+            imagePipeline.evictFromDiskCache(resizedUri);
+            DiskCacheQuery.invalidate(resizedUri);
         }
     }
 
@@ -233,14 +743,15 @@ public final class Phoenix {
      * 清空所有内存缓存
      */
     public static void clearMemoryCaches() {
-        Fresco.getImagePipeline().clearMemoryCaches();
+        getImagePipeline().clearMemoryCaches();
     }
 
     /**
      * 清空所有磁盘缓存，若你配置有两个磁盘缓存，则两个都会清除
      */
     public static void clearDiskCaches() {
-        Fresco.getImagePipeline().clearDiskCaches();
+        getImagePipeline().clearDiskCaches();
+        DiskCacheQuery.invalidateAll();
     }
 
     /**
@@ -249,6 +760,60 @@ public final class Phoenix {
     public static void clearCaches() {
         clearMemoryCaches();
         clearDiskCaches();
+        CacheEviction.getKeyIndex().clear();
+    }
+
+    /**
+     * 异步删除指定标签的图片的所有缓存（包括内存+两个磁盘缓存），标签通过Builder.setTags()添加
+     *
+     * @param tag
+     */
+    public static void evictByTag(String tag) {
+        awaitInitialized();
+        CacheEviction.evictByTag(tag, null);
+    }
+
+    /**
+     * 异步删除指定标签的图片的所有缓存（包括内存+两个磁盘缓存），完成后在主线程中回调
+     *
+     * @param tag
+     * @param callback 可为null
+     */
+    public static void evictByTag(String tag, CacheEviction.Callback callback) {
+        awaitInitialized();
+        CacheEviction.evictByTag(tag, callback);
+    }
+
+    /**
+     * 异步删除Uri以指定前缀开头的图片的所有缓存，只包括本次进程中加载过的图片
+     *
+     * @param prefix 例如"https://cdn.example.com/avatar/123/"
+     */
+    public static void evictByUrlPrefix(String prefix) {
+        awaitInitialized();
+        CacheEviction.evictByUrlPrefix(prefix, null);
+    }
+
+    /**
+     * 异步删除Uri以指定前缀开头的图片的所有缓存，只包括本次进程中加载过的图片，完成后在主线程中回调
+     *
+     * @param prefix
+     * @param callback 可为null
+     */
+    public static void evictByUrlPrefix(String prefix, CacheEviction.Callback callback) {
+        awaitInitialized();
+        CacheEviction.evictByUrlPrefix(prefix, callback);
+    }
+
+    /**
+     * 异步删除Uri满足条件的图片的所有缓存，只包括本次进程中加载过的图片，完成后在主线程中回调
+     *
+     * @param predicate 在IO线程中调用
+     * @param callback  可为null
+     */
+    public static void evictIf(CacheKeyIndex.UriPredicate predicate, CacheEviction.Callback callback) {
+        awaitInitialized();
+        CacheEviction.evict(predicate, callback);
     }
 
     /**
@@ -258,11 +823,12 @@ public final class Phoenix {
      * @return
      */
     public static boolean isInBitmapMemoryCache(final Uri uri) {
-        return Fresco.getImagePipeline().isInBitmapMemoryCache(uri);
+        return getImagePipeline().isInBitmapMemoryCache(uri);
     }
 
     /**
-     * 查找一张图片在磁盘缓存中是否存在，若配有两个磁盘缓存，则只要其中一个存在，就会返回true
+     * 查找一张图片在磁盘缓存中是否存在，若配有两个磁盘缓存，则只要其中一个存在，就会返回true。
+     * 会阻塞当前线程读取磁盘，不要在主线程中调用，可使用isInDiskCache()异步查询
      *
      * @param uri
      * @return
@@ -272,6 +838,29 @@ public final class Phoenix {
                 isInDiskCacheSync(uri, ImageRequest.CacheChoice.DEFAULT);
     }
 
+    /**
+     * 异步批量查询图片是否在磁盘缓存中（任意一个磁盘缓存），在主线程中回调，适合在Adapter中使用
+     *
+     * @param uris     图片Uri列表
+     * @param callback 所有Uri查询完成后回调一次
+     */
+    public static void isInDiskCache(List<Uri> uris, DiskCacheQuery.Callback callback) {
+        awaitInitialized();
+        DiskCacheQuery.query(uris, callback, ImageExecutors.forMainThread());
+    }
+
+    /**
+     * 异步批量查询图片是否在磁盘缓存中（任意一个磁盘缓存）
+     *
+     * @param uris     图片Uri列表
+     * @param callback 所有Uri查询完成后回调一次
+     * @param executor 执行回调的线程池
+     */
+    public static void isInDiskCache(List<Uri> uris, DiskCacheQuery.Callback callback, Executor executor) {
+        awaitInitialized();
+        DiskCacheQuery.query(uris, callback, executor);
+    }
+
     /**
      * 查找一张图片在磁盘缓存中是否存在，可以指定是哪个磁盘缓存
      *
@@ -280,21 +869,21 @@ public final class Phoenix {
      * @return
      */
     public static boolean isInDiskCacheSync(final Uri uri, final ImageRequest.CacheChoice cacheChoice) {
-        return Fresco.getImagePipeline().isInDiskCacheSync(uri, cacheChoice);
+        return getImagePipeline().isInDiskCacheSync(uri, cacheChoice);
     }
 
     /**
      * 需要暂停网络请求时调用
      */
     public static void pause() {
-        Fresco.getImagePipeline().pause();
+        getImagePipeline().pause();
     }
 
     /**
      * 需要恢复网络请求时调用
      */
     public static void resume() {
-        Fresco.getImagePipeline().resume();
+        getImagePipeline().resume();
     }
 
     /**
@@ -303,7 +892,60 @@ public final class Phoenix {
      * @return
      */
     public static boolean isPaused() {
-        return Fresco.getImagePipeline().isPaused();
+        return getImagePipeline().isPaused();
+    }
+
+    /**
+     * 获取图片请求的统计数据：各阶段耗时分布、各级缓存的命中次数，用于上报
+     *
+     * @return MetricsSnapshot，未调用init()时返回null
+     */
+    public static MetricsSnapshot getMetricsSnapshot() {
+        PipelineMetrics metrics = ImageLoaderConfig.getPipelineMetrics();
+        return metrics != null ? metrics.snapshot() : null;
+    }
+
+    /**
+     * 主磁盘缓存和小图磁盘缓存的大小、条目数、命中及淘汰的统计信息
+     *
+     * @return 依次为主缓存和小图缓存，未调用init()时返回空List
+     */
+    public static List<DiskCacheStats> getDiskCacheStats() {
+        AdaptiveDiskCacheSizer mainSizer = ImageLoaderConfig.getMainDiskCacheSizer();
+        AdaptiveDiskCacheSizer smallSizer = ImageLoaderConfig.getSmallDiskCacheSizer();
+        if (mainSizer == null || smallSizer == null) {
+            return Collections.emptyList();
+        }
+
+        awaitInitialized();
+        ImagePipelineFactory factory = ImagePipelineFactory.getInstance();
+        List<DiskCacheStats> stats = new ArrayList<>(2);
+        stats.add(mainSizer.getStats(factory.getMainFileCache()));
+        stats.add(smallSizer.getStats(factory.getSmallImageFileCache()));
+        return stats;
+    }
+
+    /**
+     * 清空图片请求的统计数据，例如每次上报之后调用
+     */
+    public static void resetMetrics() {
+        PipelineMetrics metrics = ImageLoaderConfig.getPipelineMetrics();
+        if (metrics != null) {
+            metrics.reset();
+        }
+    }
+
+    /**
+     * 获取各个host正在下载中的图片请求数，不包括排队中的请求
+     *
+     * @return host -> 请求数，未调用init()时返回空Map
+     */
+    public static Map<String, Integer> getInFlightRequestCounts() {
+        OkHttpClient client = ImageLoaderConfig.getOkHttpClient();
+        if (client == null) {
+            return Collections.emptyMap();
+        }
+        return NetworkConfig.getInFlightCountsByHost(client);
     }
 
 }
@@ -3,9 +3,9 @@ package com.facebook.fresco.helper.blur;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
 import android.os.Build;
-import android.renderscript.RSRuntimeException;
 
 /**
  * 对Bitmap进行高斯模糊处理
@@ -14,51 +14,160 @@ import android.renderscript.RSRuntimeException;
  */
 public final class BitmapBlurHelper {
 
+    private static final BlurFallback sRenderScriptBlur = new BlurFallback(
+            new BlurFallback.Blurrer() {
+                @Override
+                public Bitmap blur(Context context, Bitmap bitmap, int radius) {
+                    return RSBlur.blur(context, bitmap, radius);
+                }
+            },
+            new BlurFallback.Blurrer() {
+                @Override
+                public Bitmap blur(Context context, Bitmap bitmap, int radius) {
+                    return fastBlur(bitmap, radius);
+                }
+            });
+
+    /**
+     * blur(Context, Bitmap)默认的模糊半径（相对于原图的像素）
+     */
+    public static final int DEFAULT_RADIUS = 25;
+
+    /**
+     * 降采样后模糊半径的下限，低于该值时模糊效果会出现明显的块状感
+     */
+    private static final int MIN_SAMPLED_RADIUS = 3;
+
+    /**
+     * 降采样后图片宽高的下限
+     */
+    private static final int MIN_SAMPLED_SIZE = 16;
+
+    private static final int MAX_SAMPLING = 16;
+
+    private static final BlurBitmapPool sBitmapPool = new BlurBitmapPool();
+
     /**
-     * 对Bitmap进行高斯模糊处理
+     * 对Bitmap进行高斯模糊处理，返回与原图尺寸相同的新Bitmap
      *
      * @param context Context
      * @param source  Bitmap
      * @return Bitmap
      */
     public static Bitmap blur(Context context, Bitmap source) {
-        int sampling = 1;
-        int radius = 25;
+        return blur(context, source, DEFAULT_RADIUS, source.getWidth(), source.getHeight(), true);
+    }
 
+    /**
+     * 对Bitmap进行高斯模糊处理：根据模糊半径和目标尺寸选择降采样倍数，在缩小后的图片上做模糊，
+     * 只有需要时才放大到目标尺寸。
+     *
+     * @param context      Context
+     * @param source       Bitmap，不会被修改
+     * @param radius       模糊半径（相对于原图的像素）
+     * @param targetWidth  最终显示的宽度
+     * @param targetHeight 最终显示的高度
+     * @param scaleBack    是否将结果放大到targetWidth * targetHeight。
+     *                     若结果用作View的背景等会自动拉伸的场景，传false可省去一次放大和一份内存
+     * @return 新的Bitmap，scaleBack为false时其尺寸为降采样后的尺寸
+     */
+    public static Bitmap blur(Context context, Bitmap source, int radius,
+                              int targetWidth, int targetHeight, boolean scaleBack) {
         int width = source.getWidth();
         int height = source.getHeight();
-        int scaledWidth = width / sampling;
-        int scaledHeight = height / sampling;
-        Bitmap blurredBitmap = Bitmap.createBitmap(scaledWidth, scaledHeight, Bitmap.Config.ARGB_8888);
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            targetWidth = width;
+            targetHeight = height;
+        }
+
+        int sampling = computeSampling(radius, width, height, targetWidth, targetHeight);
+        int scaledWidth = Math.max(1, width / sampling);
+        int scaledHeight = Math.max(1, height / sampling);
+        int scaledRadius = Math.max(1, radius / sampling);
+
+        // 只有在需要放大时，降采样的图片才是中间结果，可从复用池中获取
+        Bitmap blurredBitmap = scaleBack
+                ? sBitmapPool.acquire(scaledWidth, scaledHeight, Bitmap.Config.ARGB_8888)
+                : Bitmap.createBitmap(scaledWidth, scaledHeight, Bitmap.Config.ARGB_8888);
+        blurredBitmap.eraseColor(Color.TRANSPARENT);
 
         Canvas canvas = new Canvas(blurredBitmap);
-        canvas.scale(1.0F / (float) sampling, 1.0F / (float) sampling);
+        canvas.scale(scaledWidth / (float) width, scaledHeight / (float) height);
         Paint paint = new Paint();
         paint.setFlags(Paint.FILTER_BITMAP_FLAG);
         canvas.drawBitmap(source, 0.0F, 0.0F, paint);
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
-            try {
-                blurredBitmap = RSBlur.blur(context, blurredBitmap, radius);
-            } catch (RSRuntimeException var11) {
-                blurredBitmap = FastBlur.blur(blurredBitmap, radius, true);
-            }
-        } else {
-            blurredBitmap = FastBlur.blur(blurredBitmap, radius, true);
+        blurredBitmap = blur(context, blurredBitmap, scaledRadius);
+
+        if (!scaleBack) {
+            return blurredBitmap;
         }
 
-        Bitmap scaledBitmap = Bitmap.createScaledBitmap(blurredBitmap, source.getWidth(), source.getHeight(), true);
-        blurredBitmap.recycle();
+        Bitmap scaledBitmap = Bitmap.createScaledBitmap(blurredBitmap, targetWidth, targetHeight, true);
+        if (scaledBitmap != blurredBitmap) {
+            sBitmapPool.release(blurredBitmap);
+        }
         return scaledBitmap;
     }
 
+    /**
+     * 计算降采样倍数：
+     * 1、目标尺寸小于原图时，先按目标尺寸降采样，不影响显示效果
+     * 2、模糊后的图片只包含低频信息，在降采样后的模糊半径不小于MIN_SAMPLED_RADIUS的前提下继续成倍降采样
+     */
+    static int computeSampling(int radius, int width, int height, int targetWidth, int targetHeight) {
+        int sampling = Math.max(1, Math.min(width / targetWidth, height / targetHeight));
+        while (sampling * 2 <= MAX_SAMPLING
+                && radius / (sampling * 2) >= MIN_SAMPLED_RADIUS
+                && width / (sampling * 2) >= MIN_SAMPLED_SIZE
+                && height / (sampling * 2) >= MIN_SAMPLED_SIZE) {
+            sampling *= 2;
+        }
+        return Math.min(sampling, MAX_SAMPLING);
+    }
+
+    /**
+     * 对Bitmap做原地模糊处理，ARGB_8888的图片优先使用RenderScript，RenderScript不可用时自动降级为FastBlur
+     *
+     * @param context Context，为null时直接使用FastBlur
+     * @param bitmap  可修改的Bitmap
+     * @param radius  模糊半径，RenderScript最大支持25
+     * @return 模糊后的Bitmap
+     */
+    public static Bitmap blur(Context context, Bitmap bitmap, int radius) {
+        if (context != null
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2
+                && bitmap.getConfig() == Bitmap.Config.ARGB_8888) {
+            return sRenderScriptBlur.blur(context, bitmap, radius);
+        }
+        return fastBlur(bitmap, radius);
+    }
+
     /**
      * 做高斯模糊处理
      * @param source Bitmap
      * @param radius 值越大越模糊，取值范围1~100
      */
     public static void blur(Bitmap source, int radius) {
-        FastBlur.blur(source, radius, true);
+        fastBlur(source, radius);
+    }
+
+    /**
+     * 释放模糊处理缓存的临时缓冲区、中间Bitmap以及RenderScript资源，下次模糊时按需重新创建。
+     * 缓冲区复用池由所有线程共享，在主线程的onTrimMemory()中调用即可释放模糊线程用过的缓冲区
+     */
+    public static void releaseResources() {
+        StackBlur.releaseScratch();
+        sBitmapPool.clear();
+        RenderScriptRuntime.releaseInstance();
+    }
+
+    /**
+     * 使用FastBlur做模糊处理，大图自动切换为多核并行模式
+     */
+    private static Bitmap fastBlur(Bitmap source, int radius) {
+        boolean parallel = ParallelStackBlur.shouldParallelize(source.getWidth(), source.getHeight());
+        return FastBlur.blur(source, radius, true, parallel);
     }
 
 }
@@ -0,0 +1,81 @@
+package com.facebook.fresco.helper.blur;
+
+import android.graphics.Bitmap;
+
+import com.facebook.common.util.ByteConstants;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 模糊处理过程中中间Bitmap的复用池，按宽、高和Bitmap.Config分组，
+ * 池中Bitmap的总大小超过MAX_POOL_SIZE时，归还的Bitmap直接回收。
+ */
+final class BlurBitmapPool {
+
+    private static final int MAX_POOL_SIZE = 4 * ByteConstants.MB;
+
+    private final Map<String, ArrayDeque<Bitmap>> mBitmaps = new HashMap<>();
+
+    private int mSize;
+
+    /**
+     * 从池中取出一个指定规格的Bitmap，没有可复用的则新建。取出的Bitmap内容不确定，使用前需自行清空
+     */
+    synchronized Bitmap acquire(int width, int height, Bitmap.Config config) {
+        ArrayDeque<Bitmap> bitmaps = mBitmaps.get(key(width, height, config));
+        if (bitmaps != null) {
+            Bitmap bitmap;
+            while ((bitmap = bitmaps.poll()) != null) {
+                mSize -= bitmap.getByteCount();
+                if (!bitmap.isRecycled()) {
+                    return bitmap;
+                }
+            }
+        }
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * 归还不再使用的Bitmap
+     */
+    synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+
+        int byteCount = bitmap.getByteCount();
+        if (mSize + byteCount > MAX_POOL_SIZE) {
+            bitmap.recycle();
+            return;
+        }
+
+        String key = key(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        ArrayDeque<Bitmap> bitmaps = mBitmaps.get(key);
+        if (bitmaps == null) {
+            bitmaps = new ArrayDeque<>();
+            mBitmaps.put(key, bitmaps);
+        }
+        bitmaps.offer(bitmap);
+        mSize += byteCount;
+    }
+
+    /**
+     * 回收池中所有的Bitmap
+     */
+    synchronized void clear() {
+        for (ArrayDeque<Bitmap> bitmaps : mBitmaps.values()) {
+            for (Bitmap bitmap : bitmaps) {
+                bitmap.recycle();
+            }
+        }
+        mBitmaps.clear();
+        mSize = 0;
+    }
+
+    private static String key(int width, int height, Bitmap.Config config) {
+        return width + "x" + height + "@" + config;
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.facebook.fresco.helper.blur;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StackBlur使用的int[]缓冲区的共享复用池：
+ * 1、MAX_REUSABLE_SIZE以内的容量按2的幂分档，尺寸接近的图片复用同一个缓冲区
+ * 2、超过MAX_REUSABLE_SIZE的按实际大小分配，用完直接丢弃，不会长期占用内存
+ * 3、池中缓冲区的总大小超过MAX_POOL_SIZE时，归还的缓冲区直接丢弃
+ * <p>
+ * 取出的缓冲区由调用者独占，用完后需要归还。clear()可随时清空，在系统内存紧张时调用。
+ */
+final class BlurBufferPool {
+
+    /**
+     * 可复用的单个缓冲区的最大长度（int个数），2MB，约720x720像素
+     */
+    static final int MAX_REUSABLE_SIZE = 512 * 1024;
+
+    /**
+     * 池中缓冲区的总长度上限（int个数），8MB
+     */
+    static final int MAX_POOL_SIZE = 4 * MAX_REUSABLE_SIZE;
+
+    /**
+     * 容量的最小分档，避免小图频繁分配
+     */
+    private static final int MIN_BUCKET_SIZE = 1024;
+
+    private final List<int[]> mBuffers = new ArrayList<>();
+
+    private int mSize;
+
+    /**
+     * 取出一个长度不小于size的缓冲区，优先复用池中最小的合适缓冲区，内容不确定
+     */
+    int[] acquire(int size) {
+        synchronized (this) {
+            int best = -1;
+            for (int i = 0; i < mBuffers.size(); i++) {
+                int length = mBuffers.get(i).length;
+                if (length >= size && (best < 0 || length < mBuffers.get(best).length)) {
+                    best = i;
+                }
+            }
+            if (best >= 0) {
+                int[] buffer = mBuffers.remove(best);
+                mSize -= buffer.length;
+                return buffer;
+            }
+        }
+        return new int[bucket(size)];
+    }
+
+    /**
+     * 归还不再使用的缓冲区
+     */
+    synchronized void release(int[] buffer) {
+        if (buffer == null || buffer.length > MAX_REUSABLE_SIZE || mSize + buffer.length > MAX_POOL_SIZE) {
+            return;
+        }
+        mBuffers.add(buffer);
+        mSize += buffer.length;
+    }
+
+    /**
+     * 清空池中的缓冲区，已取出的缓冲区归还时仍可重新入池
+     */
+    synchronized void clear() {
+        mBuffers.clear();
+        mSize = 0;
+    }
+
+    /**
+     * 池中缓冲区的总长度（int个数）
+     */
+    synchronized int size() {
+        return mSize;
+    }
+
+    /**
+     * MAX_REUSABLE_SIZE以内向上取整到2的幂，超过的按实际大小
+     */
+    static int bucket(int size) {
+        if (size <= MIN_BUCKET_SIZE) {
+            return MIN_BUCKET_SIZE;
+        }
+        if (size > MAX_REUSABLE_SIZE) {
+            return size;
+        }
+
+        int highest = Integer.highestOneBit(size);
+        return highest == size ? size : highest << 1;
+    }
+
+}
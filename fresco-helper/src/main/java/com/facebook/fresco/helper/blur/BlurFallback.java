@@ -0,0 +1,55 @@
+package com.facebook.fresco.helper.blur;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+/**
+ * 带降级的模糊处理：优先使用主模糊方式（RenderScript），执行失败时改用备用方式（FastBlur）。
+ * 主模糊方式连续失败MAX_PRIMARY_FAILURES次后不再尝试，避免每次都白白付出失败的开销。
+ * <p>
+ * 不直接依赖RenderScript，可在JVM上用替身验证降级逻辑。
+ */
+final class BlurFallback {
+
+    static final int MAX_PRIMARY_FAILURES = 3;
+
+    interface Blurrer {
+
+        Bitmap blur(Context context, Bitmap bitmap, int radius);
+
+    }
+
+    private final Blurrer mPrimary;
+
+    private final Blurrer mFallback;
+
+    private int mPrimaryFailures;
+
+    BlurFallback(Blurrer primary, Blurrer fallback) {
+        mPrimary = primary;
+        mFallback = fallback;
+    }
+
+    Bitmap blur(Context context, Bitmap bitmap, int radius) {
+        if (!isPrimaryDisabled()) {
+            try {
+                Bitmap result = mPrimary.blur(context, bitmap, radius);
+                onPrimaryResult(true);
+                return result;
+            } catch (RuntimeException e) {
+                // RSRuntimeException等，改用备用方式
+                onPrimaryResult(false);
+            }
+        }
+        return mFallback.blur(context, bitmap, radius);
+    }
+
+    synchronized boolean isPrimaryDisabled() {
+        return mPrimaryFailures >= MAX_PRIMARY_FAILURES;
+    }
+
+    private synchronized void onPrimaryResult(boolean success) {
+        mPrimaryFailures = success ? 0 : mPrimaryFailures + 1;
+    }
+
+}
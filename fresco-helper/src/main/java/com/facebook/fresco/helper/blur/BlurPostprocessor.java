@@ -0,0 +1,133 @@
+package com.facebook.fresco.helper.blur;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import com.facebook.cache.common.CacheKey;
+import com.facebook.cache.common.SimpleCacheKey;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.imagepipeline.bitmaps.PlatformBitmapFactory;
+import com.facebook.imagepipeline.request.BasePostprocessor;
+
+import java.util.Locale;
+
+/**
+ * 高斯模糊后处理器
+ * <p>
+ * 模糊半径、降采样倍数和模糊方式都编码在getPostprocessorCacheKey()中，
+ * 因此Fresco会把模糊后的Bitmap放入已解码图片的内存缓存，同一张图片再次显示时不需要重新模糊。
+ */
+public class BlurPostprocessor extends BasePostprocessor {
+
+    public static final int DEFAULT_RADIUS = 35;
+
+    /**
+     * 模糊方式
+     */
+    public enum Engine {
+
+        /**
+         * FastBlur（StackBlur），大图自动使用多核并行
+         */
+        STACK("stack"),
+
+        /**
+         * RenderScript，模糊半径最大为25，不可用或图片不是ARGB_8888时降级为STACK
+         */
+        RENDER_SCRIPT("rs");
+
+        private final String mKey;
+
+        Engine(String key) {
+            mKey = key;
+        }
+    }
+
+    private final Context mContext;
+
+    private final int mRadius;
+
+    private final int mSampling;
+
+    private final Engine mEngine;
+
+    private CacheKey mCacheKey;
+
+    public BlurPostprocessor() {
+        this(DEFAULT_RADIUS, 1);
+    }
+
+    /**
+     * @param radius   模糊半径，取值范围1~100
+     * @param sampling 降采样倍数，大于1时先将图片缩小再模糊，结果Bitmap的尺寸为原图的1/sampling
+     */
+    public BlurPostprocessor(int radius, int sampling) {
+        this(null, radius, sampling, Engine.STACK);
+    }
+
+    /**
+     * @param context  Context，使用RENDER_SCRIPT时必须提供
+     * @param radius   模糊半径，取值范围1~100，超出时取最近的边界值
+     * @param sampling 降采样倍数，大于1时先将图片缩小再模糊，结果Bitmap的尺寸为原图的1/sampling
+     * @param engine   模糊方式
+     */
+    public BlurPostprocessor(Context context, int radius, int sampling, Engine engine) {
+        mContext = context == null ? null : context.getApplicationContext();
+        mRadius = Math.max(1, Math.min(radius, StackBlur.MAX_RADIUS));
+        mSampling = Math.max(1, sampling);
+        mEngine = mContext == null ? Engine.STACK : engine;
+    }
+
+    public int getRadius() {
+        return mRadius;
+    }
+
+    public int getSampling() {
+        return mSampling;
+    }
+
+    public Engine getEngine() {
+        return mEngine;
+    }
+
+    @Override
+    public String getName() {
+        return "BlurPostprocessor";
+    }
+
+    @Override
+    public CloseableReference<Bitmap> process(Bitmap sourceBitmap, PlatformBitmapFactory bitmapFactory) {
+        if (mSampling <= 1) {
+            return super.process(sourceBitmap, bitmapFactory);
+        }
+
+        int width = Math.max(1, sourceBitmap.getWidth() / mSampling);
+        int height = Math.max(1, sourceBitmap.getHeight() / mSampling);
+        CloseableReference<Bitmap> bitmapRef = bitmapFactory.createScaledBitmap(sourceBitmap, width, height, true);
+        try {
+            process(bitmapRef.get());
+            return CloseableReference.cloneOrNull(bitmapRef);
+        } finally {
+            CloseableReference.closeSafely(bitmapRef);
+        }
+    }
+
+    @Override
+    public void process(Bitmap bitmap) {
+        if (mEngine == Engine.RENDER_SCRIPT) {
+            BitmapBlurHelper.blur(mContext, bitmap, mRadius);
+        } else {
+            BitmapBlurHelper.blur(bitmap, mRadius);
+        }
+    }
+
+    @Override
+    public synchronized CacheKey getPostprocessorCacheKey() {
+        if (mCacheKey == null) {
+            mCacheKey = new SimpleCacheKey(String.format(Locale.US, "blur:radius=%d:sampling=%d:engine=%s",
+                    mRadius, mSampling, mEngine.mKey));
+        }
+        return mCacheKey;
+    }
+
+}
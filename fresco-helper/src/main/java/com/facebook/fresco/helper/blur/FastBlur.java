@@ -21,6 +21,13 @@ import android.graphics.Bitmap;
 public class FastBlur {
 
   public static Bitmap blur(Bitmap sentBitmap, int radius, boolean canReuseInBitmap) {
+    return blur(sentBitmap, radius, canReuseInBitmap, false);
+  }
+
+  /**
+   * @param parallel 是否将模糊计算分发到多个CPU核心上并行执行，见ParallelStackBlur
+   */
+  public static Bitmap blur(Bitmap sentBitmap, int radius, boolean canReuseInBitmap, boolean parallel) {
 
     // Stack Blur v1.0 from
     // http://www.quasimondo.com/StackBlurForCanvas/StackBlurDemo.html
@@ -60,197 +67,26 @@ public class FastBlur {
     if (radius < 1) {
       return (null);
     }
+    // 超过上限的半径按上限处理，避免缓存过大的dv查找表
+    radius = Math.min(radius, StackBlur.MAX_RADIUS);
 
     int w = bitmap.getWidth();
     int h = bitmap.getHeight();
 
-    int[] pix = new int[w * h];
-    bitmap.getPixels(pix, 0, w, 0, 0, w, h);
-
-    int wm = w - 1;
-    int hm = h - 1;
-    int wh = w * h;
-    int div = radius + radius + 1;
-
-    int r[] = new int[wh];
-    int g[] = new int[wh];
-    int b[] = new int[wh];
-    int rsum, gsum, bsum, x, y, i, p, yp, yi, yw;
-    int vmin[] = new int[Math.max(w, h)];
-
-    int divsum = (div + 1) >> 1;
-    divsum *= divsum;
-    int dv[] = new int[256 * divsum];
-    for (i = 0; i < 256 * divsum; i++) {
-      dv[i] = (i / divsum);
-    }
-
-    yw = yi = 0;
-
-    int[][] stack = new int[div][3];
-    int stackpointer;
-    int stackstart;
-    int[] sir;
-    int rbs;
-    int r1 = radius + 1;
-    int routsum, goutsum, boutsum;
-    int rinsum, ginsum, binsum;
-
-    for (y = 0; y < h; y++) {
-      rinsum = ginsum = binsum = routsum = goutsum = boutsum = rsum = gsum = bsum = 0;
-      for (i = -radius; i <= radius; i++) {
-        p = pix[yi + Math.min(wm, Math.max(i, 0))];
-        sir = stack[i + radius];
-        sir[0] = (p & 0xff0000) >> 16;
-        sir[1] = (p & 0x00ff00) >> 8;
-        sir[2] = (p & 0x0000ff);
-        rbs = r1 - Math.abs(i);
-        rsum += sir[0] * rbs;
-        gsum += sir[1] * rbs;
-        bsum += sir[2] * rbs;
-        if (i > 0) {
-          rinsum += sir[0];
-          ginsum += sir[1];
-          binsum += sir[2];
-        } else {
-          routsum += sir[0];
-          goutsum += sir[1];
-          boutsum += sir[2];
-        }
+    // 像素缓冲区及模糊过程中的临时数组从StackBlur的复用池中取出，用完归还，避免每次模糊都分配内存
+    int[] pix = StackBlur.obtainPixels(w * h);
+    try {
+      bitmap.getPixels(pix, 0, w, 0, 0, w, h);
+      if (parallel) {
+        ParallelStackBlur.blur(pix, w, h, radius);
+      } else {
+        StackBlur.blur(pix, w, h, radius);
       }
-      stackpointer = radius;
-
-      for (x = 0; x < w; x++) {
-
-        r[yi] = dv[rsum];
-        g[yi] = dv[gsum];
-        b[yi] = dv[bsum];
 
-        rsum -= routsum;
-        gsum -= goutsum;
-        bsum -= boutsum;
-
-        stackstart = stackpointer - radius + div;
-        sir = stack[stackstart % div];
-
-        routsum -= sir[0];
-        goutsum -= sir[1];
-        boutsum -= sir[2];
-
-        if (y == 0) {
-          vmin[x] = Math.min(x + radius + 1, wm);
-        }
-        p = pix[yw + vmin[x]];
-
-        sir[0] = (p & 0xff0000) >> 16;
-        sir[1] = (p & 0x00ff00) >> 8;
-        sir[2] = (p & 0x0000ff);
-
-        rinsum += sir[0];
-        ginsum += sir[1];
-        binsum += sir[2];
-
-        rsum += rinsum;
-        gsum += ginsum;
-        bsum += binsum;
-
-        stackpointer = (stackpointer + 1) % div;
-        sir = stack[(stackpointer) % div];
-
-        routsum += sir[0];
-        goutsum += sir[1];
-        boutsum += sir[2];
-
-        rinsum -= sir[0];
-        ginsum -= sir[1];
-        binsum -= sir[2];
-
-        yi++;
-      }
-      yw += w;
+      bitmap.setPixels(pix, 0, w, 0, 0, w, h);
+    } finally {
+      StackBlur.releasePixels(pix);
     }
-    for (x = 0; x < w; x++) {
-      rinsum = ginsum = binsum = routsum = goutsum = boutsum = rsum = gsum = bsum = 0;
-      yp = -radius * w;
-      for (i = -radius; i <= radius; i++) {
-        yi = Math.max(0, yp) + x;
-
-        sir = stack[i + radius];
-
-        sir[0] = r[yi];
-        sir[1] = g[yi];
-        sir[2] = b[yi];
-
-        rbs = r1 - Math.abs(i);
-
-        rsum += r[yi] * rbs;
-        gsum += g[yi] * rbs;
-        bsum += b[yi] * rbs;
-
-        if (i > 0) {
-          rinsum += sir[0];
-          ginsum += sir[1];
-          binsum += sir[2];
-        } else {
-          routsum += sir[0];
-          goutsum += sir[1];
-          boutsum += sir[2];
-        }
-
-        if (i < hm) {
-          yp += w;
-        }
-      }
-      yi = x;
-      stackpointer = radius;
-      for (y = 0; y < h; y++) {
-        // Preserve alpha channel: ( 0xff000000 & pix[yi] )
-        pix[yi] = (0xff000000 & pix[yi]) | (dv[rsum] << 16) | (dv[gsum] << 8) | dv[bsum];
-
-        rsum -= routsum;
-        gsum -= goutsum;
-        bsum -= boutsum;
-
-        stackstart = stackpointer - radius + div;
-        sir = stack[stackstart % div];
-
-        routsum -= sir[0];
-        goutsum -= sir[1];
-        boutsum -= sir[2];
-
-        if (x == 0) {
-          vmin[y] = Math.min(y + r1, hm) * w;
-        }
-        p = x + vmin[y];
-
-        sir[0] = r[p];
-        sir[1] = g[p];
-        sir[2] = b[p];
-
-        rinsum += sir[0];
-        ginsum += sir[1];
-        binsum += sir[2];
-
-        rsum += rinsum;
-        gsum += ginsum;
-        bsum += binsum;
-
-        stackpointer = (stackpointer + 1) % div;
-        sir = stack[stackpointer];
-
-        routsum += sir[0];
-        goutsum += sir[1];
-        boutsum += sir[2];
-
-        rinsum -= sir[0];
-        ginsum -= sir[1];
-        binsum -= sir[2];
-
-        yi += w;
-      }
-    }
-
-    bitmap.setPixels(pix, 0, w, 0, 0, w, h);
 
     return (bitmap);
   }
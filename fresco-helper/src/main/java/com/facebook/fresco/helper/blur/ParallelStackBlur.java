@@ -0,0 +1,155 @@
+package com.facebook.fresco.helper.blur;
+
+import com.facebook.fresco.helper.executor.ImageExecutors;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 多核并行的StackBlur：将水平方向的行和垂直方向的列分别切分成若干条带，分发到ImageExecutors.forCpu()中执行，
+ * 调用线程也会参与处理条带。输出与StackBlur.blur()逐位一致。
+ * <p>
+ * 小于PARALLEL_THRESHOLD像素的图片直接走串行模糊，避免线程调度的开销超过收益。
+ */
+public final class ParallelStackBlur {
+
+    /**
+     * 触发并行模糊的最小像素数
+     */
+    public static final int PARALLEL_THRESHOLD = 512 * 512;
+
+    /**
+     * 每个条带最少包含的行（列）数
+     */
+    private static final int MIN_STRIP_SIZE = 32;
+
+    private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+
+    private ParallelStackBlur() {
+
+    }
+
+    /**
+     * 指定尺寸的图片是否值得并行模糊
+     *
+     * @param w 宽
+     * @param h 高
+     * @return boolean
+     */
+    public static boolean shouldParallelize(int w, int h) {
+        return CPU_COUNT > 1 && (long) w * h >= PARALLEL_THRESHOLD;
+    }
+
+    /**
+     * 对像素数组做原地模糊处理，保留alpha通道；图片较小时退化为串行模糊
+     *
+     * @param pix    像素数组，按行存储，长度不小于w * h
+     * @param w      宽
+     * @param h      高
+     * @param radius 模糊半径，取值范围1~StackBlur.MAX_RADIUS
+     */
+    public static void blur(final int[] pix, final int w, final int h, final int radius) {
+        if (!shouldParallelize(w, h)) {
+            StackBlur.blur(pix, w, h, radius);
+            return;
+        }
+
+        StackBlur.checkRadius(radius);
+        final int[][] channels = StackBlur.obtainChannels(w * h);
+        final int[] r = channels[0];
+        final int[] g = channels[1];
+        final int[] b = channels[2];
+        final int[] dv = StackBlur.divTable(radius);
+
+        try {
+            forEachStrip(h, new StripTask() {
+                @Override
+                public void run(int from, int to) {
+                    StackBlur.blurRows(pix, r, g, b, w, radius, dv, from, to);
+                }
+            });
+
+            forEachStrip(w, new StripTask() {
+                @Override
+                public void run(int from, int to) {
+                    StackBlur.blurColumns(pix, r, g, b, w, h, radius, dv, from, to);
+                }
+            });
+        } finally {
+            StackBlur.releaseChannels(channels);
+        }
+    }
+
+    /**
+     * 将[0, count)切分成若干条带并行执行，全部条带执行完毕后才返回。
+     * 调用线程与线程池中的线程共同领取条带，即使线程池繁忙也不会死等。
+     */
+    private static void forEachStrip(int count, final StripTask task) {
+        final int strips = Math.max(1, Math.min(CPU_COUNT, count / MIN_STRIP_SIZE));
+        final int stripSize = (count + strips - 1) / strips;
+        final int total = count;
+        final AtomicInteger nextStrip = new AtomicInteger();
+        final CountDownLatch finished = new CountDownLatch(strips);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                int strip;
+                while ((strip = nextStrip.getAndIncrement()) < strips) {
+                    try {
+                        int from = strip * stripSize;
+                        task.run(from, Math.min(total, from + stripSize));
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            }
+        };
+
+        Executor executor = ImageExecutors.forCpu();
+        for (int i = 1; i < strips; i++) {
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                // 线程池已满时由调用线程处理剩余条带
+                break;
+            }
+        }
+        worker.run();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                finished.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    private interface StripTask {
+
+        void run(int from, int to);
+
+    }
+
+}
@@ -4,11 +4,7 @@ import android.annotation.TargetApi;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.os.Build;
-import android.renderscript.Allocation;
-import android.renderscript.Element;
 import android.renderscript.RSRuntimeException;
-import android.renderscript.RenderScript;
-import android.renderscript.ScriptIntrinsicBlur;
 
 /**
  * Copyright (C) 2015 Wasabeef
@@ -28,27 +24,11 @@ import android.renderscript.ScriptIntrinsicBlur;
 
 public class RSBlur {
 
+  /**
+   * 使用常驻的RenderScriptRuntime做模糊处理，不再每次创建和销毁RenderScript上下文
+   */
   @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
   public static Bitmap blur(Context context, Bitmap bitmap, int radius) throws RSRuntimeException {
-    RenderScript rs = null;
-    try {
-      rs = RenderScript.create(context);
-      Allocation input =
-          Allocation.createFromBitmap(rs, bitmap, Allocation.MipmapControl.MIPMAP_NONE,
-              Allocation.USAGE_SCRIPT);
-      Allocation output = Allocation.createTyped(rs, input.getType());
-      ScriptIntrinsicBlur blur = ScriptIntrinsicBlur.create(rs, Element.U8_4(rs));
-
-      blur.setInput(input);
-      blur.setRadius(radius);
-      blur.forEach(output);
-      output.copyTo(bitmap);
-    } finally {
-      if (rs != null) {
-        rs.destroy();
-      }
-    }
-
-    return bitmap;
+    return RenderScriptRuntime.getInstance(context).blur(bitmap, radius);
   }
 }
@@ -0,0 +1,174 @@
+package com.facebook.fresco.helper.blur;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.renderscript.Allocation;
+import android.renderscript.Element;
+import android.renderscript.RSRuntimeException;
+import android.renderscript.RenderScript;
+import android.renderscript.ScriptIntrinsicBlur;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 常驻的RenderScript运行时：
+ * 1、RenderScript上下文和ScriptIntrinsicBlur只创建一次，后续模糊直接复用
+ * 2、输入/输出Allocation按图片的宽、高和Bitmap.Config缓存，尺寸相同的图片不再重复创建
+ * 3、收到系统内存回收通知时释放全部资源，下次使用时再重新创建
+ * <p>
+ * 所有方法均对实例加锁，可在多个线程中安全调用。
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+public final class RenderScriptRuntime {
+
+    /**
+     * 最多缓存的Allocation组数（每组对应一种图片尺寸）
+     */
+    private static final int MAX_CACHED_ALLOCATIONS = 3;
+
+    /**
+     * ScriptIntrinsicBlur支持的最大模糊半径
+     */
+    private static final int MAX_RADIUS = 25;
+
+    private static volatile RenderScriptRuntime sInstance;
+
+    private final Context mContext;
+
+    private RenderScript mRenderScript;
+
+    private ScriptIntrinsicBlur mBlurScript;
+
+    private final Map<String, Allocation[]> mAllocations = new LinkedHashMap<>(MAX_CACHED_ALLOCATIONS, 0.75f, true);
+
+    private RenderScriptRuntime(Context context) {
+        mContext = context;
+    }
+
+    public static RenderScriptRuntime getInstance(Context context) {
+        if (sInstance == null) {
+            synchronized (RenderScriptRuntime.class) {
+                if (sInstance == null) {
+                    final Context appContext = context.getApplicationContext();
+                    final RenderScriptRuntime runtime = new RenderScriptRuntime(appContext);
+                    appContext.registerComponentCallbacks(new ComponentCallbacks2() {
+                        @Override
+                        public void onTrimMemory(int level) {
+                            if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                                runtime.release();
+                            }
+                        }
+
+                        @Override
+                        public void onConfigurationChanged(Configuration newConfig) {
+
+                        }
+
+                        @Override
+                        public void onLowMemory() {
+                            runtime.release();
+                        }
+                    });
+                    sInstance = runtime;
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /**
+     * 对Bitmap做原地模糊处理，Bitmap必须是可修改的ARGB_8888图片
+     *
+     * @param bitmap Bitmap
+     * @param radius 模糊半径，超过25时按25处理
+     * @return 模糊后的bitmap（即传入的bitmap）
+     * @throws RSRuntimeException RenderScript不可用或执行失败
+     */
+    public synchronized Bitmap blur(Bitmap bitmap, int radius) throws RSRuntimeException {
+        try {
+            if (mRenderScript == null) {
+                mRenderScript = RenderScript.create(mContext);
+                mBlurScript = ScriptIntrinsicBlur.create(mRenderScript, Element.U8_4(mRenderScript));
+            }
+
+            Allocation[] allocations = obtainAllocations(bitmap);
+            Allocation input = allocations[0];
+            Allocation output = allocations[1];
+
+            mBlurScript.setInput(input);
+            mBlurScript.setRadius(Math.max(1, Math.min(MAX_RADIUS, radius)));
+            mBlurScript.forEach(output);
+            output.copyTo(bitmap);
+            return bitmap;
+        } catch (RSRuntimeException e) {
+            // 出错后丢弃当前的上下文，避免后续复用处于异常状态的资源
+            release();
+            throw e;
+        }
+    }
+
+    private Allocation[] obtainAllocations(Bitmap bitmap) {
+        String key = bitmap.getWidth() + "x" + bitmap.getHeight() + "@" + bitmap.getConfig();
+        Allocation[] allocations = mAllocations.get(key);
+        if (allocations != null) {
+            allocations[0].copyFrom(bitmap);
+            return allocations;
+        }
+
+        Allocation input = Allocation.createFromBitmap(mRenderScript, bitmap,
+                Allocation.MipmapControl.MIPMAP_NONE, Allocation.USAGE_SCRIPT);
+        Allocation output = Allocation.createTyped(mRenderScript, input.getType());
+        allocations = new Allocation[]{input, output};
+        mAllocations.put(key, allocations);
+
+        if (mAllocations.size() > MAX_CACHED_ALLOCATIONS) {
+            Iterator<Allocation[]> iterator = mAllocations.values().iterator();
+            destroy(iterator.next());
+            iterator.remove();
+        }
+        return allocations;
+    }
+
+    /**
+     * 已创建实例时释放其资源，未创建时什么也不做
+     */
+    public static void releaseInstance() {
+        RenderScriptRuntime runtime = sInstance;
+        if (runtime != null) {
+            runtime.release();
+        }
+    }
+
+    /**
+     * 释放RenderScript上下文、脚本以及缓存的全部Allocation
+     */
+    public synchronized void release() {
+        for (Allocation[] allocations : mAllocations.values()) {
+            destroy(allocations);
+        }
+        mAllocations.clear();
+
+        if (mBlurScript != null) {
+            mBlurScript.destroy();
+            mBlurScript = null;
+        }
+
+        if (mRenderScript != null) {
+            mRenderScript.destroy();
+            mRenderScript = null;
+        }
+    }
+
+    private static void destroy(Allocation[] allocations) {
+        for (Allocation allocation : allocations) {
+            allocation.destroy();
+        }
+    }
+
+}
@@ -0,0 +1,336 @@
+package com.facebook.fresco.helper.blur;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 基于像素数组的StackBlur实现，与FastBlur的算法逐位一致，但不在每次调用时分配临时数组：
+ * 1、pix、r、g、b缓冲区从有总大小上限的BlurBufferPool中取出，用完归还，大图的缓冲区不复用
+ * 2、每个线程持有一份很小的stack缓冲区
+ * 3、按模糊半径缓存dv查找表，同一半径的多次模糊共用一张表
+ * <p>
+ * 该类不依赖Android API，可直接在JVM上做单元测试。
+ * <p>
+ * Stack Blur Algorithm by Mario Klingemann <mario@quasimondo.com>
+ */
+public final class StackBlur {
+
+    /**
+     * 模糊半径的上限，dv查找表的大小为256 * (radius + 1)^2，半径100时约10MB
+     */
+    public static final int MAX_RADIUS = 100;
+
+    /**
+     * 最多缓存的dv查找表的数量（每个不同的模糊半径对应一张表）
+     */
+    private static final int MAX_CACHED_DIV_TABLES = 4;
+
+    private static final Map<Integer, int[]> sDivTables = new LinkedHashMap<Integer, int[]>(MAX_CACHED_DIV_TABLES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+            return size() > MAX_CACHED_DIV_TABLES;
+        }
+    };
+
+    private static final BlurBufferPool sBufferPool = new BlurBufferPool();
+
+    /**
+     * 长度为(2 * radius + 1) * 3，半径最大100时约2.4KB
+     */
+    private static final ThreadLocal<int[]> sStack = new ThreadLocal<>();
+
+    private StackBlur() {
+
+    }
+
+    /**
+     * 清空缓冲区复用池和dv查找表，任意线程调用都立即生效。在系统内存紧张时调用
+     */
+    public static void releaseScratch() {
+        sBufferPool.clear();
+        synchronized (sDivTables) {
+            sDivTables.clear();
+        }
+    }
+
+    /**
+     * 取出一个可复用的像素缓冲区，长度不小于size，用于Bitmap.getPixels()/setPixels()，用完需调用releasePixels()归还
+     *
+     * @param size 像素数（宽 * 高）
+     * @return int[]
+     */
+    public static int[] obtainPixels(int size) {
+        return sBufferPool.acquire(size);
+    }
+
+    /**
+     * 归还obtainPixels()取出的缓冲区，归还后不能再使用
+     */
+    public static void releasePixels(int[] pix) {
+        sBufferPool.release(pix);
+    }
+
+    /**
+     * 取出r、g、b通道缓冲区，长度均不小于size，用完需调用releaseChannels()归还
+     *
+     * @param size 像素数（宽 * 高）
+     * @return {r, g, b}
+     */
+    static int[][] obtainChannels(int size) {
+        return new int[][]{sBufferPool.acquire(size), sBufferPool.acquire(size), sBufferPool.acquire(size)};
+    }
+
+    static void releaseChannels(int[][] channels) {
+        for (int[] channel : channels) {
+            sBufferPool.release(channel);
+        }
+    }
+
+    /**
+     * 对像素数组做原地模糊处理，保留alpha通道
+     *
+     * @param pix    像素数组，按行存储，长度不小于w * h
+     * @param w      宽
+     * @param h      高
+     * @param radius 模糊半径，取值范围1~MAX_RADIUS
+     */
+    public static void blur(int[] pix, int w, int h, int radius) {
+        checkRadius(radius);
+
+        final int[][] channels = obtainChannels(w * h);
+        try {
+            final int[] dv = divTable(radius);
+            blurRows(pix, channels[0], channels[1], channels[2], w, radius, dv, 0, h);
+            blurColumns(pix, channels[0], channels[1], channels[2], w, h, radius, dv, 0, w);
+        } finally {
+            releaseChannels(channels);
+        }
+    }
+
+    static void checkRadius(int radius) {
+        if (radius < 1 || radius > MAX_RADIUS) {
+            throw new IllegalArgumentException("radius must be in [1, " + MAX_RADIUS + "], radius = " + radius);
+        }
+    }
+
+    /**
+     * 水平方向的模糊：处理[fromRow, toRow)范围内的行，结果写入r、g、b通道。各行之间相互独立，可分段并行执行
+     */
+    static void blurRows(int[] pix, int[] r, int[] g, int[] b, int w, int radius, int[] dv, int fromRow, int toRow) {
+        final int wm = w - 1;
+        final int div = radius + radius + 1;
+        final int r1 = radius + 1;
+        final int[] stack = obtainStack(div);
+
+        int rsum, gsum, bsum, x, y, i, p, yi, yw;
+        int stackpointer;
+        int sir;
+        int rbs;
+        int routsum, goutsum, boutsum;
+        int rinsum, ginsum, binsum;
+
+        yw = yi = fromRow * w;
+
+        for (y = fromRow; y < toRow; y++) {
+            rinsum = ginsum = binsum = routsum = goutsum = boutsum = rsum = gsum = bsum = 0;
+            for (i = -radius; i <= radius; i++) {
+                p = pix[yi + Math.min(wm, Math.max(i, 0))];
+                sir = (i + radius) * 3;
+                stack[sir] = (p & 0xff0000) >> 16;
+                stack[sir + 1] = (p & 0x00ff00) >> 8;
+                stack[sir + 2] = (p & 0x0000ff);
+                rbs = r1 - Math.abs(i);
+                rsum += stack[sir] * rbs;
+                gsum += stack[sir + 1] * rbs;
+                bsum += stack[sir + 2] * rbs;
+                if (i > 0) {
+                    rinsum += stack[sir];
+                    ginsum += stack[sir + 1];
+                    binsum += stack[sir + 2];
+                } else {
+                    routsum += stack[sir];
+                    goutsum += stack[sir + 1];
+                    boutsum += stack[sir + 2];
+                }
+            }
+            stackpointer = radius;
+
+            for (x = 0; x < w; x++) {
+                r[yi] = dv[rsum];
+                g[yi] = dv[gsum];
+                b[yi] = dv[bsum];
+
+                rsum -= routsum;
+                gsum -= goutsum;
+                bsum -= boutsum;
+
+                sir = ((stackpointer - radius + div) % div) * 3;
+
+                routsum -= stack[sir];
+                goutsum -= stack[sir + 1];
+                boutsum -= stack[sir + 2];
+
+                p = pix[yw + Math.min(x + r1, wm)];
+
+                stack[sir] = (p & 0xff0000) >> 16;
+                stack[sir + 1] = (p & 0x00ff00) >> 8;
+                stack[sir + 2] = (p & 0x0000ff);
+
+                rinsum += stack[sir];
+                ginsum += stack[sir + 1];
+                binsum += stack[sir + 2];
+
+                rsum += rinsum;
+                gsum += ginsum;
+                bsum += binsum;
+
+                stackpointer = (stackpointer + 1) % div;
+                sir = stackpointer * 3;
+
+                routsum += stack[sir];
+                goutsum += stack[sir + 1];
+                boutsum += stack[sir + 2];
+
+                rinsum -= stack[sir];
+                ginsum -= stack[sir + 1];
+                binsum -= stack[sir + 2];
+
+                yi++;
+            }
+            yw += w;
+        }
+    }
+
+    /**
+     * 垂直方向的模糊：处理[fromColumn, toColumn)范围内的列，读取r、g、b通道，结果写回pix。各列之间相互独立，可分段并行执行
+     */
+    static void blurColumns(int[] pix, int[] r, int[] g, int[] b, int w, int h, int radius, int[] dv, int fromColumn, int toColumn) {
+        final int hm = h - 1;
+        final int div = radius + radius + 1;
+        final int r1 = radius + 1;
+        final int[] stack = obtainStack(div);
+
+        int rsum, gsum, bsum, x, y, i, p, yp, yi;
+        int stackpointer;
+        int sir;
+        int rbs;
+        int routsum, goutsum, boutsum;
+        int rinsum, ginsum, binsum;
+
+        for (x = fromColumn; x < toColumn; x++) {
+            rinsum = ginsum = binsum = routsum = goutsum = boutsum = rsum = gsum = bsum = 0;
+            yp = -radius * w;
+            for (i = -radius; i <= radius; i++) {
+                yi = Math.max(0, yp) + x;
+
+                sir = (i + radius) * 3;
+
+                stack[sir] = r[yi];
+                stack[sir + 1] = g[yi];
+                stack[sir + 2] = b[yi];
+
+                rbs = r1 - Math.abs(i);
+
+                rsum += r[yi] * rbs;
+                gsum += g[yi] * rbs;
+                bsum += b[yi] * rbs;
+
+                if (i > 0) {
+                    rinsum += stack[sir];
+                    ginsum += stack[sir + 1];
+                    binsum += stack[sir + 2];
+                } else {
+                    routsum += stack[sir];
+                    goutsum += stack[sir + 1];
+                    boutsum += stack[sir + 2];
+                }
+
+                if (i < hm) {
+                    yp += w;
+                }
+            }
+            yi = x;
+            stackpointer = radius;
+            for (y = 0; y < h; y++) {
+                // Preserve alpha channel: ( 0xff000000 & pix[yi] )
+                pix[yi] = (0xff000000 & pix[yi]) | (dv[rsum] << 16) | (dv[gsum] << 8) | dv[bsum];
+
+                rsum -= routsum;
+                gsum -= goutsum;
+                bsum -= boutsum;
+
+                sir = ((stackpointer - radius + div) % div) * 3;
+
+                routsum -= stack[sir];
+                goutsum -= stack[sir + 1];
+                boutsum -= stack[sir + 2];
+
+                p = x + Math.min(y + r1, hm) * w;
+
+                stack[sir] = r[p];
+                stack[sir + 1] = g[p];
+                stack[sir + 2] = b[p];
+
+                rinsum += stack[sir];
+                ginsum += stack[sir + 1];
+                binsum += stack[sir + 2];
+
+                rsum += rinsum;
+                gsum += ginsum;
+                bsum += binsum;
+
+                stackpointer = (stackpointer + 1) % div;
+                sir = stackpointer * 3;
+
+                routsum += stack[sir];
+                goutsum += stack[sir + 1];
+                boutsum += stack[sir + 2];
+
+                rinsum -= stack[sir];
+                ginsum -= stack[sir + 1];
+                binsum -= stack[sir + 2];
+
+                yi += w;
+            }
+        }
+    }
+
+    /**
+     * 获取指定半径的dv查找表：dv[i] = i / divsum
+     */
+    static int[] divTable(int radius) {
+        synchronized (sDivTables) {
+            int[] dv = sDivTables.get(radius);
+            if (dv == null) {
+                int divsum = (radius + radius + 2) >> 1;
+                divsum *= divsum;
+                dv = new int[256 * divsum];
+                for (int i = 0; i < dv.length; i++) {
+                    dv[i] = (i / divsum);
+                }
+                sDivTables.put(radius, dv);
+            }
+            return dv;
+        }
+    }
+
+    /**
+     * 当前线程的stack缓冲区，长度不小于div * 3
+     */
+    private static int[] obtainStack(int div) {
+        int[] stack = sStack.get();
+        if (stack == null || stack.length < div * 3) {
+            stack = new int[div * 3];
+            sStack.set(stack);
+        }
+        return stack;
+    }
+
+    /**
+     * 复用池中缓冲区的总长度（int个数）
+     */
+    static int getPooledSize() {
+        return sBufferPool.size();
+    }
+
+}
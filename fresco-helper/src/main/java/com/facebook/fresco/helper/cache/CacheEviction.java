@@ -0,0 +1,125 @@
+package com.facebook.fresco.helper.cache;
+
+import android.net.Uri;
+
+import com.facebook.fresco.helper.Phoenix;
+import com.facebook.fresco.helper.executor.ImageExecutors;
+import com.facebook.imagepipeline.core.ImagePipeline;
+
+import java.util.List;
+
+/**
+ * 按标签、URL前缀或条件批量删除图片的内存缓存和两个磁盘缓存，例如用户更换头像后删除该用户的所有头像：
+ * <pre>
+ * Phoenix.with(avatarView).setTags("user:" + userId).load(avatarUrl);
+ * ...
+ * Phoenix.evictByTag("user:" + userId);
+ * </pre>
+ * 查找和删除在IO线程池中作为一次后台操作执行，只能删除CacheKeyIndex中记录过的图片。
+ */
+public final class CacheEviction {
+
+    public interface Callback {
+
+        /**
+         * 在主线程中回调
+         *
+         * @param uris 被删除缓存的Uri
+         */
+        void onEvicted(List<String> uris);
+
+    }
+
+    private static final int INDEX_MAX_SIZE = 4096;
+
+    private static final CacheKeyIndex sKeyIndex = new CacheKeyIndex(INDEX_MAX_SIZE);
+
+    private CacheEviction() {
+
+    }
+
+    /**
+     * 记录所有加载过的Uri，由ImageLoaderConfig注册的RequestListener调用
+     */
+    public static CacheKeyIndex getKeyIndex() {
+        return sKeyIndex;
+    }
+
+    /**
+     * 给图片添加标签，Phoenix.Builder.setTags()加载的图片会自动添加
+     */
+    public static void tag(Uri uri, String... tags) {
+        sKeyIndex.tag(uri.toString(), tags);
+    }
+
+    /**
+     * @param callback 可为null
+     */
+    public static void evictByTag(final String tag, Callback callback) {
+        evictAsync(new Finder() {
+            @Override
+            public List<String> find() {
+                return sKeyIndex.findByTag(tag);
+            }
+        }, callback);
+    }
+
+    /**
+     * @param callback 可为null
+     */
+    public static void evictByUrlPrefix(final String prefix, Callback callback) {
+        evictAsync(new Finder() {
+            @Override
+            public List<String> find() {
+                return sKeyIndex.findByPrefix(prefix);
+            }
+        }, callback);
+    }
+
+    /**
+     * @param predicate 在IO线程中调用
+     * @param callback  可为null
+     */
+    public static void evict(final CacheKeyIndex.UriPredicate predicate, Callback callback) {
+        evictAsync(new Finder() {
+            @Override
+            public List<String> find() {
+                return sKeyIndex.find(predicate);
+            }
+        }, callback);
+    }
+
+    private static void evictAsync(final Finder finder, final Callback callback) {
+        ImageExecutors.forIo().execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<String> uris = finder.find();
+                ImagePipeline imagePipeline = Phoenix.getImagePipeline();
+                for (String uriString : uris) {
+                    Uri uri = Uri.parse(uriString);
+                    // 内存缓存按Uri删除所有尺寸和后处理的版本，磁盘缓存的删除在Fresco的写线程中排队执行
+                    imagePipeline.evictFromMemoryCache(uri);
+                    imagePipeline.evictFromDiskCache(uri);
+                    DiskCacheQuery.invalidate(uri);
+                }
+                sKeyIndex.remove(uris);
+
+                if (callback != null) {
+                    ImageExecutors.forMainThread().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onEvicted(uris);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private interface Finder {
+
+        List<String> find();
+
+    }
+
+}
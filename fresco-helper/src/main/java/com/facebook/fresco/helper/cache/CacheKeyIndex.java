@@ -0,0 +1,144 @@
+package com.facebook.fresco.helper.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 记录加载过的图片Uri及其标签，用于按标签、URL前缀或条件批量删除缓存。
+ * Fresco的磁盘缓存以Uri的哈希作为文件名，无法反查Uri，只有经过这里记录的图片才能被批量删除。
+ * <p>
+ * 只保存在内存中，进程重启后重新记录。条目数超过上限时淘汰最久未加载的Uri。线程安全。
+ */
+public class CacheKeyIndex {
+
+    public interface UriPredicate {
+
+        boolean apply(String uri);
+
+    }
+
+    private final int mMaxSize;
+
+    /**
+     * Uri -> 标签，按访问顺序排列
+     */
+    private final LinkedHashMap<String, Set<String>> mUriTags;
+
+    /**
+     * 标签 -> Uri
+     */
+    private final Map<String, Set<String>> mTagUris = new HashMap<>();
+
+    public CacheKeyIndex(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be > 0");
+        }
+        mMaxSize = maxSize;
+        mUriTags = new LinkedHashMap<String, Set<String>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Set<String>> eldest) {
+                if (size() <= mMaxSize) {
+                    return false;
+                }
+                untag(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * 记录一个加载过的Uri
+     */
+    public synchronized void record(String uri) {
+        if (mUriTags.get(uri) == null) {
+            mUriTags.put(uri, new HashSet<String>(1));
+        }
+    }
+
+    /**
+     * 记录一个加载过的Uri，并添加标签
+     */
+    public synchronized void tag(String uri, String... tags) {
+        Set<String> uriTags = mUriTags.get(uri);
+        if (uriTags == null) {
+            uriTags = new HashSet<>(tags.length);
+            mUriTags.put(uri, uriTags);
+        }
+
+        for (String tag : tags) {
+            if (tag == null || !uriTags.add(tag)) {
+                continue;
+            }
+            Set<String> uris = mTagUris.get(tag);
+            if (uris == null) {
+                uris = new HashSet<>();
+                mTagUris.put(tag, uris);
+            }
+            uris.add(uri);
+        }
+    }
+
+    public synchronized List<String> findByTag(String tag) {
+        Set<String> uris = mTagUris.get(tag);
+        return uris != null ? new ArrayList<>(uris) : new ArrayList<String>(0);
+    }
+
+    public synchronized List<String> findByPrefix(final String prefix) {
+        return find(new UriPredicate() {
+            @Override
+            public boolean apply(String uri) {
+                return uri.startsWith(prefix);
+            }
+        });
+    }
+
+    public synchronized List<String> find(UriPredicate predicate) {
+        List<String> result = new ArrayList<>();
+        for (String uri : mUriTags.keySet()) {
+            if (predicate.apply(uri)) {
+                result.add(uri);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 删除Uri及其标签，缓存被删除后调用
+     */
+    public synchronized void remove(Collection<String> uris) {
+        for (String uri : uris) {
+            Set<String> tags = mUriTags.remove(uri);
+            if (tags != null) {
+                untag(uri, tags);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        mUriTags.clear();
+        mTagUris.clear();
+    }
+
+    public synchronized int size() {
+        return mUriTags.size();
+    }
+
+    private void untag(String uri, Set<String> tags) {
+        for (String tag : tags) {
+            Set<String> uris = mTagUris.get(tag);
+            if (uris != null) {
+                uris.remove(uri);
+                if (uris.isEmpty()) {
+                    mTagUris.remove(tag);
+                }
+            }
+        }
+    }
+
+}
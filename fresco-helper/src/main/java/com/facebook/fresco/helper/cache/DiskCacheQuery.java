@@ -0,0 +1,151 @@
+package com.facebook.fresco.helper.cache;
+
+import android.net.Uri;
+import android.os.SystemClock;
+
+import com.facebook.fresco.helper.Phoenix;
+import com.facebook.fresco.helper.executor.ImageExecutors;
+import com.facebook.imagepipeline.core.ImagePipeline;
+import com.facebook.imagepipeline.request.ImageRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步批量查询图片是否在磁盘缓存中，替代在主线程中逐个调用isInDiskCacheSync()：
+ * 1、每个Uri对小图和默认两个磁盘缓存的查询作为独立的任务在IO线程池中并行执行
+ * 2、最近查询过的结果记录在PresenceIndex中，有效期内的重复查询不再访问磁盘
+ * 3、所有结果查询完成后通过一次回调返回
+ * <p>
+ * 通过Phoenix删除磁盘缓存时会同步更新PresenceIndex；Fresco因缓存已满自动删除的文件最多在有效期内被误报为存在。
+ */
+public final class DiskCacheQuery {
+
+    public interface Callback {
+
+        /**
+         * @param result Uri -> 是否在任意一个磁盘缓存中，顺序与查询时一致，重复的Uri只出现一次
+         */
+        void onResult(Map<Uri, Boolean> result);
+
+    }
+
+    private static final int INDEX_MAX_SIZE = 1024;
+
+    private static final long POSITIVE_TTL_MILLIS = 60 * 1000;
+
+    private static final long NEGATIVE_TTL_MILLIS = 5 * 1000;
+
+    private static final ImageRequest.CacheChoice[] CACHE_CHOICES = {
+            ImageRequest.CacheChoice.SMALL, ImageRequest.CacheChoice.DEFAULT
+    };
+
+    private static final PresenceIndex<Uri> sIndex =
+            new PresenceIndex<>(INDEX_MAX_SIZE, POSITIVE_TTL_MILLIS, NEGATIVE_TTL_MILLIS);
+
+    private DiskCacheQuery() {
+
+    }
+
+    /**
+     * @param uris             需要查询的Uri
+     * @param callback         查询结果
+     * @param callbackExecutor 执行回调的线程池
+     */
+    public static void query(List<Uri> uris, final Callback callback, final Executor callbackExecutor) {
+        final List<Uri> orderedUris = new ArrayList<>(new LinkedHashSet<>(uris));
+        orderedUris.remove(null);
+
+        final Map<Uri, Boolean> found = new ConcurrentHashMap<>();
+        final List<Uri> pendingUris = new ArrayList<>();
+        long now = SystemClock.uptimeMillis();
+        for (Uri uri : orderedUris) {
+            Boolean present = sIndex.get(uri, now);
+            if (present != null) {
+                found.put(uri, present);
+            } else {
+                pendingUris.add(uri);
+            }
+        }
+
+        if (pendingUris.isEmpty()) {
+            deliver(orderedUris, found, callback, callbackExecutor);
+            return;
+        }
+
+        final ImagePipeline imagePipeline = Phoenix.getImagePipeline();
+        final AtomicInteger remainingTasks = new AtomicInteger(pendingUris.size() * CACHE_CHOICES.length);
+        for (final Uri uri : pendingUris) {
+            // 查询期间图片被删除或写入时，invalidate()会使版本号变化，不再写入过时的结果
+            final long version = sIndex.getVersion(uri);
+            final AtomicInteger remainingChoices = new AtomicInteger(CACHE_CHOICES.length);
+            for (final ImageRequest.CacheChoice cacheChoice : CACHE_CHOICES) {
+                ImageExecutors.forIo().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            if (imagePipeline.isInDiskCacheSync(uri, cacheChoice)) {
+                                found.put(uri, true);
+                            }
+                        } finally {
+                            if (remainingChoices.decrementAndGet() == 0) {
+                                Boolean present = found.get(uri);
+                                if (present == null) {
+                                    present = false;
+                                    found.put(uri, false);
+                                }
+                                sIndex.put(uri, present, SystemClock.uptimeMillis(), version);
+                            }
+                            if (remainingTasks.decrementAndGet() == 0) {
+                                deliver(orderedUris, found, callback, callbackExecutor);
+                            }
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * 图片被删除或写入磁盘缓存后调用，使记录的结果失效
+     */
+    public static void invalidate(Uri uri) {
+        sIndex.invalidate(uri);
+    }
+
+    public static void invalidateAll() {
+        sIndex.clear();
+    }
+
+    /**
+     * 记录查询结果的索引，可用于查看命中率
+     */
+    public static PresenceIndex<Uri> getIndex() {
+        return sIndex;
+    }
+
+    private static void deliver(List<Uri> orderedUris, Map<Uri, Boolean> found, final Callback callback,
+                                Executor callbackExecutor) {
+        Map<Uri, Boolean> result = new LinkedHashMap<>(orderedUris.size());
+        for (Uri uri : orderedUris) {
+            Boolean present = found.get(uri);
+            result.put(uri, present != null && present);
+        }
+
+        final Map<Uri, Boolean> unmodifiableResult = Collections.unmodifiableMap(result);
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onResult(unmodifiableResult);
+            }
+        });
+    }
+
+}
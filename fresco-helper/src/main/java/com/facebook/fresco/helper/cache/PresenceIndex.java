@@ -0,0 +1,154 @@
+package com.facebook.fresco.helper.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 记录最近查询过的“是否存在”结果，重复查询时直接返回，不再访问磁盘：
+ * 1、存在和不存在的结果分别有各自的有效期，不存在的结果很快会因为下载完成而失效，有效期应更短
+ * 2、条目数超过上限时淘汰最久未访问的条目
+ * 3、每个key有一个版本号，invalidate()时递增。查询前取版本号，查询完成后带版本号写入，
+ * 期间被invalidate()过的旧结果不会覆盖
+ * <p>
+ * 线程安全。时间由调用方传入，便于测试。
+ *
+ * @param <K> 查询的key
+ */
+public class PresenceIndex<K> {
+
+    private final int mMaxSize;
+
+    private final long mPositiveTtlMillis;
+
+    private final long mNegativeTtlMillis;
+
+    private final LinkedHashMap<K, Entry> mEntries;
+
+    /**
+     * 最近invalidate()过的key -> 失效时的版本号，条目数上限与mEntries相同
+     */
+    private final LinkedHashMap<K, Long> mInvalidations;
+
+    private long mLastVersion;
+
+    /**
+     * 被淘汰的失效记录及clear()的最大版本号，不在mInvalidations中的key都以此为版本号
+     */
+    private long mBaseVersion;
+
+    private long mHitCount;
+
+    private long mMissCount;
+
+    /**
+     * @param maxSize           条目数上限
+     * @param positiveTtlMillis “存在”结果的有效期，单位毫秒
+     * @param negativeTtlMillis “不存在”结果的有效期，单位毫秒
+     */
+    public PresenceIndex(final int maxSize, long positiveTtlMillis, long negativeTtlMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be > 0");
+        }
+        mMaxSize = maxSize;
+        mPositiveTtlMillis = positiveTtlMillis;
+        mNegativeTtlMillis = negativeTtlMillis;
+        mEntries = new LinkedHashMap<K, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry> eldest) {
+                return size() > mMaxSize;
+            }
+        };
+        mInvalidations = new LinkedHashMap<K, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Long> eldest) {
+                if (size() > mMaxSize) {
+                    mBaseVersion = Math.max(mBaseVersion, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param now 当前时间，单位毫秒
+     * @return 有效期内的结果，没有记录或已过期时返回null
+     */
+    public synchronized Boolean get(K key, long now) {
+        Entry entry = mEntries.get(key);
+        if (entry != null && now < entry.mExpireTime) {
+            mHitCount++;
+            return entry.mPresent;
+        }
+
+        if (entry != null) {
+            mEntries.remove(key);
+        }
+        mMissCount++;
+        return null;
+    }
+
+    public synchronized void put(K key, boolean present, long now) {
+        mEntries.put(key, new Entry(present, now + (present ? mPositiveTtlMillis : mNegativeTtlMillis)));
+    }
+
+    /**
+     * 查询完成后写入结果，查询期间key被invalidate()过时放弃写入
+     *
+     * @param version 开始查询前getVersion()的返回值
+     * @return 是否写入
+     */
+    public synchronized boolean put(K key, boolean present, long now, long version) {
+        if (version != getVersion(key)) {
+            return false;
+        }
+        put(key, present, now);
+        return true;
+    }
+
+    /**
+     * 获取key当前的版本号，用于put(K, boolean, long, long)。
+     * 失效记录被淘汰后返回的版本号可能变大，此时只会多放弃一次写入，不会写入过时的结果
+     */
+    public synchronized long getVersion(K key) {
+        Long version = mInvalidations.get(key);
+        return version != null ? Math.max(version, mBaseVersion) : mBaseVersion;
+    }
+
+    public synchronized void invalidate(K key) {
+        mEntries.remove(key);
+        mInvalidations.put(key, ++mLastVersion);
+    }
+
+    public synchronized void clear() {
+        mEntries.clear();
+        mInvalidations.clear();
+        mBaseVersion = ++mLastVersion;
+    }
+
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return mHitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return mMissCount;
+    }
+
+    private static class Entry {
+
+        final boolean mPresent;
+
+        final long mExpireTime;
+
+        Entry(boolean present, long expireTime) {
+            mPresent = present;
+            mExpireTime = expireTime;
+        }
+
+    }
+
+}
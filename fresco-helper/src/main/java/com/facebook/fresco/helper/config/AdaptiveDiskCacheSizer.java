@@ -0,0 +1,260 @@
+package com.facebook.fresco.helper.config;
+
+import android.content.SharedPreferences;
+
+import com.facebook.cache.disk.DiskCacheConfig;
+import com.facebook.cache.disk.FileCache;
+import com.facebook.common.util.ByteConstants;
+
+import java.util.Locale;
+
+/**
+ * 根据可用存储空间和按字节计算的命中率决定磁盘缓存的大小，主缓存和小图缓存各使用一个实例：
+ * 1、缓存大小按可用空间的一定比例计算，并限制在[minCacheSize, maxCacheSize]之间
+ * 2、命中率低且频繁因缓存已满而淘汰时，在上一次的基础上扩大，最多为可用空间比例的2倍
+ * 3、可用空间不足时只保留最小值
+ * <p>
+ * Fresco在创建磁盘缓存时固定了大小上限，运行中只会根据可用空间在maxCacheSize和lowDiskSpaceCacheSize之间切换。
+ * 因此reevaluate()重新计算的结果保存在SharedPreferences中，下次启动时生效；
+ * 可用空间不足时立即清理到veryLowDiskSpaceCacheSize。统计数据跨进程保留，每次启动时减半。
+ */
+public class AdaptiveDiskCacheSizer {
+
+    /**
+     * 缓存的类型
+     */
+    public enum CacheType {
+        /**
+         * 主磁盘缓存
+         */
+        MAIN,
+        /**
+         * 小图磁盘缓存
+         */
+        SMALL
+    }
+
+    /**
+     * 可用空间低于该值时只保留最小值
+     */
+    static final long LOW_FREE_SPACE = 200 * ByteConstants.MB;
+
+    /**
+     * 按字节计算的命中率低于该值且频繁淘汰时扩大
+     */
+    static final float LOW_BYTE_HIT_RATE = 0.5f;
+
+    /**
+     * 因缓存已满而淘汰的字节数超过上一次大小的该比例时视为频繁淘汰
+     */
+    static final float THRASH_EVICTION_RATIO = 0.5f;
+
+    /**
+     * 每次扩大的比例
+     */
+    static final float GROW_STEP = 1.5f;
+
+    private static final String KEY_SIZE = "_size";
+
+    private static final String KEY_HIT_BYTES = "_hit_bytes";
+
+    private static final String KEY_WRITE_BYTES = "_write_bytes";
+
+    private static final String KEY_FULL_EVICTED_BYTES = "_full_evicted_bytes";
+
+    private final CacheType mCacheType;
+
+    private final long mMinCacheSize;
+
+    private final long mMaxCacheSize;
+
+    private final float mFreeSpaceRatio;
+
+    private final SharedPreferences mPreferences;
+
+    private final DiskCacheEventTracker mEventTracker = new DiskCacheEventTracker();
+
+    private long mPreviousSize;
+
+    private long mLoadedHitBytes;
+
+    private long mLoadedWriteBytes;
+
+    private long mLoadedFullEvictedBytes;
+
+    private volatile DiskCacheDecision mActiveDecision;
+
+    private volatile DiskCacheDecision mLastDecision;
+
+    /**
+     * @param cacheType      缓存类型
+     * @param minCacheSize   缓存大小的下限，单位字节
+     * @param maxCacheSize   缓存大小的上限，单位字节
+     * @param freeSpaceRatio 缓存大小占可用空间的比例
+     * @param preferences    保存统计数据和计算结果，为null时不保存
+     */
+    public AdaptiveDiskCacheSizer(CacheType cacheType, long minCacheSize, long maxCacheSize, float freeSpaceRatio,
+                                  SharedPreferences preferences) {
+        if (minCacheSize <= 0 || minCacheSize > maxCacheSize) {
+            throw new IllegalArgumentException("invalid cache size bounds: " + minCacheSize + ".." + maxCacheSize);
+        }
+        mCacheType = cacheType;
+        mMinCacheSize = minCacheSize;
+        mMaxCacheSize = maxCacheSize;
+        mFreeSpaceRatio = freeSpaceRatio;
+        mPreferences = preferences;
+    }
+
+    /**
+     * 主磁盘缓存，可用空间的5%，在10MB到200MB之间
+     */
+    public static AdaptiveDiskCacheSizer forMainCache(SharedPreferences preferences) {
+        return new AdaptiveDiskCacheSizer(CacheType.MAIN, 10 * ByteConstants.MB, 200 * ByteConstants.MB, 0.05f,
+                preferences);
+    }
+
+    /**
+     * 小图磁盘缓存，可用空间的1%，在2MB到40MB之间
+     */
+    public static AdaptiveDiskCacheSizer forSmallCache(SharedPreferences preferences) {
+        return new AdaptiveDiskCacheSizer(CacheType.SMALL, 2 * ByteConstants.MB, 40 * ByteConstants.MB, 0.01f,
+                preferences);
+    }
+
+    /**
+     * 读取上次保存的统计数据，计算启动时的缓存大小并设置给builder，同时设置统计用的CacheEventListener
+     *
+     * @param freeBytes 缓存目录所在分区的可用空间
+     */
+    public synchronized DiskCacheConfig.Builder apply(DiskCacheConfig.Builder builder, long freeBytes) {
+        if (mPreferences != null) {
+            String prefix = mCacheType.name().toLowerCase(Locale.US);
+            mPreviousSize = mPreferences.getLong(prefix + KEY_SIZE, 0);
+            mLoadedHitBytes = mPreferences.getLong(prefix + KEY_HIT_BYTES, 0) / 2;
+            mLoadedWriteBytes = mPreferences.getLong(prefix + KEY_WRITE_BYTES, 0) / 2;
+            mLoadedFullEvictedBytes = mPreferences.getLong(prefix + KEY_FULL_EVICTED_BYTES, 0) / 2;
+        }
+
+        DiskCacheDecision decision = decide(freeBytes, mPreviousSize, mLoadedHitBytes, mLoadedWriteBytes,
+                mLoadedFullEvictedBytes);
+        mActiveDecision = decision;
+        mLastDecision = decision;
+        return builder.setMaxCacheSize(decision.maxCacheSize)
+                .setMaxCacheSizeOnLowDiskSpace(decision.lowDiskSpaceCacheSize)
+                .setMaxCacheSizeOnVeryLowDiskSpace(decision.veryLowDiskSpaceCacheSize)
+                .setCacheEventListener(mEventTracker);
+    }
+
+    /**
+     * 按最新的可用空间和统计数据重新计算并保存，下次启动时生效。可用空间不足时立即清理缓存，需在后台线程中调用
+     *
+     * @param fileCache 对应的磁盘缓存
+     * @param freeBytes 缓存目录所在分区的可用空间
+     */
+    public synchronized DiskCacheDecision reevaluate(FileCache fileCache, long freeBytes) {
+        DiskCacheDecision activeDecision = mActiveDecision;
+        if (activeDecision == null) {
+            throw new IllegalStateException("apply() must be called first");
+        }
+
+        long hitBytes = mLoadedHitBytes + estimateHitBytes(fileCache);
+        long writeBytes = mLoadedWriteBytes + mEventTracker.getWriteBytes();
+        long fullEvictedBytes = mLoadedFullEvictedBytes + mEventTracker.getFullEvictedBytes();
+        DiskCacheDecision decision = decide(freeBytes, activeDecision.maxCacheSize, hitBytes, writeBytes,
+                fullEvictedBytes);
+        mLastDecision = decision;
+
+        if (mPreferences != null) {
+            String prefix = mCacheType.name().toLowerCase(Locale.US);
+            mPreferences.edit()
+                    .putLong(prefix + KEY_SIZE, decision.maxCacheSize)
+                    .putLong(prefix + KEY_HIT_BYTES, hitBytes)
+                    .putLong(prefix + KEY_WRITE_BYTES, writeBytes)
+                    .putLong(prefix + KEY_FULL_EVICTED_BYTES, fullEvictedBytes)
+                    .apply();
+        }
+
+        if (decision.reason == DiskCacheDecision.Reason.LOW_SPACE
+                && fileCache.getSize() > activeDecision.veryLowDiskSpaceCacheSize) {
+            fileCache.trimToMinimum();
+        }
+        return decision;
+    }
+
+    /**
+     * 启动时计算并生效的结果
+     */
+    public DiskCacheDecision getActiveDecision() {
+        return mActiveDecision;
+    }
+
+    /**
+     * 最近一次计算的结果，下次启动时生效
+     */
+    public DiskCacheDecision getLastDecision() {
+        return mLastDecision;
+    }
+
+    public DiskCacheStats getStats(FileCache fileCache) {
+        DiskCacheDecision activeDecision = mActiveDecision;
+        return new DiskCacheStats(mCacheType.name(),
+                activeDecision != null ? activeDecision.maxCacheSize : 0,
+                fileCache.getSize(),
+                fileCache.getCount(),
+                mEventTracker.getHitCount(),
+                mEventTracker.getMissCount(),
+                mEventTracker.getWriteCount(),
+                mEventTracker.getWriteBytes(),
+                estimateHitBytes(fileCache),
+                mEventTracker.getEvictionCount(),
+                mEventTracker.getEvictedBytes(),
+                mEventTracker.getFullEvictionCount());
+    }
+
+    /**
+     * 根据可用空间和统计数据计算缓存大小
+     *
+     * @param freeBytes        可用空间
+     * @param previousSize     上一次的缓存大小，未知时为0
+     * @param hitBytes         命中的字节数
+     * @param writeBytes       写入的字节数
+     * @param fullEvictedBytes 因缓存已满而淘汰的字节数
+     */
+    DiskCacheDecision decide(long freeBytes, long previousSize, long hitBytes, long writeBytes,
+                             long fullEvictedBytes) {
+        long sampleBytes = hitBytes + writeBytes;
+        float byteHitRate = sampleBytes == 0 ? -1 : (float) hitBytes / sampleBytes;
+        long freeSpaceSize = (long) (freeBytes * mFreeSpaceRatio);
+
+        DiskCacheDecision.Reason reason;
+        long size;
+        if (freeBytes < LOW_FREE_SPACE) {
+            reason = DiskCacheDecision.Reason.LOW_SPACE;
+            size = mMinCacheSize;
+        } else if (previousSize > 0 && byteHitRate >= 0 && byteHitRate < LOW_BYTE_HIT_RATE
+                && fullEvictedBytes >= previousSize * THRASH_EVICTION_RATIO) {
+            reason = DiskCacheDecision.Reason.GROW;
+            size = Math.max(freeSpaceSize, Math.min((long) (previousSize * GROW_STEP), freeSpaceSize * 2));
+        } else {
+            reason = DiskCacheDecision.Reason.FREE_SPACE;
+            size = freeSpaceSize;
+        }
+        size = clamp(size, mMinCacheSize, mMaxCacheSize);
+
+        return new DiskCacheDecision(mCacheType.name(), reason, size, Math.max(mMinCacheSize, size / 4),
+                mMinCacheSize, freeBytes, byteHitRate, fullEvictedBytes);
+    }
+
+    /**
+     * Fresco命中时不提供条目大小，按缓存中条目的平均大小估算
+     */
+    private long estimateHitBytes(FileCache fileCache) {
+        long count = fileCache.getCount();
+        return count <= 0 ? 0 : mEventTracker.getHitCount() * (fileCache.getSize() / count);
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(value, max));
+    }
+
+}
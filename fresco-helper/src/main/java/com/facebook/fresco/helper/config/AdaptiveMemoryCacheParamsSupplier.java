@@ -0,0 +1,287 @@
+package com.facebook.fresco.helper.config;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+
+import com.facebook.common.internal.Supplier;
+import com.facebook.common.util.ByteConstants;
+import com.facebook.imagepipeline.cache.CountingMemoryCache;
+import com.facebook.imagepipeline.cache.MemoryCacheParams;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 根据运行时的统计数据动态调整内存缓存大小，已解码图片和未解码图片的缓存各使用一个实例：
+ * 1、命中率低且缓存已满时扩大，命中率高而缓存利用率低时缩小
+ * 2、系统内存紧张（onTrimMemory）时按等级缩小
+ * 3、条目数上限按缓存中条目的平均大小计算
+ * 4、缓存大小始终在[minCacheSize, maxCacheSize]之间
+ * <p>
+ * Fresco访问缓存时最多每隔5分钟调用一次get()，每次调用都会重新计算，
+ * 最近一次的计算结果可通过getLastDecision()查看。
+ */
+public class AdaptiveMemoryCacheParamsSupplier implements Supplier<MemoryCacheParams> {
+
+    /**
+     * 缓存的类型
+     */
+    public enum CacheType {
+        /**
+         * 已解码图片的内存缓存
+         */
+        BITMAP,
+        /**
+         * 未解码图片的内存缓存
+         */
+        ENCODED
+    }
+
+    /**
+     * 命中率的样本数少于该值时不调整
+     */
+    static final int MIN_SAMPLE_COUNT = 50;
+
+    /**
+     * 命中率低于该值且缓存已满时扩大
+     */
+    static final float LOW_HIT_RATE = 0.6f;
+
+    /**
+     * 命中率高于该值且缓存利用率低时缩小
+     */
+    static final float HIGH_HIT_RATE = 0.9f;
+
+    /**
+     * 已用大小超过上限的该比例时视为已满
+     */
+    static final float FULL_USAGE = 0.9f;
+
+    /**
+     * 已用大小低于上限的该比例时视为利用率低
+     */
+    static final float LOW_USAGE = 0.5f;
+
+    /**
+     * 每次扩大的比例
+     */
+    static final float GROW_STEP = 1.25f;
+
+    /**
+     * 每次缩小的比例
+     */
+    static final float SHRINK_STEP = 0.875f;
+
+    private static final int MIN_CACHE_ENTRIES = 16;
+
+    private static final int MAX_CACHE_ENTRIES = 512;
+
+    /**
+     * 平均条目大小未知时的条目数上限
+     */
+    private static final int DEFAULT_CACHE_ENTRIES = 256;
+
+    private final CacheType mCacheType;
+
+    private final CacheStatsTracker mStatsTracker;
+
+    private final int mMinCacheSize;
+
+    private final int mMaxCacheSize;
+
+    private int mCacheSize;
+
+    private long mLastHits;
+
+    private long mLastMisses;
+
+    /**
+     * 自上次计算以来缩小比例最大的内存等级，0表示没有
+     */
+    private final AtomicInteger mTrimLevel = new AtomicInteger();
+
+    private volatile MemoryCacheDecision mLastDecision;
+
+    /**
+     * @param cacheType        缓存类型
+     * @param statsTracker     缓存命中统计，需要同时设置给ImagePipelineConfig
+     * @param minCacheSize     缓存大小的下限，单位字节
+     * @param initialCacheSize 缓存大小的初始值，单位字节
+     * @param maxCacheSize     缓存大小的上限，单位字节
+     */
+    public AdaptiveMemoryCacheParamsSupplier(CacheType cacheType, CacheStatsTracker statsTracker,
+                                             int minCacheSize, int initialCacheSize, int maxCacheSize) {
+        if (minCacheSize <= 0 || minCacheSize > maxCacheSize) {
+            throw new IllegalArgumentException("invalid cache size bounds: " + minCacheSize + ".." + maxCacheSize);
+        }
+        mCacheType = cacheType;
+        mStatsTracker = statsTracker;
+        mMinCacheSize = minCacheSize;
+        mMaxCacheSize = maxCacheSize;
+        mCacheSize = clamp(initialCacheSize, minCacheSize, maxCacheSize);
+        mLastDecision = new MemoryCacheDecision(cacheType.name(), MemoryCacheDecision.Reason.INITIAL, mCacheSize,
+                DEFAULT_CACHE_ENTRIES, -1, 0, 0, 0, 0);
+    }
+
+    /**
+     * 已解码图片的内存缓存，初始值与BitmapMemoryCacheParamsSupplier相同，可在其1/4到2倍之间调整，且不超过应用可用内存的1/3
+     */
+    public static AdaptiveMemoryCacheParamsSupplier forBitmapCache(ActivityManager activityManager,
+                                                                   CacheStatsTracker statsTracker) {
+        int initial = BitmapMemoryCacheParamsSupplier.getMaxCacheSize(activityManager);
+        int max = Math.max(initial, Math.min(initial * 2, activityManager.getMemoryClass() * ByteConstants.MB / 3));
+        return new AdaptiveMemoryCacheParamsSupplier(CacheType.BITMAP, statsTracker,
+                Math.max(ByteConstants.MB, initial / 4), initial, max);
+    }
+
+    /**
+     * 未解码图片的内存缓存，初始值与Fresco的默认值相同，可在1MB到其2倍之间调整
+     */
+    public static AdaptiveMemoryCacheParamsSupplier forEncodedCache(ActivityManager activityManager,
+                                                                    CacheStatsTracker statsTracker) {
+        int maxMemory = activityManager.getMemoryClass() * ByteConstants.MB;
+        int initial;
+        if (maxMemory < 16 * ByteConstants.MB) {
+            initial = ByteConstants.MB;
+        } else if (maxMemory < 32 * ByteConstants.MB) {
+            initial = 2 * ByteConstants.MB;
+        } else {
+            initial = 4 * ByteConstants.MB;
+        }
+        return new AdaptiveMemoryCacheParamsSupplier(CacheType.ENCODED, statsTracker,
+                ByteConstants.MB, initial, initial * 2);
+    }
+
+    /**
+     * 通知系统内存等级发生变化，在ComponentCallbacks2.onTrimMemory()中调用，
+     * 下一次计算时按该等级缩小缓存，之后恢复按命中率调整。
+     * 内存等级的数值大小与紧张程度不一致（如TRIM_MEMORY_UI_HIDDEN大于TRIM_MEMORY_RUNNING_CRITICAL），
+     * 两次计算之间收到多个等级时保留缩小比例最大的一个
+     */
+    public void onTrimMemory(int level) {
+        while (true) {
+            int current = mTrimLevel.get();
+            if (getTrimRatio(level) >= getTrimRatio(current) || mTrimLevel.compareAndSet(current, level)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 最近一次计算的结果
+     */
+    public MemoryCacheDecision getLastDecision() {
+        return mLastDecision;
+    }
+
+    @Override
+    public synchronized MemoryCacheParams get() {
+        long hits;
+        long misses;
+        CountingMemoryCache<?, ?> cache;
+        if (mCacheType == CacheType.BITMAP) {
+            hits = mStatsTracker.getBitmapCacheHits();
+            misses = mStatsTracker.getBitmapCacheMisses();
+            cache = mStatsTracker.getBitmapMemoryCache();
+        } else {
+            hits = mStatsTracker.getEncodedCacheHits();
+            misses = mStatsTracker.getEncodedCacheMisses();
+            cache = mStatsTracker.getEncodedMemoryCache();
+        }
+
+        int usedSize = 0;
+        int count = 0;
+        if (cache != null) {
+            // get()由CountingMemoryCache在持有自身锁时调用，这里再次获取同一把锁不会死锁
+            usedSize = cache.getSizeInBytes();
+            count = cache.getCount();
+        }
+
+        MemoryCacheDecision decision = decide(hits - mLastHits, misses - mLastMisses, usedSize, count,
+                mTrimLevel.getAndSet(0));
+        mLastHits = hits;
+        mLastMisses = misses;
+        mLastDecision = decision;
+
+        int size = decision.maxCacheSize;
+        if (mCacheType == CacheType.BITMAP) {
+            return new MemoryCacheParams(size,  // 内存缓存中总图片的最大大小,以字节为单位。
+                    decision.maxCacheEntries,   // 内存缓存中图片的最大数量。
+                    size / 4,                   // 内存缓存中准备清除但尚未被删除的总图片的最大大小,以字节为单位。
+                    Math.max(1, decision.maxCacheEntries / 4), // 内存缓存中准备清除的总图片的最大数量。
+                    size);                      // 内存缓存中单个图片的最大大小。
+        } else {
+            return new MemoryCacheParams(size,
+                    decision.maxCacheEntries,
+                    size,
+                    Integer.MAX_VALUE,
+                    size / 8);
+        }
+    }
+
+    /**
+     * 根据统计数据计算新的缓存大小
+     *
+     * @param hits      自上次计算以来的命中数
+     * @param misses    自上次计算以来的未命中数
+     * @param usedSize  缓存当前占用的大小
+     * @param count     缓存当前的条目数
+     * @param trimLevel 当前的系统内存等级
+     */
+    MemoryCacheDecision decide(long hits, long misses, int usedSize, int count, int trimLevel) {
+        long samples = hits + misses;
+        float hitRate = samples == 0 ? -1 : (float) hits / samples;
+
+        MemoryCacheDecision.Reason reason;
+        float trimRatio = getTrimRatio(trimLevel);
+        if (trimRatio < 1) {
+            reason = MemoryCacheDecision.Reason.TRIM;
+            mCacheSize = (int) (mCacheSize * trimRatio);
+        } else if (samples < MIN_SAMPLE_COUNT) {
+            reason = MemoryCacheDecision.Reason.HOLD;
+        } else if (hitRate < LOW_HIT_RATE && usedSize >= mCacheSize * FULL_USAGE) {
+            reason = MemoryCacheDecision.Reason.GROW;
+            mCacheSize = (int) Math.min((long) (mCacheSize * GROW_STEP), Integer.MAX_VALUE);
+        } else if (hitRate > HIGH_HIT_RATE && usedSize < mCacheSize * LOW_USAGE) {
+            reason = MemoryCacheDecision.Reason.SHRINK;
+            mCacheSize = (int) (mCacheSize * SHRINK_STEP);
+        } else {
+            reason = MemoryCacheDecision.Reason.HOLD;
+        }
+        mCacheSize = clamp(mCacheSize, mMinCacheSize, mMaxCacheSize);
+
+        int averageEntrySize = count == 0 ? 0 : usedSize / count;
+        int maxEntries;
+        if (averageEntrySize == 0) {
+            maxEntries = DEFAULT_CACHE_ENTRIES;
+        } else {
+            // 按平均大小能容纳条目数的2倍，给小图留出余量
+            maxEntries = clamp((int) Math.min(2L * mCacheSize / averageEntrySize, Integer.MAX_VALUE),
+                    MIN_CACHE_ENTRIES, MAX_CACHE_ENTRIES);
+        }
+
+        return new MemoryCacheDecision(mCacheType.name(), reason, mCacheSize, maxEntries, hitRate, samples,
+                averageEntrySize, usedSize, trimLevel);
+    }
+
+    /**
+     * 各系统内存等级下缓存大小的缩小比例
+     */
+    static float getTrimRatio(int trimLevel) {
+        if (trimLevel >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || trimLevel == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            return 0f;
+        } else if (trimLevel >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || trimLevel == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return 0.5f;
+        } else if (trimLevel == ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            return 0.75f;
+        }
+        // TRIM_MEMORY_UI_HIDDEN只表示界面不可见，不缩小
+        return 1f;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(value, max));
+    }
+
+}
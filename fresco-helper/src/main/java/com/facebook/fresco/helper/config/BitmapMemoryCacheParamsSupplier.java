@@ -26,14 +26,14 @@ public class BitmapMemoryCacheParamsSupplier implements Supplier<MemoryCachePara
     @Override
     public MemoryCacheParams get() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            return new MemoryCacheParams(getMaxCacheSize(), // 内存缓存中总图片的最大大小,以字节为单位。
+            return new MemoryCacheParams(getMaxCacheSize(mActivityManager), // 内存缓存中总图片的最大大小,以字节为单位。
                     56,                                     // 内存缓存中图片的最大数量。
                     Integer.MAX_VALUE,                      // 内存缓存中准备清除但尚未被删除的总图片的最大大小,以字节为单位。
                     Integer.MAX_VALUE,                      // 内存缓存中准备清除的总图片的最大数量。
                     Integer.MAX_VALUE);                     // 内存缓存中单个图片的最大大小。
         } else {
             return new MemoryCacheParams(
-                    getMaxCacheSize(),
+                    getMaxCacheSize(mActivityManager),
                     256,
                     Integer.MAX_VALUE,
                     Integer.MAX_VALUE,
@@ -41,8 +41,8 @@ public class BitmapMemoryCacheParamsSupplier implements Supplier<MemoryCachePara
         }
     }
 
-    private int getMaxCacheSize() {
-        final int maxMemory = Math.min(mActivityManager.getMemoryClass() * ByteConstants.MB, Integer.MAX_VALUE);
+    static int getMaxCacheSize(ActivityManager activityManager) {
+        final int maxMemory = Math.min(activityManager.getMemoryClass() * ByteConstants.MB, Integer.MAX_VALUE);
         if (maxMemory < 32 * ByteConstants.MB) {
             return 4 * ByteConstants.MB;
         } else if (maxMemory < 64 * ByteConstants.MB) {
@@ -0,0 +1,129 @@
+package com.facebook.fresco.helper.config;
+
+import com.facebook.cache.common.CacheKey;
+import com.facebook.imagepipeline.cache.CountingMemoryCache;
+import com.facebook.imagepipeline.cache.ImageCacheStatsTracker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 统计各级缓存的命中情况，供AdaptiveMemoryCacheParamsSupplier调整内存缓存大小
+ */
+public class CacheStatsTracker implements ImageCacheStatsTracker {
+
+    private final AtomicLong mBitmapCacheHits = new AtomicLong();
+
+    private final AtomicLong mBitmapCacheMisses = new AtomicLong();
+
+    private final AtomicLong mEncodedCacheHits = new AtomicLong();
+
+    private final AtomicLong mEncodedCacheMisses = new AtomicLong();
+
+    private final AtomicLong mDiskCacheHits = new AtomicLong();
+
+    private final AtomicLong mDiskCacheMisses = new AtomicLong();
+
+    private volatile CountingMemoryCache<?, ?> mBitmapMemoryCache;
+
+    private volatile CountingMemoryCache<?, ?> mEncodedMemoryCache;
+
+    @Override
+    public void onBitmapCachePut() {
+    }
+
+    @Override
+    public void onBitmapCacheHit(CacheKey cacheKey) {
+        mBitmapCacheHits.incrementAndGet();
+    }
+
+    @Override
+    public void onBitmapCacheMiss() {
+        mBitmapCacheMisses.incrementAndGet();
+    }
+
+    @Override
+    public void onMemoryCachePut() {
+    }
+
+    @Override
+    public void onMemoryCacheHit(CacheKey cacheKey) {
+        mEncodedCacheHits.incrementAndGet();
+    }
+
+    @Override
+    public void onMemoryCacheMiss() {
+        mEncodedCacheMisses.incrementAndGet();
+    }
+
+    @Override
+    public void onStagingAreaHit(CacheKey cacheKey) {
+    }
+
+    @Override
+    public void onStagingAreaMiss() {
+    }
+
+    @Override
+    public void onDiskCacheHit() {
+        mDiskCacheHits.incrementAndGet();
+    }
+
+    @Override
+    public void onDiskCacheMiss() {
+        mDiskCacheMisses.incrementAndGet();
+    }
+
+    @Override
+    public void onDiskCacheGetFail() {
+        mDiskCacheMisses.incrementAndGet();
+    }
+
+    @Override
+    public void registerBitmapMemoryCache(CountingMemoryCache<?, ?> bitmapMemoryCache) {
+        mBitmapMemoryCache = bitmapMemoryCache;
+    }
+
+    @Override
+    public void registerEncodedMemoryCache(CountingMemoryCache<?, ?> encodedMemoryCache) {
+        mEncodedMemoryCache = encodedMemoryCache;
+    }
+
+    public long getBitmapCacheHits() {
+        return mBitmapCacheHits.get();
+    }
+
+    public long getBitmapCacheMisses() {
+        return mBitmapCacheMisses.get();
+    }
+
+    public long getEncodedCacheHits() {
+        return mEncodedCacheHits.get();
+    }
+
+    public long getEncodedCacheMisses() {
+        return mEncodedCacheMisses.get();
+    }
+
+    public long getDiskCacheHits() {
+        return mDiskCacheHits.get();
+    }
+
+    public long getDiskCacheMisses() {
+        return mDiskCacheMisses.get();
+    }
+
+    /**
+     * 已解码图片的内存缓存，Fresco初始化之前为null
+     */
+    public CountingMemoryCache<?, ?> getBitmapMemoryCache() {
+        return mBitmapMemoryCache;
+    }
+
+    /**
+     * 未解码图片的内存缓存，Fresco初始化之前为null
+     */
+    public CountingMemoryCache<?, ?> getEncodedMemoryCache() {
+        return mEncodedMemoryCache;
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.facebook.fresco.helper.config;
+
+import java.util.Locale;
+
+/**
+ * AdaptiveDiskCacheSizer某一次计算磁盘缓存大小的依据和结果
+ */
+public class DiskCacheDecision {
+
+    /**
+     * 本次计算的原因
+     */
+    public enum Reason {
+        /**
+         * 按可用空间的比例
+         */
+        FREE_SPACE,
+        /**
+         * 命中率低且频繁因缓存已满而淘汰，在上一次的基础上扩大
+         */
+        GROW,
+        /**
+         * 可用空间不足，只保留最小值
+         */
+        LOW_SPACE
+    }
+
+    public final String name;
+
+    public final Reason reason;
+
+    /**
+     * 缓存大小的上限，单位字节
+     */
+    public final long maxCacheSize;
+
+    /**
+     * 可用空间较少时缓存大小的上限，由Fresco根据可用空间自动切换
+     */
+    public final long lowDiskSpaceCacheSize;
+
+    /**
+     * 可用空间极少时缓存大小的上限，同时也是trimToMinimum()清理后的大小
+     */
+    public final long veryLowDiskSpaceCacheSize;
+
+    /**
+     * 计算时的可用空间，单位字节
+     */
+    public final long freeBytes;
+
+    /**
+     * 按字节计算的命中率，没有样本时为-1
+     */
+    public final float byteHitRate;
+
+    /**
+     * 因缓存已满而淘汰的字节数
+     */
+    public final long fullEvictedBytes;
+
+    public DiskCacheDecision(String name, Reason reason, long maxCacheSize, long lowDiskSpaceCacheSize,
+                             long veryLowDiskSpaceCacheSize, long freeBytes, float byteHitRate,
+                             long fullEvictedBytes) {
+        this.name = name;
+        this.reason = reason;
+        this.maxCacheSize = maxCacheSize;
+        this.lowDiskSpaceCacheSize = lowDiskSpaceCacheSize;
+        this.veryLowDiskSpaceCacheSize = veryLowDiskSpaceCacheSize;
+        this.freeBytes = freeBytes;
+        this.byteHitRate = byteHitRate;
+        this.fullEvictedBytes = fullEvictedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%s{%s, maxSize=%dKB, lowSpace=%dKB, veryLowSpace=%dKB, free=%dMB, byteHitRate=%.2f, fullEvicted=%dKB}",
+                name, reason, maxCacheSize / 1024, lowDiskSpaceCacheSize / 1024, veryLowDiskSpaceCacheSize / 1024,
+                freeBytes / (1024 * 1024), byteHitRate, fullEvictedBytes / 1024);
+    }
+
+}
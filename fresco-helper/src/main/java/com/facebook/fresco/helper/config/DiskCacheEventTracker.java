@@ -0,0 +1,103 @@
+package com.facebook.fresco.helper.config;
+
+import com.facebook.cache.common.CacheEvent;
+import com.facebook.cache.common.CacheEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 统计一个磁盘缓存的命中、写入和淘汰情况，通过DiskCacheConfig.Builder.setCacheEventListener()设置
+ */
+public class DiskCacheEventTracker implements CacheEventListener {
+
+    private final AtomicLong mHitCount = new AtomicLong();
+
+    private final AtomicLong mMissCount = new AtomicLong();
+
+    private final AtomicLong mWriteCount = new AtomicLong();
+
+    private final AtomicLong mWriteBytes = new AtomicLong();
+
+    private final AtomicLong mEvictionCount = new AtomicLong();
+
+    private final AtomicLong mEvictedBytes = new AtomicLong();
+
+    private final AtomicLong mFullEvictionCount = new AtomicLong();
+
+    private final AtomicLong mFullEvictedBytes = new AtomicLong();
+
+    @Override
+    public void onHit(CacheEvent cacheEvent) {
+        mHitCount.incrementAndGet();
+    }
+
+    @Override
+    public void onMiss(CacheEvent cacheEvent) {
+        mMissCount.incrementAndGet();
+    }
+
+    @Override
+    public void onWriteAttempt(CacheEvent cacheEvent) {
+    }
+
+    @Override
+    public void onWriteSuccess(CacheEvent cacheEvent) {
+        mWriteCount.incrementAndGet();
+        mWriteBytes.addAndGet(cacheEvent.getItemSize());
+    }
+
+    @Override
+    public void onReadException(CacheEvent cacheEvent) {
+    }
+
+    @Override
+    public void onWriteException(CacheEvent cacheEvent) {
+    }
+
+    @Override
+    public void onEviction(CacheEvent cacheEvent) {
+        mEvictionCount.incrementAndGet();
+        mEvictedBytes.addAndGet(cacheEvent.getItemSize());
+        if (cacheEvent.getEvictionReason() == EvictionReason.CACHE_FULL) {
+            mFullEvictionCount.incrementAndGet();
+            mFullEvictedBytes.addAndGet(cacheEvent.getItemSize());
+        }
+    }
+
+    @Override
+    public void onCleared() {
+    }
+
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    public long getWriteCount() {
+        return mWriteCount.get();
+    }
+
+    public long getWriteBytes() {
+        return mWriteBytes.get();
+    }
+
+    public long getEvictionCount() {
+        return mEvictionCount.get();
+    }
+
+    public long getEvictedBytes() {
+        return mEvictedBytes.get();
+    }
+
+    public long getFullEvictionCount() {
+        return mFullEvictionCount.get();
+    }
+
+    public long getFullEvictedBytes() {
+        return mFullEvictedBytes.get();
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.facebook.fresco.helper.config;
+
+import java.util.Locale;
+
+/**
+ * 磁盘缓存某一时刻的统计信息，命中和淘汰的次数从进程启动开始计算
+ */
+public class DiskCacheStats {
+
+    public final String name;
+
+    /**
+     * 当前生效的缓存大小上限，单位字节
+     */
+    public final long maxCacheSize;
+
+    /**
+     * 缓存当前占用的大小，单位字节
+     */
+    public final long size;
+
+    /**
+     * 缓存当前的条目数
+     */
+    public final long count;
+
+    public final long hitCount;
+
+    public final long missCount;
+
+    /**
+     * 写入的条目数
+     */
+    public final long writeCount;
+
+    /**
+     * 写入的字节数，即未命中后从网络下载的字节数
+     */
+    public final long writeBytes;
+
+    /**
+     * 命中的字节数，Fresco命中时不提供条目大小，按缓存中条目的平均大小估算
+     */
+    public final long estimatedHitBytes;
+
+    /**
+     * 淘汰的条目数，包括过期、缓存已满、主动删除及系统清理
+     */
+    public final long evictionCount;
+
+    public final long evictedBytes;
+
+    /**
+     * 因缓存已满而淘汰的条目数
+     */
+    public final long fullEvictionCount;
+
+    public DiskCacheStats(String name, long maxCacheSize, long size, long count, long hitCount, long missCount,
+                          long writeCount, long writeBytes, long estimatedHitBytes, long evictionCount,
+                          long evictedBytes, long fullEvictionCount) {
+        this.name = name;
+        this.maxCacheSize = maxCacheSize;
+        this.size = size;
+        this.count = count;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.writeCount = writeCount;
+        this.writeBytes = writeBytes;
+        this.estimatedHitBytes = estimatedHitBytes;
+        this.evictionCount = evictionCount;
+        this.evictedBytes = evictedBytes;
+        this.fullEvictionCount = fullEvictionCount;
+    }
+
+    /**
+     * 按字节计算的命中率，没有访问记录时返回0
+     */
+    public float getByteHitRate() {
+        long total = estimatedHitBytes + writeBytes;
+        return total == 0 ? 0 : (float) estimatedHitBytes / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%s{size=%dKB/%dKB, count=%d, hits=%d, misses=%d, writes=%d (%dKB), byteHitRate=%.2f, "
+                        + "evictions=%d (%dKB), fullEvictions=%d}",
+                name, size / 1024, maxCacheSize / 1024, count, hitCount, missCount, writeCount, writeBytes / 1024,
+                getByteHitRate(), evictionCount, evictedBytes / 1024, fullEvictionCount);
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.facebook.fresco.helper.config;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+
+import com.facebook.common.memory.MemoryTrimType;
+import com.facebook.common.memory.MemoryTrimmable;
+import com.facebook.common.memory.MemoryTrimmableRegistry;
+import com.facebook.fresco.helper.blur.BitmapBlurHelper;
+import com.facebook.imagepipeline.cache.CountingMemoryCache;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * 接收系统的onTrimMemory()回调，按内存紧张程度逐级释放内存，而不是一次清空所有内存缓存：
+ * 1、轻度紧张时只清除未解码图片的内存缓存，解码后的图片不受影响，避免重新解码
+ * 2、中度紧张时再释放模糊处理的临时缓冲区，并按建议比例缩小已解码图片的内存缓存
+ * 3、严重紧张或应用进入后台较久时，清除所有未被使用的缓存，并清空Fresco的各个内存池
+ * <p>
+ * 正在显示的图片不会被清除，Fresco的内存缓存只会释放未被引用的条目。
+ * 已解码图片的内存缓存按比例缩小只在Android 5.0及以上生效，之前的版本Bitmap位于ashmem中，Fresco不做部分清除。
+ * <p>
+ * 需要通过Context.registerComponentCallbacks()注册，并设置给ImagePipelineConfig。
+ */
+public class GraduatedMemoryTrimmableRegistry implements MemoryTrimmableRegistry, ComponentCallbacks2 {
+
+    private final Set<MemoryTrimmable> mTrimmables = new CopyOnWriteArraySet<>();
+
+    private final CacheStatsTracker mStatsTracker;
+
+    private volatile int mLastTrimLevel;
+
+    /**
+     * @param statsTracker 用于区分Fresco注册的已解码和未解码图片的内存缓存，需要同时设置给ImagePipelineConfig
+     */
+    public GraduatedMemoryTrimmableRegistry(CacheStatsTracker statsTracker) {
+        mStatsTracker = statsTracker;
+    }
+
+    @Override
+    public void registerMemoryTrimmable(MemoryTrimmable trimmable) {
+        mTrimmables.add(trimmable);
+    }
+
+    @Override
+    public void unregisterMemoryTrimmable(MemoryTrimmable trimmable) {
+        mTrimmables.remove(trimmable);
+    }
+
+    /**
+     * 最近一次收到的内存等级，参见ComponentCallbacks2.TRIM_MEMORY_*
+     */
+    public int getLastTrimLevel() {
+        return mLastTrimLevel;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        mLastTrimLevel = level;
+
+        // 未解码图片可以从磁盘缓存快速读取，最先清除
+        trim(mStatsTracker.getEncodedMemoryCache(), MemoryTrimType.OnSystemLowMemoryWhileAppInForeground);
+        if (level < TRIM_MEMORY_RUNNING_LOW) {
+            return;
+        }
+
+        BitmapBlurHelper.releaseResources();
+
+        MemoryTrimType bitmapTrimType = getBitmapTrimType(level);
+        if (bitmapTrimType != null) {
+            trim(mStatsTracker.getBitmapMemoryCache(), bitmapTrimType);
+        }
+
+        MemoryTrimType poolTrimType = getPoolTrimType(level);
+        if (poolTrimType != null) {
+            CountingMemoryCache<?, ?> bitmapCache = mStatsTracker.getBitmapMemoryCache();
+            CountingMemoryCache<?, ?> encodedCache = mStatsTracker.getEncodedMemoryCache();
+            for (MemoryTrimmable trimmable : mTrimmables) {
+                if (trimmable != bitmapCache && trimmable != encodedCache) {
+                    trimmable.trim(poolTrimType);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+
+    }
+
+    /**
+     * 各内存等级下已解码图片内存缓存的清除方式，null表示不清除
+     */
+    static MemoryTrimType getBitmapTrimType(int level) {
+        if (level >= TRIM_MEMORY_MODERATE) {
+            return MemoryTrimType.OnSystemLowMemoryWhileAppInBackground;
+        } else if (level >= TRIM_MEMORY_BACKGROUND) {
+            return MemoryTrimType.OnCloseToDalvikHeapLimit;
+        } else if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            // 界面不可见但用户可能马上回来，保留已解码的图片
+            return null;
+        } else if (level >= TRIM_MEMORY_RUNNING_CRITICAL) {
+            return MemoryTrimType.OnSystemLowMemoryWhileAppInForeground;
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            return MemoryTrimType.OnCloseToDalvikHeapLimit;
+        }
+        return null;
+    }
+
+    /**
+     * 各内存等级下Fresco内存池等其他MemoryTrimmable的清除方式，null表示不清除
+     */
+    static MemoryTrimType getPoolTrimType(int level) {
+        if (level >= TRIM_MEMORY_MODERATE) {
+            return MemoryTrimType.OnSystemLowMemoryWhileAppInBackground;
+        } else if (level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            return MemoryTrimType.OnSystemLowMemoryWhileAppInForeground;
+        }
+        return null;
+    }
+
+    private static void trim(MemoryTrimmable trimmable, MemoryTrimType trimType) {
+        if (trimmable != null) {
+            trimmable.trim(trimType);
+        }
+    }
+
+}
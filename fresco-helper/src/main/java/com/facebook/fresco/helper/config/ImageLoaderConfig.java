@@ -1,20 +1,33 @@
 package com.facebook.fresco.helper.config;
 
 import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.Configuration;
 import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
 
 import com.facebook.cache.disk.DiskCacheConfig;
-import com.facebook.common.memory.MemoryTrimType;
-import com.facebook.common.memory.MemoryTrimmable;
-import com.facebook.common.memory.MemoryTrimmableRegistry;
-import com.facebook.common.memory.NoOpMemoryTrimmableRegistry;
-import com.facebook.common.util.ByteConstants;
+import com.facebook.common.statfs.StatFsHelper;
 import com.facebook.drawee.backends.pipeline.Fresco;
+import com.facebook.fresco.helper.cache.CacheEviction;
+import com.facebook.fresco.helper.executor.ImageExecutors;
+import com.facebook.fresco.helper.metrics.PipelineMetrics;
+import com.facebook.fresco.helper.resize.ResizeSavingsInterceptor;
+import com.facebook.fresco.helper.warmup.CacheWarmer;
 import com.facebook.imagepipeline.backends.okhttp3.OkHttpImagePipelineConfigFactory;
+import com.facebook.imagepipeline.common.Priority;
 import com.facebook.imagepipeline.core.ImagePipelineConfig;
+import com.facebook.imagepipeline.core.ImagePipelineFactory;
+import com.facebook.imagepipeline.listener.BaseRequestListener;
+import com.facebook.imagepipeline.listener.RequestListener;
+import com.facebook.imagepipeline.request.ImageRequest;
 
 import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
 
 import okhttp3.OkHttpClient;
 
@@ -28,17 +41,48 @@ public class ImageLoaderConfig {
 
     private static final String IMAGE_PIPELINE_SMALL_CACHE_DIR = "image_small_cache";
 
-    private static final int MAX_DISK_SMALL_CACHE_SIZE = 10 * ByteConstants.MB;
+    private static final String DISK_CACHE_PREFERENCES = "fresco_helper_disk_cache";
 
-    private static final int MAX_DISK_SMALL_ONLOWDISKSPACE_CACHE_SIZE = 5 * ByteConstants.MB;
+    /**
+     * 重新计算磁盘缓存大小的间隔
+     */
+    private static final long DISK_CACHE_REEVALUATE_INTERVAL_MILLIS = 30 * 60 * 1000;
+
+    private static final String HOT_SET_MANIFEST_FILE = "image_hot_set";
 
     private static ImagePipelineConfig sImagePipelineConfig;
 
+    private static CacheStatsTracker sCacheStatsTracker;
+
+    private static AdaptiveMemoryCacheParamsSupplier sBitmapCacheParamsSupplier;
+
+    private static AdaptiveMemoryCacheParamsSupplier sEncodedCacheParamsSupplier;
+
+    private static PipelineMetrics sPipelineMetrics;
+
+    private static OkHttpClient sOkHttpClient;
+
+    private static CacheWarmer sCacheWarmer;
+
+    private static InitTrace sInitTrace;
+
+    private static AdaptiveDiskCacheSizer sMainDiskCacheSizer;
+
+    private static AdaptiveDiskCacheSizer sSmallDiskCacheSizer;
+
     /**
      * Creates config using android http stack as network backend.
      */
     public static ImagePipelineConfig getImagePipelineConfig(final Context context) {
+        return getImagePipelineConfig(context, NetworkConfig.newBuilder().build());
+    }
+
+    /**
+     * Creates config using OkHttp configured by networkConfig as network backend.
+     */
+    public static ImagePipelineConfig getImagePipelineConfig(final Context context, NetworkConfig networkConfig) {
         if (sImagePipelineConfig == null) {
+            sInitTrace = new InitTrace();
             /**
              * 推荐缓存到应用本身的缓存文件夹，这么做的好处是:
              * 1、当应用被用户卸载后能自动清除缓存，增加用户好感（可能以后用得着时，还会想起我）
@@ -49,47 +93,82 @@ public class ImageLoaderConfig {
 //                fileCacheDir = new File(Environment.getExternalStorageDirectory().getAbsolutePath() + "/Fresco");
 //            }
 
-            DiskCacheConfig mainDiskCacheConfig = DiskCacheConfig.newBuilder(context)
+            // 磁盘缓存的大小按可用空间和上次运行的命中率计算
+            SharedPreferences diskCachePreferences = context.getApplicationContext()
+                    .getSharedPreferences(DISK_CACHE_PREFERENCES, Context.MODE_PRIVATE);
+            sMainDiskCacheSizer = AdaptiveDiskCacheSizer.forMainCache(diskCachePreferences);
+            sSmallDiskCacheSizer = AdaptiveDiskCacheSizer.forSmallCache(diskCachePreferences);
+            long freeBytes = getAvailableStorageSpace();
+
+            DiskCacheConfig mainDiskCacheConfig = sMainDiskCacheSizer.apply(DiskCacheConfig.newBuilder(context), freeBytes)
                     .setBaseDirectoryName(IMAGE_PIPELINE_CACHE_DIR)
                     .setBaseDirectoryPath(fileCacheDir)
                     .build();
 
-            DiskCacheConfig smallDiskCacheConfig = DiskCacheConfig.newBuilder(context)
+            DiskCacheConfig smallDiskCacheConfig = sSmallDiskCacheSizer.apply(DiskCacheConfig.newBuilder(context), freeBytes)
                     .setBaseDirectoryPath(fileCacheDir)
                     .setBaseDirectoryName(IMAGE_PIPELINE_SMALL_CACHE_DIR)
-                    .setMaxCacheSize(MAX_DISK_SMALL_CACHE_SIZE)
-                    .setMaxCacheSizeOnLowDiskSpace(MAX_DISK_SMALL_ONLOWDISKSPACE_CACHE_SIZE)
                     .build();
+            scheduleDiskCacheReevaluation();
+            sInitTrace.mark("disk_cache_config");
 
 //            FLog.setMinimumLoggingLevel(FLog.VERBOSE);
-//            Set<RequestListener> requestListeners = new HashSet<>();
+            sPipelineMetrics = new PipelineMetrics();
+            Set<RequestListener> requestListeners = new HashSet<>();
+            requestListeners.add(sPipelineMetrics);
+            // 记录加载过的Uri，用于按标签、URL前缀批量删除缓存
+            requestListeners.add(new BaseRequestListener() {
+                @Override
+                public void onRequestStart(ImageRequest request, Object callerContext, String requestId, boolean isPrefetch) {
+                    CacheEviction.getKeyIndex().record(request.getSourceUri().toString());
+                }
+            });
+            // 记录最常显示的图片，用于冷启动时预热内存缓存
+            sCacheWarmer = new CacheWarmer(new File(fileCacheDir, HOT_SET_MANIFEST_FILE));
+            requestListeners.add(sCacheWarmer);
 //            requestListeners.add(new RequestLoggingListener());
 
-            // 当内存紧张时采取的措施
-            MemoryTrimmableRegistry memoryTrimmableRegistry = NoOpMemoryTrimmableRegistry.getInstance();
-            memoryTrimmableRegistry.registerMemoryTrimmable(new MemoryTrimmable() {
+            // 根据命中率和系统内存等级动态调整内存缓存大小
+            ActivityManager activityManager =
+                    (ActivityManager) context.getApplicationContext().getSystemService(Context.ACTIVITY_SERVICE);
+            sCacheStatsTracker = new CacheStatsTracker();
+            sBitmapCacheParamsSupplier = AdaptiveMemoryCacheParamsSupplier.forBitmapCache(activityManager, sCacheStatsTracker);
+            sEncodedCacheParamsSupplier = AdaptiveMemoryCacheParamsSupplier.forEncodedCache(activityManager, sCacheStatsTracker);
+            context.getApplicationContext().registerComponentCallbacks(new ComponentCallbacks2() {
                 @Override
-                public void trim(MemoryTrimType trimType) {
-                    final double suggestedTrimRatio = trimType.getSuggestedTrimRatio();
-
-                    if (MemoryTrimType.OnCloseToDalvikHeapLimit.getSuggestedTrimRatio() == suggestedTrimRatio
-                            || MemoryTrimType.OnSystemLowMemoryWhileAppInBackground.getSuggestedTrimRatio() == suggestedTrimRatio
-                            || MemoryTrimType.OnSystemLowMemoryWhileAppInForeground.getSuggestedTrimRatio() == suggestedTrimRatio
-                            ) {
-                        // 清除内存缓存
-                        Fresco.getImagePipeline().clearMemoryCaches();
+                public void onTrimMemory(int level) {
+                    sBitmapCacheParamsSupplier.onTrimMemory(level);
+                    sEncodedCacheParamsSupplier.onTrimMemory(level);
+                    // 进入后台或内存紧张时进程随时可能被杀，及时保存预热清单和磁盘缓存的统计数据
+                    sCacheWarmer.save();
+                    if (level >= TRIM_MEMORY_UI_HIDDEN) {
+                        reevaluateDiskCachesAsync();
                     }
                 }
+
+                @Override
+                public void onConfigurationChanged(Configuration newConfig) {
+                }
+
+                @Override
+                public void onLowMemory() {
+                    onTrimMemory(TRIM_MEMORY_COMPLETE);
+                }
             });
 
-//            HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-//            loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-            OkHttpClient okHttpClient = new OkHttpClient.Builder()
-//                    .addInterceptor(loggingInterceptor)
-//                    .retryOnConnectionFailure(false)
+            // 当内存紧张时按紧张程度逐级释放内存
+            GraduatedMemoryTrimmableRegistry memoryTrimmableRegistry = new GraduatedMemoryTrimmableRegistry(sCacheStatsTracker);
+            context.getApplicationContext().registerComponentCallbacks(memoryTrimmableRegistry);
+            sInitTrace.mark("memory_cache");
+
+            // 日志等拦截器通过NetworkConfig.Builder.addInterceptor()添加
+            // 统计CDN缩放节省的流量
+            sOkHttpClient = networkConfig.createOkHttpClient().newBuilder()
+                    .addInterceptor(new ResizeSavingsInterceptor())
                     .build();
+            sInitTrace.mark("okhttp_client");
 
-            sImagePipelineConfig = OkHttpImagePipelineConfigFactory.newBuilder(context, okHttpClient)
+            sImagePipelineConfig = OkHttpImagePipelineConfigFactory.newBuilder(context, sOkHttpClient)
 //            sImagePipelineConfig = ImagePipelineConfig.newBuilder(context)
                     .setBitmapsConfig(Bitmap.Config.RGB_565) // 若不是要求忒高清显示应用，就用使用RGB_565吧（默认是ARGB_8888)
                     .setDownsampleEnabled(true) // 在解码时改变图片的大小，支持PNG、JPG以及WEBP格式的图片，与ResizeOptions配合使用
@@ -105,16 +184,120 @@ public class ImageLoaderConfig {
 //                            return ImmutableQualityInfo.of(scanNumber, isGoodEnough, false);
 //                        }
 //                    })
-//                    .setRequestListeners(requestListeners)
+                    .setRequestListeners(requestListeners) // 统计各阶段耗时及缓存命中率
                     .setMemoryTrimmableRegistry(memoryTrimmableRegistry) // 报内存警告时的监听
                     // 设置内存配置
-                    .setBitmapMemoryCacheParamsSupplier(new BitmapMemoryCacheParamsSupplier(
-                            (ActivityManager) context.getApplicationContext().getSystemService(Context.ACTIVITY_SERVICE)))
+                    .setBitmapMemoryCacheParamsSupplier(sBitmapCacheParamsSupplier)
+                    .setEncodedMemoryCacheParamsSupplier(sEncodedCacheParamsSupplier)
+                    .setImageCacheStatsTracker(sCacheStatsTracker)
                     .setMainDiskCacheConfig(mainDiskCacheConfig) // 设置主磁盘配置
                     .setSmallImageDiskCacheConfig(smallDiskCacheConfig) // 设置小图的磁盘配置
                     .build();
+            sInitTrace.mark("pipeline_config");
         }
         return sImagePipelineConfig;
     }
 
+    /**
+     * 初始化各阶段的耗时，getImagePipelineConfig()之前为null
+     */
+    public static InitTrace getInitTrace() {
+        return sInitTrace;
+    }
+
+    /**
+     * 按最新的可用空间和命中率重新计算两个磁盘缓存的大小，下次启动时生效，可用空间不足时立即清理。
+     * 每隔30分钟以及应用进入后台时自动执行，会读取磁盘，需在后台线程中调用
+     */
+    public static void reevaluateDiskCaches() {
+        if (!Fresco.hasBeenInitialized()) {
+            return;
+        }
+
+        ImagePipelineFactory factory = ImagePipelineFactory.getInstance();
+        long freeBytes = getAvailableStorageSpace();
+        sMainDiskCacheSizer.reevaluate(factory.getMainFileCache(), freeBytes);
+        sSmallDiskCacheSizer.reevaluate(factory.getSmallImageFileCache(), freeBytes);
+    }
+
+    private static void reevaluateDiskCachesAsync() {
+        ImageExecutors.forIo().execute(new Runnable() {
+            @Override
+            public void run() {
+                reevaluateDiskCaches();
+            }
+        }, Priority.LOW);
+    }
+
+    private static void scheduleDiskCacheReevaluation() {
+        final Handler handler = new Handler(Looper.getMainLooper());
+        handler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                reevaluateDiskCachesAsync();
+                handler.postDelayed(this, DISK_CACHE_REEVALUATE_INTERVAL_MILLIS);
+            }
+        }, DISK_CACHE_REEVALUATE_INTERVAL_MILLIS);
+    }
+
+    private static long getAvailableStorageSpace() {
+        return StatFsHelper.getInstance().getAvailableStorageSpace(StatFsHelper.StorageType.INTERNAL);
+    }
+
+    /**
+     * 主磁盘缓存的大小计算及统计，getImagePipelineConfig()之前为null
+     */
+    public static AdaptiveDiskCacheSizer getMainDiskCacheSizer() {
+        return sMainDiskCacheSizer;
+    }
+
+    /**
+     * 小图磁盘缓存的大小计算及统计，getImagePipelineConfig()之前为null
+     */
+    public static AdaptiveDiskCacheSizer getSmallDiskCacheSizer() {
+        return sSmallDiskCacheSizer;
+    }
+
+    /**
+     * 缓存命中统计，getImagePipelineConfig()之前为null
+     */
+    public static CacheStatsTracker getCacheStatsTracker() {
+        return sCacheStatsTracker;
+    }
+
+    /**
+     * 已解码图片内存缓存的动态配置，可通过getLastDecision()查看当前的缓存大小及依据，getImagePipelineConfig()之前为null
+     */
+    public static AdaptiveMemoryCacheParamsSupplier getBitmapCacheParamsSupplier() {
+        return sBitmapCacheParamsSupplier;
+    }
+
+    /**
+     * 未解码图片内存缓存的动态配置，getImagePipelineConfig()之前为null
+     */
+    public static AdaptiveMemoryCacheParamsSupplier getEncodedCacheParamsSupplier() {
+        return sEncodedCacheParamsSupplier;
+    }
+
+    /**
+     * 图片请求的统计，getImagePipelineConfig()之前为null
+     */
+    public static PipelineMetrics getPipelineMetrics() {
+        return sPipelineMetrics;
+    }
+
+    /**
+     * 冷启动内存缓存预热，getImagePipelineConfig()之前为null
+     */
+    public static CacheWarmer getCacheWarmer() {
+        return sCacheWarmer;
+    }
+
+    /**
+     * 图片下载使用的OkHttpClient，getImagePipelineConfig()之前为null
+     */
+    public static OkHttpClient getOkHttpClient() {
+        return sOkHttpClient;
+    }
+
 }
@@ -0,0 +1,95 @@
+package com.facebook.fresco.helper.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录初始化各阶段的耗时，用于衡量冷启动的优化效果：
+ * <pre>
+ * InitTrace{total=86ms, blocked=12ms, disk_cache_config=3ms@main, ..., fresco_initialize=41ms@Phoenix-init}
+ * </pre>
+ * 每个阶段的耗时为与上一次mark()之间的间隔，并记录所在的线程。
+ * blocked为其他线程等待初始化完成的总时长，后台初始化时主线程实际等待的时间。线程安全。
+ */
+public class InitTrace {
+
+    public static class Phase {
+
+        public final String name;
+
+        public final long durationMillis;
+
+        public final String threadName;
+
+        public Phase(String name, long durationMillis, String threadName) {
+            this.name = name;
+            this.durationMillis = durationMillis;
+            this.threadName = threadName;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s=%dms@%s", name, durationMillis, threadName);
+        }
+
+    }
+
+    private final long mStartNanos;
+
+    private final List<Phase> mPhases = new ArrayList<>();
+
+    private long mLastMarkNanos;
+
+    private long mBlockedNanos;
+
+    public InitTrace() {
+        mStartNanos = System.nanoTime();
+        mLastMarkNanos = mStartNanos;
+    }
+
+    /**
+     * 结束一个阶段，并开始下一个阶段
+     */
+    public synchronized void mark(String phase) {
+        long now = System.nanoTime();
+        mPhases.add(new Phase(phase, TimeUnit.NANOSECONDS.toMillis(now - mLastMarkNanos),
+                Thread.currentThread().getName()));
+        mLastMarkNanos = now;
+    }
+
+    /**
+     * 记录一次等待初始化完成的时长
+     */
+    public synchronized void addBlocked(long nanos) {
+        mBlockedNanos += nanos;
+    }
+
+    public synchronized List<Phase> getPhases() {
+        return Collections.unmodifiableList(new ArrayList<>(mPhases));
+    }
+
+    /**
+     * 从创建到最后一次mark()的时长
+     */
+    public synchronized long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(mLastMarkNanos - mStartNanos);
+    }
+
+    public synchronized long getBlockedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(mBlockedNanos);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder("InitTrace{total=").append(getTotalMillis())
+                .append("ms, blocked=").append(getBlockedMillis()).append("ms");
+        for (Phase phase : mPhases) {
+            sb.append(", ").append(phase);
+        }
+        return sb.append('}').toString();
+    }
+
+}
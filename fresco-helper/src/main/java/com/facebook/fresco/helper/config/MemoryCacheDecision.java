@@ -0,0 +1,96 @@
+package com.facebook.fresco.helper.config;
+
+import java.util.Locale;
+
+/**
+ * AdaptiveMemoryCacheParamsSupplier某一次调整内存缓存大小的依据和结果
+ */
+public class MemoryCacheDecision {
+
+    /**
+     * 本次调整的原因
+     */
+    public enum Reason {
+        /**
+         * 初始值
+         */
+        INITIAL,
+        /**
+         * 样本不足或命中率正常，保持不变
+         */
+        HOLD,
+        /**
+         * 缓存已满且命中率低，扩大
+         */
+        GROW,
+        /**
+         * 缓存利用率低且命中率高，缩小
+         */
+        SHRINK,
+        /**
+         * 系统内存紧张，缩小
+         */
+        TRIM
+    }
+
+    public final String name;
+
+    public final Reason reason;
+
+    /**
+     * 缓存总大小的上限，单位字节
+     */
+    public final int maxCacheSize;
+
+    /**
+     * 缓存条目数的上限
+     */
+    public final int maxCacheEntries;
+
+    /**
+     * 自上次调整以来的命中率，没有样本时为-1
+     */
+    public final float hitRate;
+
+    /**
+     * 自上次调整以来的请求数
+     */
+    public final long sampleCount;
+
+    /**
+     * 缓存中条目的平均大小，单位字节，未知时为0
+     */
+    public final int averageEntrySize;
+
+    /**
+     * 缓存当前占用的大小，单位字节
+     */
+    public final int usedSize;
+
+    /**
+     * 调整时的系统内存等级，参见ComponentCallbacks2.TRIM_MEMORY_*
+     */
+    public final int trimLevel;
+
+    public MemoryCacheDecision(String name, Reason reason, int maxCacheSize, int maxCacheEntries, float hitRate,
+                               long sampleCount, int averageEntrySize, int usedSize, int trimLevel) {
+        this.name = name;
+        this.reason = reason;
+        this.maxCacheSize = maxCacheSize;
+        this.maxCacheEntries = maxCacheEntries;
+        this.hitRate = hitRate;
+        this.sampleCount = sampleCount;
+        this.averageEntrySize = averageEntrySize;
+        this.usedSize = usedSize;
+        this.trimLevel = trimLevel;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%s{%s, maxSize=%dKB, maxEntries=%d, used=%dKB, hitRate=%.2f, samples=%d, avgEntry=%dKB, trimLevel=%d}",
+                name, reason, maxCacheSize / 1024, maxCacheEntries, usedSize / 1024, hitRate, sampleCount,
+                averageEntrySize / 1024, trimLevel);
+    }
+
+}
@@ -0,0 +1,290 @@
+package com.facebook.fresco.helper.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * 图片下载使用的OkHttp配置。OkHttp默认每个host最多同时5个请求，而图片通常集中在同一个CDN域名下，
+ * 默认值会让列表页的图片排队下载，因此这里的默认值按图片加载的场景做了调整：
+ * <pre>
+ * NetworkConfig networkConfig = NetworkConfig.newBuilder()
+ *         .setMaxRequestsPerHost(12)
+ *         .addInterceptor(new HttpLoggingInterceptor())
+ *         .build();
+ * Phoenix.init(context, networkConfig);
+ * </pre>
+ */
+public class NetworkConfig {
+
+    public static final int DEFAULT_MAX_REQUESTS = 64;
+
+    public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 10;
+
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 10;
+
+    public static final long DEFAULT_KEEP_ALIVE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    public static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    public static final long DEFAULT_READ_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(20);
+
+    public static final long DEFAULT_WRITE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(20);
+
+    private final int mMaxRequests;
+
+    private final int mMaxRequestsPerHost;
+
+    private final int mMaxIdleConnections;
+
+    private final long mKeepAliveMillis;
+
+    private final boolean mHttp2Enabled;
+
+    private final long mConnectTimeoutMillis;
+
+    private final long mReadTimeoutMillis;
+
+    private final long mWriteTimeoutMillis;
+
+    private final List<Interceptor> mInterceptors;
+
+    private final List<Interceptor> mNetworkInterceptors;
+
+    private NetworkConfig(Builder builder) {
+        mMaxRequests = builder.mMaxRequests;
+        mMaxRequestsPerHost = builder.mMaxRequestsPerHost;
+        mMaxIdleConnections = builder.mMaxIdleConnections;
+        mKeepAliveMillis = builder.mKeepAliveMillis;
+        mHttp2Enabled = builder.mHttp2Enabled;
+        mConnectTimeoutMillis = builder.mConnectTimeoutMillis;
+        mReadTimeoutMillis = builder.mReadTimeoutMillis;
+        mWriteTimeoutMillis = builder.mWriteTimeoutMillis;
+        mInterceptors = Collections.unmodifiableList(new ArrayList<>(builder.mInterceptors));
+        mNetworkInterceptors = Collections.unmodifiableList(new ArrayList<>(builder.mNetworkInterceptors));
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * 按当前配置创建OkHttpClient
+     */
+    public OkHttpClient createOkHttpClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(mMaxRequests);
+        dispatcher.setMaxRequestsPerHost(mMaxRequestsPerHost);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(mMaxIdleConnections, mKeepAliveMillis, TimeUnit.MILLISECONDS))
+                .connectTimeout(mConnectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(mReadTimeoutMillis, TimeUnit.MILLISECONDS)
+                .writeTimeout(mWriteTimeoutMillis, TimeUnit.MILLISECONDS);
+        if (mHttp2Enabled) {
+            // HTTP/2需要服务端通过ALPN协商，不支持时自动退回HTTP/1.1
+            builder.protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+        } else {
+            builder.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+        }
+        for (Interceptor interceptor : mInterceptors) {
+            builder.addInterceptor(interceptor);
+        }
+        for (Interceptor interceptor : mNetworkInterceptors) {
+            builder.addNetworkInterceptor(interceptor);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 统计OkHttpClient中各个host正在进行中的请求数，不包括排队中的请求
+     *
+     * @return host -> 请求数
+     */
+    public static Map<String, Integer> getInFlightCountsByHost(OkHttpClient client) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Call call : client.dispatcher().runningCalls()) {
+            String host = call.request().url().host();
+            Integer count = counts.get(host);
+            counts.put(host, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+
+    public int getMaxRequests() {
+        return mMaxRequests;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return mMaxRequestsPerHost;
+    }
+
+    public int getMaxIdleConnections() {
+        return mMaxIdleConnections;
+    }
+
+    public long getKeepAliveMillis() {
+        return mKeepAliveMillis;
+    }
+
+    public boolean isHttp2Enabled() {
+        return mHttp2Enabled;
+    }
+
+    public long getConnectTimeoutMillis() {
+        return mConnectTimeoutMillis;
+    }
+
+    public long getReadTimeoutMillis() {
+        return mReadTimeoutMillis;
+    }
+
+    public long getWriteTimeoutMillis() {
+        return mWriteTimeoutMillis;
+    }
+
+    public List<Interceptor> getInterceptors() {
+        return mInterceptors;
+    }
+
+    public List<Interceptor> getNetworkInterceptors() {
+        return mNetworkInterceptors;
+    }
+
+    public static class Builder {
+
+        private int mMaxRequests = DEFAULT_MAX_REQUESTS;
+
+        private int mMaxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+
+        private int mMaxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+
+        private long mKeepAliveMillis = DEFAULT_KEEP_ALIVE_MILLIS;
+
+        private boolean mHttp2Enabled = true;
+
+        private long mConnectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+
+        private long mReadTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
+
+        private long mWriteTimeoutMillis = DEFAULT_WRITE_TIMEOUT_MILLIS;
+
+        private final List<Interceptor> mInterceptors = new ArrayList<>();
+
+        private final List<Interceptor> mNetworkInterceptors = new ArrayList<>();
+
+        private Builder() {
+
+        }
+
+        /**
+         * 同时进行中的请求总数上限
+         */
+        public Builder setMaxRequests(int maxRequests) {
+            checkPositive(maxRequests, "maxRequests");
+            mMaxRequests = maxRequests;
+            return this;
+        }
+
+        /**
+         * 同一个host同时进行中的请求数上限
+         */
+        public Builder setMaxRequestsPerHost(int maxRequestsPerHost) {
+            checkPositive(maxRequestsPerHost, "maxRequestsPerHost");
+            mMaxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * 连接池中保留的空闲连接数上限
+         */
+        public Builder setMaxIdleConnections(int maxIdleConnections) {
+            if (maxIdleConnections < 0) {
+                throw new IllegalArgumentException("maxIdleConnections < 0");
+            }
+            mMaxIdleConnections = maxIdleConnections;
+            return this;
+        }
+
+        /**
+         * 空闲连接保留的时长
+         */
+        public Builder setKeepAlive(long duration, TimeUnit unit) {
+            checkPositive(duration, "keepAlive");
+            mKeepAliveMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        /**
+         * 是否优先使用HTTP/2，默认开启。同一个host的请求可复用一个连接
+         */
+        public Builder setHttp2Enabled(boolean http2Enabled) {
+            mHttp2Enabled = http2Enabled;
+            return this;
+        }
+
+        /**
+         * 连接超时，0表示不超时
+         */
+        public Builder setConnectTimeout(long timeout, TimeUnit unit) {
+            mConnectTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * 读超时，0表示不超时
+         */
+        public Builder setReadTimeout(long timeout, TimeUnit unit) {
+            mReadTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * 写超时，0表示不超时
+         */
+        public Builder setWriteTimeout(long timeout, TimeUnit unit) {
+            mWriteTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * 添加应用层拦截器，按添加顺序执行
+         */
+        public Builder addInterceptor(Interceptor interceptor) {
+            mInterceptors.add(interceptor);
+            return this;
+        }
+
+        /**
+         * 添加网络层拦截器，按添加顺序执行
+         */
+        public Builder addNetworkInterceptor(Interceptor interceptor) {
+            mNetworkInterceptors.add(interceptor);
+            return this;
+        }
+
+        public NetworkConfig build() {
+            return new NetworkConfig(this);
+        }
+
+        private static void checkPositive(long value, String name) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " must be > 0");
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.facebook.fresco.helper.executor;
+
+import java.util.Locale;
+
+/**
+ * 线程池某一时刻的统计信息
+ */
+public class ExecutorStats {
+
+    public final String name;
+
+    /**
+     * 最大线程数
+     */
+    public final int maxThreads;
+
+    /**
+     * 当前线程数
+     */
+    public final int poolSize;
+
+    /**
+     * 正在执行任务的线程数
+     */
+    public final int activeCount;
+
+    /**
+     * 正在排队的任务数
+     */
+    public final int queueDepth;
+
+    /**
+     * 累计提交的任务数
+     */
+    public final long submittedCount;
+
+    /**
+     * 累计执行完成的任务数
+     */
+    public final long completedCount;
+
+    /**
+     * 任务在队列中的平均等待时间，单位毫秒
+     */
+    public final long averageWaitMillis;
+
+    /**
+     * 任务在队列中的最长等待时间，单位毫秒
+     */
+    public final long maxWaitMillis;
+
+    public ExecutorStats(String name, int maxThreads, int poolSize, int activeCount, int queueDepth,
+                         long submittedCount, long completedCount, long averageWaitMillis, long maxWaitMillis) {
+        this.name = name;
+        this.maxThreads = maxThreads;
+        this.poolSize = poolSize;
+        this.activeCount = activeCount;
+        this.queueDepth = queueDepth;
+        this.submittedCount = submittedCount;
+        this.completedCount = completedCount;
+        this.averageWaitMillis = averageWaitMillis;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%s{threads=%d/%d, active=%d, queue=%d, submitted=%d, completed=%d, avgWait=%dms, maxWait=%dms}",
+                name, poolSize, maxThreads, activeCount, queueDepth, submittedCount, completedCount,
+                averageWaitMillis, maxWaitMillis);
+    }
+
+}
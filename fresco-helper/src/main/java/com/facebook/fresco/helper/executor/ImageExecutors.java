@@ -0,0 +1,80 @@
+package com.facebook.fresco.helper.executor;
+
+import com.facebook.common.executors.UiThreadImmediateExecutorService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * 图片加载相关回调共用的线程池，替代每次请求都创建一个Executors.newSingleThreadExecutor()的做法：
+ * 1、forIo() 文件读写、数据库等IO操作，线程数固定为IO_THREADS
+ * 2、forCpu() Bitmap拷贝、模糊等计算密集的操作，线程数与CPU核数相同
+ * 3、forMainThread() 需要在回调中操作UI时使用
+ * <p>
+ * 线程池的线程空闲30秒后自动退出，不会常驻。
+ */
+public final class ImageExecutors {
+
+    private static final int IO_THREADS = 4;
+
+    private static final int CPU_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static volatile InstrumentedExecutor sIoExecutor;
+
+    private static volatile InstrumentedExecutor sCpuExecutor;
+
+    private ImageExecutors() {
+
+    }
+
+    /**
+     * 用于IO操作的线程池
+     */
+    public static InstrumentedExecutor forIo() {
+        if (sIoExecutor == null) {
+            synchronized (ImageExecutors.class) {
+                if (sIoExecutor == null) {
+                    sIoExecutor = new InstrumentedExecutor("FrescoHelper-io", IO_THREADS, Thread.NORM_PRIORITY - 1);
+                }
+            }
+        }
+        return sIoExecutor;
+    }
+
+    /**
+     * 用于计算密集型操作的线程池
+     */
+    public static InstrumentedExecutor forCpu() {
+        if (sCpuExecutor == null) {
+            synchronized (ImageExecutors.class) {
+                if (sCpuExecutor == null) {
+                    sCpuExecutor = new InstrumentedExecutor("FrescoHelper-cpu", CPU_THREADS, Thread.NORM_PRIORITY - 1);
+                }
+            }
+        }
+        return sCpuExecutor;
+    }
+
+    /**
+     * 在主线程中执行回调，若当前已在主线程则立即执行
+     */
+    public static Executor forMainThread() {
+        return UiThreadImmediateExecutorService.getInstance();
+    }
+
+    /**
+     * 获取已创建的各个线程池的统计信息
+     */
+    public static List<ExecutorStats> getStats() {
+        List<ExecutorStats> stats = new ArrayList<>(2);
+        if (sIoExecutor != null) {
+            stats.add(sIoExecutor.getStats());
+        }
+        if (sCpuExecutor != null) {
+            stats.add(sCpuExecutor.getStats());
+        }
+        return stats;
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.facebook.fresco.helper.executor;
+
+import com.facebook.imagepipeline.common.Priority;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 线程数有上限、支持任务优先级并带有统计信息的线程池：
+ * 1、线程按名称前缀编号，便于在trace和ANR日志中定位
+ * 2、任务按Priority排队，同一优先级内先进先出
+ * 3、统计排队任务数、任务在队列中的等待时间以及已完成的任务数
+ */
+public class InstrumentedExecutor extends ThreadPoolExecutor {
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final String mName;
+
+    private final AtomicLong mSequence = new AtomicLong();
+
+    private final AtomicLong mSubmittedCount = new AtomicLong();
+
+    private final AtomicLong mTotalWaitNanos = new AtomicLong();
+
+    private final AtomicLong mMaxWaitNanos = new AtomicLong();
+
+    private final AtomicLong mStartedCount = new AtomicLong();
+
+    private final Executor mLowPriorityExecutor = new PriorityExecutor(Priority.LOW);
+
+    private final Executor mHighPriorityExecutor = new PriorityExecutor(Priority.HIGH);
+
+    /**
+     * @param name       线程池名称，同时作为线程名前缀
+     * @param maxThreads 最大线程数
+     * @param threadPriority 线程优先级，取值见Thread.MIN_PRIORITY ~ Thread.MAX_PRIORITY
+     */
+    public InstrumentedExecutor(final String name, int maxThreads, final int threadPriority) {
+        super(maxThreads, maxThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger mCount = new AtomicInteger(1);
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, name + " #" + mCount.getAndIncrement());
+                        thread.setDaemon(true);
+                        thread.setPriority(threadPriority);
+                        return thread;
+                    }
+                });
+        allowCoreThreadTimeOut(true);
+        mName = name;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        execute(command, Priority.MEDIUM);
+    }
+
+    /**
+     * 以指定的优先级执行任务
+     */
+    public void execute(Runnable command, Priority priority) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+
+        mSubmittedCount.incrementAndGet();
+        super.execute(command instanceof PriorityTask
+                ? command
+                : new PriorityTask(command, priority, mSequence.getAndIncrement()));
+    }
+
+    /**
+     * 返回一个以指定优先级提交任务的Executor视图，可直接传给DataSource.subscribe()
+     */
+    public Executor withPriority(Priority priority) {
+        switch (priority) {
+            case LOW:
+                return mLowPriorityExecutor;
+            case HIGH:
+                return mHighPriorityExecutor;
+            default:
+                return this;
+        }
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        if (r instanceof PriorityTask) {
+            long waitNanos = System.nanoTime() - ((PriorityTask) r).mEnqueueTime;
+            mTotalWaitNanos.addAndGet(waitNanos);
+            long max;
+            while (waitNanos > (max = mMaxWaitNanos.get())) {
+                if (mMaxWaitNanos.compareAndSet(max, waitNanos)) {
+                    break;
+                }
+            }
+        }
+        mStartedCount.incrementAndGet();
+    }
+
+    /**
+     * 获取当前的统计信息
+     */
+    public ExecutorStats getStats() {
+        long started = mStartedCount.get();
+        return new ExecutorStats(mName,
+                getMaximumPoolSize(),
+                getPoolSize(),
+                getActiveCount(),
+                getQueue().size(),
+                mSubmittedCount.get(),
+                getCompletedTaskCount(),
+                started == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(mTotalWaitNanos.get() / started),
+                TimeUnit.NANOSECONDS.toMillis(mMaxWaitNanos.get()));
+    }
+
+    private class PriorityExecutor implements Executor {
+
+        private final Priority mPriority;
+
+        PriorityExecutor(Priority priority) {
+            mPriority = priority;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            InstrumentedExecutor.this.execute(command, mPriority);
+        }
+    }
+
+    private static final class PriorityTask implements Runnable, Comparable<PriorityTask> {
+
+        private final Runnable mRunnable;
+
+        private final Priority mPriority;
+
+        private final long mSequence;
+
+        private final long mEnqueueTime = System.nanoTime();
+
+        PriorityTask(Runnable runnable, Priority priority, long sequence) {
+            mRunnable = runnable;
+            mPriority = priority;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            mRunnable.run();
+        }
+
+        @Override
+        public int compareTo(PriorityTask another) {
+            // 优先级高的排在前面，同一优先级按提交顺序
+            int result = another.mPriority.ordinal() - mPriority.ordinal();
+            if (result != 0) {
+                return result;
+            }
+            return mSequence < another.mSequence ? -1 : (mSequence == another.mSequence ? 0 : 1);
+        }
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.facebook.fresco.helper.listener;
+
+import com.facebook.fresco.helper.BitmapLease;
+
+/**
+ * 以租用方式加载图片的结果监听器，不拷贝Bitmap，使用完毕后必须调用BitmapLease.release()
+ */
+public interface LoadBitmapLeaseResult {
+
+    void onResult(BitmapLease lease);
+
+}
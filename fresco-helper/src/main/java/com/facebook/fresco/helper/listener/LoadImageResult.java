@@ -4,6 +4,8 @@ import android.graphics.Bitmap;
 
 /**
  * 加载图片的结果监听器
+ * <p>
+ * 同时请求同一张图片的多个监听器收到的是同一个Bitmap，不要修改或recycle()它，需要修改时先调用Bitmap.copy()拷贝一份
  *
  * Created by android_ls on 16/9/10.
  */
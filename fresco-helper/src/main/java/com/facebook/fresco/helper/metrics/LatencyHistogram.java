@@ -0,0 +1,146 @@
+package com.facebook.fresco.helper.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁的耗时直方图，按2的幂分桶：第0个桶记录小于1ms的耗时，第i个桶记录[2^(i-1), 2^i)ms的耗时，
+ * 最后一个桶记录所有更长的耗时。可在任意线程中并发调用record()。
+ */
+public class LatencyHistogram {
+
+    /**
+     * 桶的数量，最后一个有上限的桶为[8192, 16384)ms
+     */
+    public static final int BUCKET_COUNT = 16;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong mCount = new AtomicLong();
+
+    private final AtomicLong mSum = new AtomicLong();
+
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * 记录一次耗时
+     *
+     * @param millis 耗时，单位毫秒
+     */
+    public void record(long millis) {
+        if (millis < 0) {
+            millis = 0;
+        }
+
+        mBuckets.incrementAndGet(bucketOf(millis));
+        mCount.incrementAndGet();
+        mSum.addAndGet(millis);
+
+        long max;
+        while (millis > (max = mMax.get())) {
+            if (mMax.compareAndSet(max, millis)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 当前数据的快照。由于不加锁，并发记录时各字段之间可能相差几次记录
+     */
+    public Snapshot snapshot() {
+        long[] buckets = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = mBuckets.get(i);
+        }
+        return new Snapshot(mCount.get(), mSum.get(), mMax.get(), buckets);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mBuckets.set(i, 0);
+        }
+        mCount.set(0);
+        mSum.set(0);
+        mMax.set(0);
+    }
+
+    static int bucketOf(long millis) {
+        int bucket = 64 - Long.numberOfLeadingZeros(millis);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * 第bucket个桶的上限（不含），单位毫秒，最后一个桶返回Long.MAX_VALUE
+     */
+    public static long upperBoundOf(int bucket) {
+        return bucket >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    /**
+     * 直方图某一时刻的数据
+     */
+    public static class Snapshot {
+
+        public final long count;
+
+        /**
+         * 耗时总和，单位毫秒
+         */
+        public final long sum;
+
+        /**
+         * 最长耗时，单位毫秒
+         */
+        public final long max;
+
+        private final long[] mBuckets;
+
+        public Snapshot(long count, long sum, long max, long[] buckets) {
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+            mBuckets = buckets;
+        }
+
+        /**
+         * 第bucket个桶的记录数
+         */
+        public long getBucketCount(int bucket) {
+            return mBuckets[bucket];
+        }
+
+        /**
+         * 平均耗时，单位毫秒
+         */
+        public long getMean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        /**
+         * 估算百分位耗时，返回所在桶的上限（不超过最长耗时），单位毫秒
+         *
+         * @param percentile 0~100
+         */
+        public long getPercentile(double percentile) {
+            long total = 0;
+            for (long bucketCount : mBuckets) {
+                total += bucketCount;
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long target = (long) Math.ceil(total * percentile / 100);
+            long cumulative = 0;
+            for (int i = 0; i < mBuckets.length; i++) {
+                cumulative += mBuckets[i];
+                if (cumulative >= target) {
+                    return Math.min(upperBoundOf(i), max);
+                }
+            }
+            return max;
+        }
+
+    }
+
+}
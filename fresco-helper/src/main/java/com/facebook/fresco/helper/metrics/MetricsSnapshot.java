@@ -0,0 +1,102 @@
+package com.facebook.fresco.helper.metrics;
+
+import java.util.Locale;
+
+/**
+ * PipelineMetrics某一时刻的统计数据
+ */
+public class MetricsSnapshot {
+
+    /**
+     * 生成快照的时间，System.currentTimeMillis()
+     */
+    public final long timestamp;
+
+    public final long requestCount;
+
+    public final long successCount;
+
+    public final long failureCount;
+
+    public final long cancellationCount;
+
+    /**
+     * 经服务端缩放的下载次数
+     */
+    public final long resizedCount;
+
+    /**
+     * 经服务端缩放的下载的总字节数
+     */
+    public final long resizedBytes;
+
+    /**
+     * 服务端缩放估算节省的字节数，按原图大小的样本推算，没有样本时为0
+     */
+    public final long estimatedSavedBytes;
+
+    private final LatencyHistogram.Snapshot[] mLatencies;
+
+    private final long[] mHits;
+
+    private final long[] mMisses;
+
+    public MetricsSnapshot(long timestamp, long requestCount, long successCount, long failureCount,
+                           long cancellationCount, LatencyHistogram.Snapshot[] latencies, long[] hits, long[] misses,
+                           long resizedCount, long resizedBytes, long estimatedSavedBytes) {
+        this.timestamp = timestamp;
+        this.requestCount = requestCount;
+        this.successCount = successCount;
+        this.failureCount = failureCount;
+        this.cancellationCount = cancellationCount;
+        mLatencies = latencies;
+        mHits = hits;
+        mMisses = misses;
+        this.resizedCount = resizedCount;
+        this.resizedBytes = resizedBytes;
+        this.estimatedSavedBytes = estimatedSavedBytes;
+    }
+
+    /**
+     * 某个阶段的耗时分布
+     */
+    public LatencyHistogram.Snapshot getLatency(PipelineMetrics.Stage stage) {
+        return mLatencies[stage.ordinal()];
+    }
+
+    public long getHits(PipelineMetrics.CacheTier tier) {
+        return mHits[tier.ordinal()];
+    }
+
+    public long getMisses(PipelineMetrics.CacheTier tier) {
+        return mMisses[tier.ordinal()];
+    }
+
+    /**
+     * 某级缓存的命中率，没有访问记录时返回0
+     */
+    public float getHitRate(PipelineMetrics.CacheTier tier) {
+        long total = getHits(tier) + getMisses(tier);
+        return total == 0 ? 0 : (float) getHits(tier) / total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.US, "MetricsSnapshot{requests=%d, success=%d, failure=%d, cancel=%d",
+                requestCount, successCount, failureCount, cancellationCount));
+        for (PipelineMetrics.CacheTier tier : PipelineMetrics.CacheTier.values()) {
+            builder.append(String.format(Locale.US, ", %s=%d/%d", tier, getHits(tier), getHits(tier) + getMisses(tier)));
+        }
+        for (PipelineMetrics.Stage stage : PipelineMetrics.Stage.values()) {
+            LatencyHistogram.Snapshot latency = getLatency(stage);
+            builder.append(String.format(Locale.US, ", %s{n=%d, mean=%dms, p50=%dms, p95=%dms, max=%dms}",
+                    stage, latency.count, latency.getMean(), latency.getPercentile(50), latency.getPercentile(95),
+                    latency.max));
+        }
+        builder.append(String.format(Locale.US, ", resized=%d, resizedBytes=%dKB, savedBytes=%dKB",
+                resizedCount, resizedBytes / 1024, estimatedSavedBytes / 1024));
+        return builder.append('}').toString();
+    }
+
+}
@@ -0,0 +1,336 @@
+package com.facebook.fresco.helper.metrics;
+
+import android.os.SystemClock;
+
+import com.facebook.imagepipeline.listener.RequestListener;
+import com.facebook.imagepipeline.producers.BitmapMemoryCacheGetProducer;
+import com.facebook.imagepipeline.producers.BitmapMemoryCacheProducer;
+import com.facebook.imagepipeline.producers.DecodeProducer;
+import com.facebook.imagepipeline.producers.DiskCacheProducer;
+import com.facebook.imagepipeline.producers.EncodedMemoryCacheProducer;
+import com.facebook.imagepipeline.producers.NetworkFetchProducer;
+import com.facebook.imagepipeline.producers.PostprocessorProducer;
+import com.facebook.imagepipeline.request.ImageRequest;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 图片请求的统计，作为RequestListener设置给ImagePipelineConfig：
+ * 1、记录每个请求在各个阶段（内存缓存、磁盘缓存、网络、解码、后处理）的耗时，汇总为耗时直方图
+ * 2、统计各级缓存的命中和未命中次数，磁盘缓存区分小图缓存和默认缓存
+ * 3、统计服务端缩放（CdnResizer）下载的字节数，并根据原图大小的样本估算节省的流量
+ * <p>
+ * 所有回调都可能在任意线程中并发执行，统计数据不加锁，通过snapshot()获取。
+ */
+public class PipelineMetrics implements RequestListener {
+
+    /**
+     * 请求的处理阶段
+     */
+    public enum Stage {
+        /**
+         * 已解码图片的内存缓存
+         */
+        BITMAP_CACHE,
+        /**
+         * 未解码图片的内存缓存
+         */
+        ENCODED_CACHE,
+        /**
+         * 磁盘缓存
+         */
+        DISK_CACHE,
+        /**
+         * 网络下载
+         */
+        NETWORK,
+        /**
+         * 解码
+         */
+        DECODE,
+        /**
+         * 后处理（如模糊处理）
+         */
+        POSTPROCESS,
+        /**
+         * 整个请求
+         */
+        TOTAL
+    }
+
+    /**
+     * 缓存层级
+     */
+    public enum CacheTier {
+        BITMAP_MEMORY,
+        ENCODED_MEMORY,
+        /**
+         * 小图的磁盘缓存（ImageRequest.CacheChoice.SMALL）
+         */
+        DISK_SMALL,
+        /**
+         * 默认的磁盘缓存（ImageRequest.CacheChoice.DEFAULT）
+         */
+        DISK_DEFAULT
+    }
+
+    private static final String EXTRA_CACHED_VALUE_FOUND = "cached_value_found";
+
+    private final LatencyHistogram[] mLatencies = new LatencyHistogram[Stage.values().length];
+
+    private final AtomicLongArray mHits = new AtomicLongArray(CacheTier.values().length);
+
+    private final AtomicLongArray mMisses = new AtomicLongArray(CacheTier.values().length);
+
+    /**
+     * 请求数、成功数、失败数、取消数
+     */
+    private final AtomicLongArray mRequestCounts = new AtomicLongArray(4);
+
+    private final Map<String, RequestState> mRequests = new ConcurrentHashMap<>();
+
+    private final AtomicLong mResizedCount = new AtomicLong();
+
+    private final AtomicLong mResizedBytes = new AtomicLong();
+
+    private final Object mSampleLock = new Object();
+
+    /**
+     * 样本中原图的总字节数和对应缩放后图片的总字节数，两者需要成对更新，由mSampleLock保护
+     */
+    private long mSampledOriginalBytes;
+
+    private long mSampledResizedBytes;
+
+    public PipelineMetrics() {
+        for (int i = 0; i < mLatencies.length; i++) {
+            mLatencies[i] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public void onRequestStart(ImageRequest request, Object callerContext, String requestId, boolean isPrefetch) {
+        mRequestCounts.incrementAndGet(0);
+        mRequests.put(requestId, new RequestState(request.getCacheChoice() == ImageRequest.CacheChoice.SMALL));
+    }
+
+    @Override
+    public void onRequestSuccess(ImageRequest request, String requestId, boolean isPrefetch) {
+        mRequestCounts.incrementAndGet(1);
+        finishRequest(requestId);
+    }
+
+    @Override
+    public void onRequestFailure(ImageRequest request, String requestId, Throwable throwable, boolean isPrefetch) {
+        mRequestCounts.incrementAndGet(2);
+        finishRequest(requestId);
+    }
+
+    @Override
+    public void onRequestCancellation(String requestId) {
+        mRequestCounts.incrementAndGet(3);
+        mRequests.remove(requestId);
+    }
+
+    @Override
+    public void onProducerStart(String requestId, String producerName) {
+        RequestState state = mRequests.get(requestId);
+        if (state != null && stageOf(producerName) != null) {
+            state.mProducerStartTimes.put(producerName, SystemClock.uptimeMillis());
+        }
+    }
+
+    @Override
+    public void onProducerEvent(String requestId, String producerName, String eventName) {
+
+    }
+
+    @Override
+    public void onProducerFinishWithSuccess(String requestId, String producerName, Map<String, String> extraMap) {
+        onProducerFinish(requestId, producerName, extraMap);
+    }
+
+    @Override
+    public void onProducerFinishWithFailure(String requestId, String producerName, Throwable t,
+                                            Map<String, String> extraMap) {
+        onProducerFinish(requestId, producerName, extraMap);
+    }
+
+    @Override
+    public void onProducerFinishWithCancellation(String requestId, String producerName, Map<String, String> extraMap) {
+        RequestState state = mRequests.get(requestId);
+        if (state != null) {
+            state.mProducerStartTimes.remove(producerName);
+        }
+    }
+
+    @Override
+    public boolean requiresExtraMap(String requestId) {
+        // 需要缓存producer的extraMap判断是否命中
+        return true;
+    }
+
+    /**
+     * 记录一次经服务端缩放的下载
+     *
+     * @param bytes 实际下载的字节数
+     */
+    public void recordResizedDownload(long bytes) {
+        mResizedCount.incrementAndGet();
+        mResizedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * 记录一个原图与缩放后图片大小的样本，用于估算节省的流量
+     */
+    public void recordResizeSample(long originalBytes, long resizedBytes) {
+        synchronized (mSampleLock) {
+            mSampledOriginalBytes += originalBytes;
+            mSampledResizedBytes += resizedBytes;
+        }
+    }
+
+    /**
+     * 获取当前的统计数据
+     */
+    public MetricsSnapshot snapshot() {
+        LatencyHistogram.Snapshot[] latencies = new LatencyHistogram.Snapshot[mLatencies.length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = mLatencies[i].snapshot();
+        }
+
+        int tierCount = CacheTier.values().length;
+        long[] hits = new long[tierCount];
+        long[] misses = new long[tierCount];
+        for (int i = 0; i < tierCount; i++) {
+            hits[i] = mHits.get(i);
+            misses[i] = mMisses.get(i);
+        }
+
+        long resizedBytes = mResizedBytes.get();
+        return new MetricsSnapshot(System.currentTimeMillis(), mRequestCounts.get(0), mRequestCounts.get(1),
+                mRequestCounts.get(2), mRequestCounts.get(3), latencies, hits, misses,
+                mResizedCount.get(), resizedBytes, estimateSavedBytes(resizedBytes));
+    }
+
+    /**
+     * 清空统计数据，正在进行中的请求不受影响
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : mLatencies) {
+            histogram.reset();
+        }
+        for (int i = 0; i < mHits.length(); i++) {
+            mHits.set(i, 0);
+            mMisses.set(i, 0);
+        }
+        for (int i = 0; i < mRequestCounts.length(); i++) {
+            mRequestCounts.set(i, 0);
+        }
+        mResizedCount.set(0);
+        mResizedBytes.set(0);
+        synchronized (mSampleLock) {
+            mSampledOriginalBytes = 0;
+            mSampledResizedBytes = 0;
+        }
+    }
+
+    /**
+     * 按样本中原图与缩放后图片的大小比例，估算所有缩放下载节省的字节数，没有样本时为0
+     */
+    private long estimateSavedBytes(long resizedBytes) {
+        long sampledOriginal;
+        long sampledResized;
+        synchronized (mSampleLock) {
+            sampledOriginal = mSampledOriginalBytes;
+            sampledResized = mSampledResizedBytes;
+        }
+        if (sampledResized <= 0) {
+            return 0;
+        }
+        return (long) (resizedBytes * ((double) sampledOriginal / sampledResized - 1));
+    }
+
+    private void onProducerFinish(String requestId, String producerName, Map<String, String> extraMap) {
+        Stage stage = stageOf(producerName);
+        if (stage == null) {
+            return;
+        }
+
+        // 请求已结束等情况下找不到对应的记录，只统计命中情况
+        RequestState state = mRequests.get(requestId);
+        Long startTime = state != null ? state.mProducerStartTimes.remove(producerName) : null;
+        if (startTime != null) {
+            mLatencies[stage.ordinal()].record(SystemClock.uptimeMillis() - startTime);
+        }
+
+        CacheTier tier = tierOf(stage, state != null && state.mSmallCache);
+        if (tier != null && extraMap != null && extraMap.containsKey(EXTRA_CACHED_VALUE_FOUND)) {
+            if (Boolean.parseBoolean(extraMap.get(EXTRA_CACHED_VALUE_FOUND))) {
+                mHits.incrementAndGet(tier.ordinal());
+            } else if (!BitmapMemoryCacheGetProducer.PRODUCER_NAME.equals(producerName)) {
+                // 已解码图片的请求依次经过BitmapMemoryCacheGetProducer和BitmapMemoryCacheProducer，
+                // 前者未命中时后者会再查一次，未命中只按后者的结果统计，避免重复计数
+                mMisses.incrementAndGet(tier.ordinal());
+            }
+        }
+    }
+
+    private void finishRequest(String requestId) {
+        RequestState state = mRequests.remove(requestId);
+        if (state != null) {
+            mLatencies[Stage.TOTAL.ordinal()].record(SystemClock.uptimeMillis() - state.mStartTime);
+        }
+    }
+
+    static Stage stageOf(String producerName) {
+        switch (producerName) {
+            case BitmapMemoryCacheProducer.PRODUCER_NAME:
+            case BitmapMemoryCacheGetProducer.PRODUCER_NAME:
+                return Stage.BITMAP_CACHE;
+            case EncodedMemoryCacheProducer.PRODUCER_NAME:
+                return Stage.ENCODED_CACHE;
+            case DiskCacheProducer.PRODUCER_NAME:
+                return Stage.DISK_CACHE;
+            case NetworkFetchProducer.PRODUCER_NAME:
+                return Stage.NETWORK;
+            case DecodeProducer.PRODUCER_NAME:
+                return Stage.DECODE;
+            case PostprocessorProducer.NAME:
+                return Stage.POSTPROCESS;
+            default:
+                return null;
+        }
+    }
+
+    private static CacheTier tierOf(Stage stage, boolean smallCache) {
+        switch (stage) {
+            case BITMAP_CACHE:
+                return CacheTier.BITMAP_MEMORY;
+            case ENCODED_CACHE:
+                return CacheTier.ENCODED_MEMORY;
+            case DISK_CACHE:
+                return smallCache ? CacheTier.DISK_SMALL : CacheTier.DISK_DEFAULT;
+            default:
+                return null;
+        }
+    }
+
+    private static class RequestState {
+
+        final long mStartTime = SystemClock.uptimeMillis();
+
+        final boolean mSmallCache;
+
+        final Map<String, Long> mProducerStartTimes = new ConcurrentHashMap<>();
+
+        RequestState(boolean smallCache) {
+            mSmallCache = smallCache;
+        }
+
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.facebook.fresco.helper.policy;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Build;
+
+import com.facebook.imagepipeline.request.ImageRequest.RequestLevel;
+
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * 按当前状态限制图片请求最低允许到达的层级（ImageRequest.RequestLevel），例如：
+ * 1、列表快速滑动时不走网络，只从内存和磁盘缓存加载（默认开启）
+ * 2、没有网络时只从内存和磁盘缓存加载，避免请求排队等待超时（默认开启）
+ * 3、按流量计费的网络下限制到指定层级（默认不限制）
+ * <p>
+ * 通过Phoenix.setRequestLevelPolicy()设置后生效。被限制的请求在缓存未命中时显示占位图，
+ * 限制解除后ImageLoader会重新加载仍在显示这些请求的View。
+ * 滑动状态由ScrollPauseController更新，网络状态需要调用startMonitoringNetwork()。
+ */
+public class RequestLevelPolicy {
+
+    public interface OnRelaxedListener {
+
+        /**
+         * 限制放宽，在调用setFlinging()、setNetworkState()的线程中回调
+         */
+        void onRequestLevelRelaxed();
+
+    }
+
+    private volatile boolean mNoNetworkWhileFlinging = true;
+
+    private volatile boolean mDiskOnlyWhenOffline = true;
+
+    private volatile RequestLevel mMeteredLevel = RequestLevel.FULL_FETCH;
+
+    private volatile boolean mFlinging;
+
+    private volatile boolean mOffline;
+
+    private volatile boolean mMetered;
+
+    private final CopyOnWriteArraySet<OnRelaxedListener> mListeners = new CopyOnWriteArraySet<>();
+
+    private BroadcastReceiver mNetworkReceiver;
+
+    /**
+     * 快速滑动时是否只从缓存加载
+     */
+    public RequestLevelPolicy setNoNetworkWhileFlinging(boolean noNetworkWhileFlinging) {
+        mNoNetworkWhileFlinging = noNetworkWhileFlinging;
+        return this;
+    }
+
+    /**
+     * 没有网络时是否只从缓存加载
+     */
+    public RequestLevelPolicy setDiskOnlyWhenOffline(boolean diskOnlyWhenOffline) {
+        mDiskOnlyWhenOffline = diskOnlyWhenOffline;
+        return this;
+    }
+
+    /**
+     * 按流量计费的网络下最低允许的层级，例如RequestLevel.DISK_CACHE表示不下载新图片
+     */
+    public RequestLevelPolicy setMeteredLevel(RequestLevel meteredLevel) {
+        mMeteredLevel = meteredLevel;
+        return this;
+    }
+
+    public void addOnRelaxedListener(OnRelaxedListener listener) {
+        mListeners.add(listener);
+    }
+
+    public void removeOnRelaxedListener(OnRelaxedListener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * 更新列表是否处于快速滑动状态
+     */
+    public void setFlinging(boolean flinging) {
+        RequestLevel before = getLowestPermittedRequestLevel();
+        mFlinging = flinging;
+        notifyIfRelaxed(before);
+    }
+
+    /**
+     * 更新网络状态
+     *
+     * @param connected 是否有可用的网络
+     * @param metered   是否按流量计费
+     */
+    public void setNetworkState(boolean connected, boolean metered) {
+        RequestLevel before = getLowestPermittedRequestLevel();
+        mOffline = !connected;
+        mMetered = metered;
+        notifyIfRelaxed(before);
+    }
+
+    /**
+     * 监听系统的网络变化，并立即更新一次网络状态
+     */
+    public synchronized void startMonitoringNetwork(Context context) {
+        if (mNetworkReceiver != null) {
+            return;
+        }
+
+        final Context appContext = context.getApplicationContext();
+        mNetworkReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                updateNetworkState(appContext);
+            }
+        };
+        // 注册时会收到一次粘性广播，从而完成初始化
+        appContext.registerReceiver(mNetworkReceiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
+
+    public synchronized void stopMonitoringNetwork(Context context) {
+        if (mNetworkReceiver != null) {
+            context.getApplicationContext().unregisterReceiver(mNetworkReceiver);
+            mNetworkReceiver = null;
+        }
+    }
+
+    /**
+     * 当前状态下最低允许的层级
+     */
+    public RequestLevel getLowestPermittedRequestLevel() {
+        RequestLevel level = RequestLevel.FULL_FETCH;
+        if (mFlinging && mNoNetworkWhileFlinging) {
+            level = RequestLevel.getMax(level, RequestLevel.DISK_CACHE);
+        }
+        if (mOffline && mDiskOnlyWhenOffline) {
+            level = RequestLevel.getMax(level, RequestLevel.DISK_CACHE);
+        }
+        if (mMetered && !mOffline) {
+            level = RequestLevel.getMax(level, mMeteredLevel);
+        }
+        return level;
+    }
+
+    /**
+     * 请求自身的层级与当前限制中较高的一个
+     */
+    public RequestLevel apply(RequestLevel requestLevel) {
+        return RequestLevel.getMax(requestLevel, getLowestPermittedRequestLevel());
+    }
+
+    private void notifyIfRelaxed(RequestLevel before) {
+        if (getLowestPermittedRequestLevel().getValue() < before.getValue()) {
+            for (OnRelaxedListener listener : mListeners) {
+                listener.onRequestLevelRelaxed();
+            }
+        }
+    }
+
+    private void updateNetworkState(Context context) {
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        boolean connected = networkInfo != null && networkInfo.isConnected();
+        boolean metered;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            metered = connectivityManager.isActiveNetworkMetered();
+        } else {
+            metered = networkInfo != null && networkInfo.getType() == ConnectivityManager.TYPE_MOBILE;
+        }
+        setNetworkState(connected, metered);
+    }
+
+}
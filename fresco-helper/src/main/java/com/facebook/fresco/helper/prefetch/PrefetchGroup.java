@@ -0,0 +1,388 @@
+package com.facebook.fresco.helper.prefetch;
+
+import android.net.Uri;
+import android.os.SystemClock;
+
+import com.facebook.datasource.BaseDataSubscriber;
+import com.facebook.datasource.DataSource;
+import com.facebook.fresco.helper.Phoenix;
+import com.facebook.fresco.helper.cache.DiskCacheQuery;
+import com.facebook.fresco.helper.executor.ImageExecutors;
+import com.facebook.imagepipeline.common.Priority;
+import com.facebook.imagepipeline.core.ImagePipeline;
+import com.facebook.imagepipeline.request.ImageRequest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * 一组批量预加载的图片请求：
+ * 1、同时进行中的请求数不超过maxConcurrent，且以低优先级执行，不会挤占屏幕上图片的加载
+ * 2、已在缓存中的图片直接跳过，不占用并发名额
+ * 3、可随时cancel()，正在进行的请求会被取消，尚未开始的请求不再发起
+ * <p>
+ * Listener的回调在后台线程中执行，包括已缓存而跳过的请求、cancel()取消的请求以及空的请求列表。
+ */
+public class PrefetchGroup {
+
+    /**
+     * 单个预加载请求的结果
+     */
+    public enum Status {
+        /**
+         * 预加载成功
+         */
+        SUCCEEDED,
+        /**
+         * 预加载失败
+         */
+        FAILED,
+        /**
+         * 已在缓存中，无需预加载
+         */
+        SKIPPED,
+        /**
+         * 被取消
+         */
+        CANCELLED
+    }
+
+    public interface Listener {
+
+        /**
+         * 单个请求完成
+         *
+         * @param uri           图片Uri
+         * @param status        结果
+         * @param elapsedMillis 从发起到完成的耗时，单位毫秒
+         */
+        void onItemComplete(Uri uri, Status status, long elapsedMillis);
+
+        /**
+         * 整组请求全部完成（包括被取消）
+         */
+        void onGroupComplete(PrefetchGroup group);
+
+    }
+
+    private final ImageRequest[] mRequests;
+
+    private final boolean mToBitmapCache;
+
+    private final int mMaxConcurrent;
+
+    private final Listener mListener;
+
+    private final Executor mExecutor = ImageExecutors.forIo().withPriority(Priority.LOW);
+
+    private final Set<DataSource<?>> mRunning = new HashSet<>();
+
+    private int mNextIndex;
+
+    private int mInFlight;
+
+    private boolean mCancelled;
+
+    /**
+     * 正在scheduleNext()的循环中，期间再次调用只做标记，由循环继续处理，避免同步完成的请求层层递归
+     */
+    private boolean mScheduling;
+
+    private boolean mScheduleRequested;
+
+    private final int[] mStatusCounts = new int[Status.values().length];
+
+    private long mTotalItemMillis;
+
+    private long mStartTime;
+
+    private long mEndTime;
+
+    /**
+     * @param requests      需要预加载的请求
+     * @param toBitmapCache true预加载到已解码图片的内存缓存，false只预加载到磁盘缓存
+     * @param maxConcurrent 同时进行中的请求数上限
+     * @param listener      Listener，可为null
+     */
+    public PrefetchGroup(List<ImageRequest> requests, boolean toBitmapCache, int maxConcurrent, Listener listener) {
+        mRequests = requests.toArray(new ImageRequest[requests.size()]);
+        mToBitmapCache = toBitmapCache;
+        mMaxConcurrent = Math.max(1, maxConcurrent);
+        mListener = listener;
+    }
+
+    /**
+     * 开始预加载，只能调用一次
+     */
+    public PrefetchGroup start() {
+        synchronized (this) {
+            if (mStartTime != 0) {
+                throw new IllegalStateException("PrefetchGroup already started");
+            }
+            mStartTime = SystemClock.uptimeMillis();
+        }
+
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mRequests.length == 0) {
+                    finish();
+                } else {
+                    scheduleNext();
+                }
+            }
+        });
+        return this;
+    }
+
+    /**
+     * 取消尚未完成的请求
+     */
+    public void cancel() {
+        List<DataSource<?>> running;
+        final List<ImageRequest> pending = new ArrayList<>();
+        synchronized (this) {
+            if (mCancelled || isDone()) {
+                return;
+            }
+            mCancelled = true;
+            running = new ArrayList<>(mRunning);
+            while (mNextIndex < mRequests.length) {
+                pending.add(mRequests[mNextIndex++]);
+                mInFlight++;
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (ImageRequest request : pending) {
+                        onItemComplete(null, request, Status.CANCELLED, 0);
+                    }
+                }
+            });
+        }
+        // 关闭DataSource会回调onCancellation()
+        for (DataSource<?> dataSource : running) {
+            dataSource.close();
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * 是否所有请求都已完成（包括被取消）
+     */
+    public synchronized boolean isDone() {
+        return getCompletedCount() == mRequests.length && mStartTime != 0;
+    }
+
+    public int getTotalCount() {
+        return mRequests.length;
+    }
+
+    public synchronized int getCompletedCount() {
+        int count = 0;
+        for (int statusCount : mStatusCounts) {
+            count += statusCount;
+        }
+        return count;
+    }
+
+    public synchronized int getCount(Status status) {
+        return mStatusCounts[status.ordinal()];
+    }
+
+    /**
+     * 整组请求的耗时，未完成时为从开始到现在的耗时，单位毫秒
+     */
+    public synchronized long getElapsedMillis() {
+        if (mStartTime == 0) {
+            return 0;
+        }
+        return (mEndTime != 0 ? mEndTime : SystemClock.uptimeMillis()) - mStartTime;
+    }
+
+    /**
+     * 实际发起了请求（非跳过、非取消）的单个请求的平均耗时，单位毫秒
+     */
+    public synchronized long getAverageItemMillis() {
+        int fetched = mStatusCounts[Status.SUCCEEDED.ordinal()] + mStatusCounts[Status.FAILED.ordinal()];
+        return fetched == 0 ? 0 : mTotalItemMillis / fetched;
+    }
+
+    private void scheduleNext() {
+        synchronized (this) {
+            if (mScheduling) {
+                mScheduleRequested = true;
+                return;
+            }
+            mScheduling = true;
+        }
+
+        while (true) {
+            List<ImageRequest> toSubmit = new ArrayList<>();
+            synchronized (this) {
+                while (!mCancelled && mInFlight < mMaxConcurrent && mNextIndex < mRequests.length) {
+                    toSubmit.add(mRequests[mNextIndex++]);
+                    mInFlight++;
+                }
+            }
+
+            for (ImageRequest request : toSubmit) {
+                submit(request);
+            }
+
+            synchronized (this) {
+                if (!mScheduleRequested) {
+                    mScheduling = false;
+                    return;
+                }
+                mScheduleRequested = false;
+            }
+        }
+    }
+
+    private void submit(final ImageRequest request) {
+        final ImagePipeline imagePipeline = Phoenix.getImagePipeline();
+        final long startTime = SystemClock.uptimeMillis();
+
+        if (mToBitmapCache) {
+            if (imagePipeline.isInBitmapMemoryCache(request)) {
+                onItemComplete(null, request, Status.SKIPPED, 0);
+            } else {
+                fetch(request, startTime);
+            }
+            return;
+        }
+
+        final DataSource<Boolean> inDiskCache = imagePipeline.isInDiskCache(request);
+        if (!track(inDiskCache)) {
+            onItemComplete(null, request, Status.CANCELLED, 0);
+            return;
+        }
+        inDiskCache.subscribe(new BaseDataSubscriber<Boolean>() {
+            @Override
+            protected void onNewResultImpl(DataSource<Boolean> dataSource) {
+                if (!dataSource.isFinished()) {
+                    return;
+                }
+
+                untrack(dataSource);
+                if (Boolean.TRUE.equals(dataSource.getResult())) {
+                    onItemComplete(null, request, Status.SKIPPED, 0);
+                } else {
+                    fetch(request, startTime);
+                }
+            }
+
+            @Override
+            protected void onFailureImpl(DataSource<Boolean> dataSource) {
+                // 查询失败时按未缓存处理
+                untrack(dataSource);
+                fetch(request, startTime);
+            }
+
+            @Override
+            public void onCancellation(DataSource<Boolean> dataSource) {
+                onItemComplete(dataSource, request, Status.CANCELLED, 0);
+            }
+        }, mExecutor);
+    }
+
+    private void fetch(final ImageRequest request, final long startTime) {
+        ImagePipeline imagePipeline = Phoenix.getImagePipeline();
+        DataSource<Void> dataSource = mToBitmapCache
+                ? imagePipeline.prefetchToBitmapCache(request, null)
+                : imagePipeline.prefetchToDiskCache(request, null, Priority.LOW);
+        if (!track(dataSource)) {
+            onItemComplete(null, request, Status.CANCELLED, 0);
+            return;
+        }
+
+        dataSource.subscribe(new BaseDataSubscriber<Void>() {
+            @Override
+            protected void onNewResultImpl(DataSource<Void> dataSource) {
+                if (dataSource.isFinished()) {
+                    onItemComplete(dataSource, request, Status.SUCCEEDED, SystemClock.uptimeMillis() - startTime);
+                }
+            }
+
+            @Override
+            protected void onFailureImpl(DataSource<Void> dataSource) {
+                onItemComplete(dataSource, request, Status.FAILED, SystemClock.uptimeMillis() - startTime);
+            }
+
+            @Override
+            public void onCancellation(DataSource<Void> dataSource) {
+                onItemComplete(dataSource, request, Status.CANCELLED, 0);
+            }
+        }, mExecutor);
+    }
+
+    /**
+     * 记录进行中的DataSource，已取消时直接关闭并返回false
+     */
+    private boolean track(DataSource<?> dataSource) {
+        synchronized (this) {
+            if (!mCancelled) {
+                mRunning.add(dataSource);
+                return true;
+            }
+        }
+        dataSource.close();
+        return false;
+    }
+
+    private synchronized void untrack(DataSource<?> dataSource) {
+        mRunning.remove(dataSource);
+    }
+
+    private void onItemComplete(DataSource<?> dataSource, ImageRequest request, Status status, long elapsedMillis) {
+        boolean groupDone;
+        synchronized (this) {
+            if (dataSource != null && !mRunning.remove(dataSource) && status == Status.CANCELLED) {
+                // 已经统计过的DataSource被关闭时也会回调onCancellation()，忽略
+                return;
+            }
+            mInFlight--;
+            mStatusCounts[status.ordinal()]++;
+            if (status == Status.SUCCEEDED || status == Status.FAILED) {
+                mTotalItemMillis += elapsedMillis;
+            }
+            groupDone = getCompletedCount() == mRequests.length;
+        }
+
+        if (status == Status.SUCCEEDED) {
+            // 之前查询到的“不在磁盘缓存中”已过时
+            DiskCacheQuery.invalidate(request.getSourceUri());
+        }
+
+        if (mListener != null) {
+            mListener.onItemComplete(request.getSourceUri(), status, elapsedMillis);
+        }
+
+        if (groupDone) {
+            finish();
+        } else {
+            scheduleNext();
+        }
+    }
+
+    private void finish() {
+        synchronized (this) {
+            mEndTime = SystemClock.uptimeMillis();
+        }
+
+        if (mListener != null) {
+            mListener.onGroupComplete(this);
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.facebook.fresco.helper.resize;
+
+import android.net.Uri;
+
+import com.facebook.common.util.UriUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import okhttp3.HttpUrl;
+
+/**
+ * 在服务端缩放网络图片：指定了宽高的网络图片请求，先把宽高按SizeBuckets取整，再由UrlResizer改写URL，
+ * 只下载接近显示尺寸的图片，而不是下载原图后在本地缩小。
+ * <pre>
+ * CdnResizer.setUrlResizer(new TemplateUrlResizer("imageView2/2/w/{width}/h/{height}", "img.example.com"));
+ * </pre>
+ * 未设置UrlResizer时不做任何改写。节省的流量由ResizeSavingsInterceptor统计，通过Phoenix.getMetricsSnapshot()查看。
+ * <p>
+ * 缓存中保存的是改写后的URL，用原始URL调用isInDiskCache()、prefetch等方法不会命中缩放后的版本。
+ * Phoenix.evictFromCache()等删除方法会一并删除最近MAX_TRACKED_URLS个改写过的版本。
+ */
+public final class CdnResizer {
+
+    /**
+     * 记录最近改写过的URL数量上限，用于统计节省的流量和删除缓存
+     */
+    private static final int MAX_TRACKED_URLS = 256;
+
+    private static volatile UrlResizer sUrlResizer;
+
+    private static volatile SizeBuckets sSizeBuckets = SizeBuckets.DEFAULT;
+
+    /**
+     * 改写后的URL -> 原始URL，key为OkHttp规范化后的形式
+     */
+    private static final Map<String, String> sOriginalUrls = Collections.synchronizedMap(
+            new LinkedHashMap<String, String>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > MAX_TRACKED_URLS;
+                }
+            });
+
+    /**
+     * 原始URL -> 改写后的URL（未规范化，与缓存key一致），用于按原始URL删除所有缩放版本
+     */
+    private static final Map<String, Set<String>> sResizedUrls = new LinkedHashMap<String, Set<String>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Set<String>> eldest) {
+            return size() > MAX_TRACKED_URLS;
+        }
+    };
+
+    private CdnResizer() {
+
+    }
+
+    /**
+     * 设置URL改写策略，null表示关闭服务端缩放。
+     * 开启后缓存中保存的是改写后的URL，用原始URL查询缓存或预加载不会命中按尺寸加载的版本
+     */
+    public static void setUrlResizer(UrlResizer urlResizer) {
+        sUrlResizer = urlResizer;
+    }
+
+    public static UrlResizer getUrlResizer() {
+        return sUrlResizer;
+    }
+
+    /**
+     * 设置尺寸的档位，默认为SizeBuckets.DEFAULT
+     */
+    public static void setSizeBuckets(SizeBuckets sizeBuckets) {
+        if (sizeBuckets == null) {
+            throw new IllegalArgumentException("sizeBuckets == null");
+        }
+        sSizeBuckets = sizeBuckets;
+    }
+
+    public static SizeBuckets getSizeBuckets() {
+        return sSizeBuckets;
+    }
+
+    /**
+     * 按请求的尺寸改写网络图片的Uri
+     *
+     * @return 改写后的Uri；未设置UrlResizer、不是网络图片、尺寸无效或超过最大一档时返回原Uri
+     */
+    public static Uri rewrite(Uri uri, int width, int height) {
+        UrlResizer urlResizer = sUrlResizer;
+        if (urlResizer == null || uri == null || width <= 0 || height <= 0 || !UriUtil.isNetworkUri(uri)) {
+            return uri;
+        }
+
+        SizeBuckets sizeBuckets = sSizeBuckets;
+        int bucketWidth = sizeBuckets.roundUp(width);
+        int bucketHeight = sizeBuckets.roundUp(height);
+        if (bucketWidth == 0 || bucketHeight == 0) {
+            return uri;
+        }
+
+        String resized = urlResizer.resize(uri, bucketWidth, bucketHeight);
+        HttpUrl resizedUrl = resized != null ? HttpUrl.parse(resized) : null;
+        if (resizedUrl == null || resized.equals(uri.toString())) {
+            return uri;
+        }
+
+        String originalUrl = uri.toString();
+        sOriginalUrls.put(resizedUrl.toString(), originalUrl);
+        synchronized (sResizedUrls) {
+            Set<String> resizedUrls = sResizedUrls.get(originalUrl);
+            if (resizedUrls == null) {
+                resizedUrls = new LinkedHashSet<>();
+                sResizedUrls.put(originalUrl, resizedUrls);
+            }
+            resizedUrls.add(resized);
+        }
+        return Uri.parse(resized);
+    }
+
+    /**
+     * 获取最近由指定Uri改写出的所有Uri，用于删除缩放后的缓存
+     *
+     * @return 没有改写记录时返回空列表
+     */
+    public static List<Uri> getResizedUris(Uri uri) {
+        List<Uri> uris = new ArrayList<>();
+        if (uri == null) {
+            return uris;
+        }
+
+        synchronized (sResizedUrls) {
+            Set<String> resizedUrls = sResizedUrls.get(uri.toString());
+            if (resizedUrls != null) {
+                for (String resizedUrl : resizedUrls) {
+                    uris.add(Uri.parse(resizedUrl));
+                }
+            }
+        }
+        return uris;
+    }
+
+    /**
+     * 查找改写前的原始URL
+     *
+     * @param resizedUrl OkHttp请求的URL，即HttpUrl.toString()
+     * @return 原始URL，不是最近改写过的URL时返回null
+     */
+    static String getOriginalUrl(String resizedUrl) {
+        return sOriginalUrls.get(resizedUrl);
+    }
+
+}
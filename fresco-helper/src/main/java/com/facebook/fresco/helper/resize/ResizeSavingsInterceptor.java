@@ -0,0 +1,82 @@
+package com.facebook.fresco.helper.resize;
+
+import com.facebook.fresco.helper.config.ImageLoaderConfig;
+import com.facebook.fresco.helper.metrics.PipelineMetrics;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 统计服务端缩放节省的流量，由ImageLoaderConfig添加到图片下载使用的OkHttpClient：
+ * 1、每次下载经CdnResizer改写的图片时，记录实际下载的字节数
+ * 2、每SAMPLE_INTERVAL次下载中，对原图发起一次HEAD请求获取原图大小，作为估算节省流量的样本
+ * <p>
+ * 响应没有Content-Length（如chunked编码）时不统计。
+ */
+public class ResizeSavingsInterceptor implements Interceptor {
+
+    static final int SAMPLE_INTERVAL = 20;
+
+    private final AtomicInteger mDownloadCount = new AtomicInteger();
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+
+        String originalUrl = CdnResizer.getOriginalUrl(request.url().toString());
+        PipelineMetrics metrics = ImageLoaderConfig.getPipelineMetrics();
+        if (originalUrl == null || metrics == null || !response.isSuccessful()) {
+            return response;
+        }
+
+        long resizedBytes = response.body().contentLength();
+        if (resizedBytes < 0) {
+            return response;
+        }
+
+        metrics.recordResizedDownload(resizedBytes);
+        if (mDownloadCount.getAndIncrement() % SAMPLE_INTERVAL == 0) {
+            sampleOriginalSize(originalUrl, resizedBytes, metrics);
+        }
+        return response;
+    }
+
+    private static void sampleOriginalSize(String originalUrl, final long resizedBytes,
+                                           final PipelineMetrics metrics) {
+        OkHttpClient client = ImageLoaderConfig.getOkHttpClient();
+        if (client == null) {
+            return;
+        }
+
+        Request request = new Request.Builder().url(originalUrl).head().build();
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try {
+                    String contentLength = response.header("Content-Length");
+                    if (response.isSuccessful() && contentLength != null) {
+                        metrics.recordResizeSample(Long.parseLong(contentLength), resizedBytes);
+                    }
+                } catch (NumberFormatException ignored) {
+                    // 无效的Content-Length，丢弃该样本
+                } finally {
+                    response.close();
+                }
+            }
+        });
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.facebook.fresco.helper.resize;
+
+import java.util.Arrays;
+
+/**
+ * 把请求的尺寸向上取整到固定的几档，尺寸相近的请求得到同一个URL，从而共用CDN、磁盘和内存中的缓存。
+ * 档位越少缓存命中率越高，但每张图片多下载的字节也越多。
+ */
+public class SizeBuckets {
+
+    /**
+     * 默认档位，覆盖从列表缩略图到全屏大图的常见尺寸
+     */
+    public static final SizeBuckets DEFAULT = new SizeBuckets(120, 240, 360, 480, 720, 1080, 1440);
+
+    private final int[] mBuckets;
+
+    /**
+     * @param buckets 各档的尺寸，单位px，不要求有序
+     */
+    public SizeBuckets(int... buckets) {
+        if (buckets == null || buckets.length == 0) {
+            throw new IllegalArgumentException("buckets is empty");
+        }
+        mBuckets = buckets.clone();
+        Arrays.sort(mBuckets);
+        if (mBuckets[0] <= 0) {
+            throw new IllegalArgumentException("bucket must be > 0: " + mBuckets[0]);
+        }
+    }
+
+    /**
+     * 向上取整到最近的一档
+     *
+     * @return 不小于size的最小一档，size超过最大一档时返回0，表示不应在服务端缩放
+     */
+    public int roundUp(int size) {
+        int index = Arrays.binarySearch(mBuckets, size);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index < mBuckets.length ? mBuckets[index] : 0;
+    }
+
+    public int getLargest() {
+        return mBuckets[mBuckets.length - 1];
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.facebook.fresco.helper.resize;
+
+import android.net.Uri;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 按模板在URL后追加缩放参数，适用于通过query参数缩放的CDN，例如：
+ * <pre>
+ * // 阿里云OSS
+ * new TemplateUrlResizer("x-oss-process=image/resize,m_lfit,w_{width},h_{height}", "img.example.com");
+ * // 七牛
+ * new TemplateUrlResizer("imageView2/2/w/{width}/h/{height}", "img.example.com");
+ * </pre>
+ * URL已带有query时以'&'连接，否则以'?'连接，fragment保留在最后。
+ */
+public class TemplateUrlResizer implements UrlResizer {
+
+    public static final String WIDTH = "{width}";
+
+    public static final String HEIGHT = "{height}";
+
+    private final String mTemplate;
+
+    private final Set<String> mHosts;
+
+    /**
+     * @param template 缩放参数的模板，{width}和{height}会被替换为目标尺寸
+     * @param hosts    只改写这些域名下的URL，不指定时改写所有网络图片
+     */
+    public TemplateUrlResizer(String template, String... hosts) {
+        if (template == null || !template.contains(WIDTH) && !template.contains(HEIGHT)) {
+            throw new IllegalArgumentException("template must contain " + WIDTH + " or " + HEIGHT);
+        }
+        mTemplate = template;
+        mHosts = new HashSet<>(Arrays.asList(hosts));
+    }
+
+    @Override
+    public String resize(Uri uri, int width, int height) {
+        if (!mHosts.isEmpty() && !mHosts.contains(uri.getHost())) {
+            return null;
+        }
+
+        String params = mTemplate.replace(WIDTH, String.valueOf(width)).replace(HEIGHT, String.valueOf(height));
+        String url = uri.toString();
+        int fragmentIndex = url.indexOf('#');
+        String fragment = "";
+        if (fragmentIndex >= 0) {
+            fragment = url.substring(fragmentIndex);
+            url = url.substring(0, fragmentIndex);
+        }
+        String separator;
+        if (url.indexOf('?') < 0) {
+            separator = "?";
+        } else if (url.endsWith("?") || url.endsWith("&")) {
+            separator = "";
+        } else {
+            separator = "&";
+        }
+        return url + separator + params + fragment;
+    }
+
+}
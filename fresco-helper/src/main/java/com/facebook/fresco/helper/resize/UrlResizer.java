@@ -0,0 +1,21 @@
+package com.facebook.fresco.helper.resize;
+
+import android.net.Uri;
+
+/**
+ * 把图片URL改写为由CDN在服务端缩放的URL，需要按“等比缩放到不超过width x height”的方式缩放，
+ * 保证返回的图片不会小于请求的尺寸太多，也不会被裁剪或拉伸。
+ * <p>
+ * 通过CdnResizer.setUrlResizer()设置，width和height已按SizeBuckets取整。
+ */
+public interface UrlResizer {
+
+    /**
+     * @param uri    原始图片的Uri
+     * @param width  目标宽度，单位px
+     * @param height 目标高度，单位px
+     * @return 改写后的URL，不支持该URL时返回null
+     */
+    String resize(Uri uri, int width, int height);
+
+}
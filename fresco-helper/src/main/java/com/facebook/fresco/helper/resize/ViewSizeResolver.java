@@ -0,0 +1,114 @@
+package com.facebook.fresco.helper.resize;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 获取View用于显示图片的尺寸（去掉padding），以便按View的大小设置ResizeOptions：
+ * 1、View已完成布局时直接返回当前尺寸
+ * 2、LayoutParams中是固定的宽高时直接使用
+ * 3、否则等到下一次绘制之前（OnPreDrawListener）再返回，此时已完成测量和布局
+ * <p>
+ * 只能在主线程调用。同一个View在返回尺寸之前再次调用resolve()或cancel()时，之前的回调不会再被调用，
+ * 列表中被复用的View不会在测量完成后加载上一次绑定的图片。
+ */
+public final class ViewSizeResolver {
+
+    public interface SizeCallback {
+
+        /**
+         * @param width  显示区域的宽度，单位px，无法获取时为0
+         * @param height 显示区域的高度，单位px，无法获取时为0
+         */
+        void onSizeReady(int width, int height);
+
+    }
+
+    /**
+     * 等待测量中的View，value为弱引用，PendingSize由ViewTreeObserver持有
+     */
+    private static final Map<View, WeakReference<PendingSize>> sPendingSizes = new WeakHashMap<>();
+
+    private ViewSizeResolver() {
+
+    }
+
+    public static void resolve(View view, SizeCallback callback) {
+        cancel(view);
+
+        if (view.getWidth() > 0 && view.getHeight() > 0 && !view.isLayoutRequested()) {
+            callback.onSizeReady(getContentWidth(view, view.getWidth()), getContentHeight(view, view.getHeight()));
+            return;
+        }
+
+        ViewGroup.LayoutParams lp = view.getLayoutParams();
+        if (lp != null && lp.width > 0 && lp.height > 0) {
+            callback.onSizeReady(getContentWidth(view, lp.width), getContentHeight(view, lp.height));
+            return;
+        }
+
+        PendingSize pendingSize = new PendingSize(view, callback);
+        sPendingSizes.put(view, new WeakReference<>(pendingSize));
+        view.getViewTreeObserver().addOnPreDrawListener(pendingSize);
+    }
+
+    /**
+     * 取消等待中的回调，没有时不做任何事
+     */
+    public static void cancel(View view) {
+        WeakReference<PendingSize> reference = sPendingSizes.remove(view);
+        PendingSize pendingSize = reference != null ? reference.get() : null;
+        if (pendingSize != null) {
+            pendingSize.detach();
+        }
+    }
+
+    private static int getContentWidth(View view, int width) {
+        return Math.max(0, width - view.getPaddingLeft() - view.getPaddingRight());
+    }
+
+    private static int getContentHeight(View view, int height) {
+        return Math.max(0, height - view.getPaddingTop() - view.getPaddingBottom());
+    }
+
+    private static class PendingSize implements ViewTreeObserver.OnPreDrawListener {
+
+        private final View mView;
+
+        private final SizeCallback mCallback;
+
+        private boolean mDetached;
+
+        PendingSize(View view, SizeCallback callback) {
+            mView = view;
+            mCallback = callback;
+        }
+
+        @Override
+        public boolean onPreDraw() {
+            if (mDetached) {
+                return true;
+            }
+            detach();
+            sPendingSizes.remove(mView);
+            mCallback.onSizeReady(getContentWidth(mView, mView.getWidth()), getContentHeight(mView, mView.getHeight()));
+            return true;
+        }
+
+        void detach() {
+            mDetached = true;
+            // View被attach之后ViewTreeObserver会变化，需要从当前的ViewTreeObserver中移除
+            ViewTreeObserver observer = mView.getViewTreeObserver();
+            if (observer.isAlive()) {
+                observer.removeOnPreDrawListener(this);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.facebook.fresco.helper.scroll;
+
+import android.content.Context;
+import android.view.View;
+import android.widget.AbsListView;
+
+/**
+ * ListView、GridView快速滑动时暂停图片请求，用法：
+ * listView.setOnScrollListener(new AbsListViewPauseOnScrollListener(context, null));
+ * <p>
+ * AbsListView的滚动回调只提供条目位置，这里以第一个可见条目的偏移量换算出滚动距离。
+ */
+public class AbsListViewPauseOnScrollListener implements AbsListView.OnScrollListener {
+
+    private final ScrollPauseController mController;
+
+    private final AbsListView.OnScrollListener mDelegate;
+
+    private int mLastFirstVisible = -1;
+
+    private int mLastTop;
+
+    private int mLastExtent;
+
+    /**
+     * @param delegate 原有的OnScrollListener，回调会继续转发给它，可为null
+     */
+    public AbsListViewPauseOnScrollListener(Context context, AbsListView.OnScrollListener delegate) {
+        this(new ScrollPauseController(context), delegate);
+    }
+
+    public AbsListViewPauseOnScrollListener(ScrollPauseController controller, AbsListView.OnScrollListener delegate) {
+        mController = controller;
+        mDelegate = delegate;
+    }
+
+    public ScrollPauseController getController() {
+        return mController;
+    }
+
+    @Override
+    public void onScrollStateChanged(AbsListView view, int scrollState) {
+        if (scrollState == SCROLL_STATE_IDLE) {
+            int first = view.getFirstVisiblePosition();
+            mController.onIdle(first, first + view.getChildCount() - 1);
+        }
+
+        if (mDelegate != null) {
+            mDelegate.onScrollStateChanged(view, scrollState);
+        }
+    }
+
+    @Override
+    public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+        View child = view.getChildAt(0);
+        if (child != null) {
+            int top = child.getTop();
+            int extent = child.getHeight();
+            if (mLastFirstVisible >= 0 && extent > 0) {
+                int delta;
+                if (firstVisibleItem == mLastFirstVisible) {
+                    delta = mLastTop - top;
+                } else {
+                    // 跨条目时以条目尺寸估算滚过的距离
+                    int averageExtent = (extent + mLastExtent) / 2;
+                    delta = (firstVisibleItem - mLastFirstVisible) * averageExtent + mLastTop - top;
+                }
+                if (delta != 0) {
+                    mController.onScrolled(delta, firstVisibleItem, firstVisibleItem + visibleItemCount - 1,
+                            extent, totalItemCount);
+                }
+            }
+            mLastFirstVisible = firstVisibleItem;
+            mLastTop = top;
+            mLastExtent = extent;
+        }
+
+        if (mDelegate != null) {
+            mDelegate.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
+        }
+    }
+
+}
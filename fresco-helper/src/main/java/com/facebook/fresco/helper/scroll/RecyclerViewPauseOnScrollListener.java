@@ -0,0 +1,90 @@
+package com.facebook.fresco.helper.scroll;
+
+import android.content.Context;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.view.View;
+
+/**
+ * RecyclerView快速滑动时暂停图片请求，用法：
+ * recyclerView.addOnScrollListener(new RecyclerViewPauseOnScrollListener(context));
+ * <p>
+ * 支持LinearLayoutManager（包括GridLayoutManager）和StaggeredGridLayoutManager，
+ * 其他LayoutManager只做暂停和恢复，不预测停止位置。
+ */
+public class RecyclerViewPauseOnScrollListener extends RecyclerView.OnScrollListener {
+
+    private final ScrollPauseController mController;
+
+    private int[] mSpanPositions;
+
+    public RecyclerViewPauseOnScrollListener(Context context) {
+        this(new ScrollPauseController(context));
+    }
+
+    public RecyclerViewPauseOnScrollListener(ScrollPauseController controller) {
+        mController = controller;
+    }
+
+    public ScrollPauseController getController() {
+        return mController;
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            mController.onIdle(findFirstVisible(recyclerView), findLastVisible(recyclerView));
+        }
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (layoutManager == null) {
+            return;
+        }
+
+        boolean vertical = layoutManager.canScrollVertically();
+        int itemExtent = 0;
+        View child = recyclerView.getChildAt(0);
+        if (child != null) {
+            itemExtent = vertical ? child.getHeight() : child.getWidth();
+        }
+        mController.onScrolled(vertical ? dy : dx, findFirstVisible(recyclerView), findLastVisible(recyclerView),
+                itemExtent, layoutManager.getItemCount());
+    }
+
+    private int findFirstVisible(RecyclerView recyclerView) {
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (layoutManager instanceof LinearLayoutManager) {
+            return ((LinearLayoutManager) layoutManager).findFirstVisibleItemPosition();
+        } else if (layoutManager instanceof StaggeredGridLayoutManager) {
+            mSpanPositions = ((StaggeredGridLayoutManager) layoutManager).findFirstVisibleItemPositions(null);
+            int first = Integer.MAX_VALUE;
+            for (int position : mSpanPositions) {
+                if (position >= 0) {
+                    first = Math.min(first, position);
+                }
+            }
+            return first == Integer.MAX_VALUE ? -1 : first;
+        }
+        return -1;
+    }
+
+    private int findLastVisible(RecyclerView recyclerView) {
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (layoutManager instanceof LinearLayoutManager) {
+            return ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+        } else if (layoutManager instanceof StaggeredGridLayoutManager) {
+            mSpanPositions = ((StaggeredGridLayoutManager) layoutManager).findLastVisibleItemPositions(mSpanPositions);
+            int last = -1;
+            for (int position : mSpanPositions) {
+                last = Math.max(last, position);
+            }
+            return last;
+        }
+        return -1;
+    }
+
+}
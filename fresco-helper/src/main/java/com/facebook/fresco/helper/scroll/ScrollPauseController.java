@@ -0,0 +1,215 @@
+package com.facebook.fresco.helper.scroll;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.widget.OverScroller;
+
+import com.facebook.fresco.helper.Phoenix;
+import com.facebook.fresco.helper.policy.RequestLevelPolicy;
+
+/**
+ * 根据列表的滚动速度自动调用Phoenix.pause()/resume()：
+ * 1、快速滑动（fling）时暂停图片请求，速度降下来或停止滚动时恢复
+ * 2、暂停时预测滚动停止后可见的条目范围，通过SettleListener通知使用方提前加载，
+ * 暂停期间提交的请求会在resume()时按提交顺序执行，因此这些条目会先于其他请求加载
+ * 3、统计暂停次数、暂停时长及省掉的请求数
+ * 4、设置了RequestLevelPolicy时同步更新其滑动状态
+ * <p>
+ * 暂停是全局的：同时存在多个列表时按引用计数处理，任一列表在快速滑动时暂停，所有列表都恢复后才恢复。
+ * SettleListener只负责通知，提前加载哪些条目由使用方决定，控制器本身不调整请求的优先级。
+ * <p>
+ * 一般不直接使用，而是使用RecyclerViewPauseOnScrollListener或AbsListViewPauseOnScrollListener，
+ * 所有方法都应在主线程中调用。
+ */
+public class ScrollPauseController {
+
+    /**
+     * 默认的暂停速度阈值，单位dp/s
+     */
+    public static final int DEFAULT_PAUSE_VELOCITY_DP = 2500;
+
+    /**
+     * 默认的恢复速度阈值，单位dp/s
+     */
+    public static final int DEFAULT_RESUME_VELOCITY_DP = 800;
+
+    public interface SettleListener {
+
+        /**
+         * 预测到滚动停止后可见的条目范围
+         *
+         * @param first 第一个可见条目的位置
+         * @param last  最后一个可见条目的位置
+         */
+        void onSettleRangePredicted(int first, int last);
+
+    }
+
+    /**
+     * 当前处于暂停状态的控制器数量，只在主线程中访问
+     */
+    private static int sPausedControllers;
+
+    private final ScrollPausePolicy mPolicy;
+
+    private final OverScroller mScroller;
+
+    private SettleListener mSettleListener;
+
+    private int mFirstVisible = -1;
+
+    private int mLastVisible = -1;
+
+    /**
+     * 是否计入了sPausedControllers
+     */
+    private boolean mHoldingPause;
+
+    public ScrollPauseController(Context context) {
+        this(context, DEFAULT_PAUSE_VELOCITY_DP, DEFAULT_RESUME_VELOCITY_DP);
+    }
+
+    /**
+     * @param pauseVelocityDp  暂停的速度阈值，单位dp/s
+     * @param resumeVelocityDp 恢复的速度阈值，单位dp/s
+     */
+    public ScrollPauseController(Context context, int pauseVelocityDp, int resumeVelocityDp) {
+        float density = context.getResources().getDisplayMetrics().density;
+        mPolicy = new ScrollPausePolicy(pauseVelocityDp * density, resumeVelocityDp * density);
+        mScroller = new OverScroller(context);
+    }
+
+    public void setSettleListener(SettleListener settleListener) {
+        mSettleListener = settleListener;
+    }
+
+    /**
+     * 列表滚动
+     *
+     * @param delta      本次滚动的距离，单位px，向前滚动为正
+     * @param first      第一个可见条目的位置
+     * @param last       最后一个可见条目的位置
+     * @param itemExtent 单个条目在滚动方向上的尺寸，单位px，用于预测停止位置，未知时传0
+     * @param itemCount  条目总数
+     */
+    public void onScrolled(int delta, int first, int last, int itemExtent, int itemCount) {
+        updateVisibleRange(first, last);
+        if (!mPolicy.onScrolled(delta, SystemClock.uptimeMillis())) {
+            return;
+        }
+
+        if (mPolicy.isPaused()) {
+            pause();
+            predictSettleRange(delta, itemExtent, itemCount);
+        } else {
+            resume();
+        }
+    }
+
+    /**
+     * 列表停止滚动
+     */
+    public void onIdle(int first, int last) {
+        updateVisibleRange(first, last);
+        if (mPolicy.onIdle(SystemClock.uptimeMillis())) {
+            resume();
+        }
+    }
+
+    /**
+     * 列表被移除等情况下调用，确保不会一直处于暂停状态
+     */
+    public void reset() {
+        onIdle(mFirstVisible, mLastVisible);
+        // 释放本控制器持有的暂停计数，否则其他列表将无法恢复
+        resume();
+    }
+
+    private void pause() {
+        if (mHoldingPause) {
+            return;
+        }
+        mHoldingPause = true;
+        if (sPausedControllers++ > 0) {
+            return;
+        }
+
+        Phoenix.pause();
+        RequestLevelPolicy requestLevelPolicy = Phoenix.getRequestLevelPolicy();
+        if (requestLevelPolicy != null) {
+            requestLevelPolicy.setFlinging(true);
+        }
+    }
+
+    /**
+     * 其他列表仍在快速滑动时不恢复
+     */
+    private void resume() {
+        if (!mHoldingPause) {
+            return;
+        }
+        mHoldingPause = false;
+        if (--sPausedControllers > 0) {
+            return;
+        }
+
+        RequestLevelPolicy requestLevelPolicy = Phoenix.getRequestLevelPolicy();
+        if (requestLevelPolicy != null) {
+            requestLevelPolicy.setFlinging(false);
+        }
+        Phoenix.resume();
+    }
+
+    private void updateVisibleRange(int first, int last) {
+        if (first < 0 || last < first) {
+            return;
+        }
+
+        mFirstVisible = first;
+        mLastVisible = last;
+        mPolicy.onVisibleRange(first, last);
+    }
+
+    private void predictSettleRange(int delta, int itemExtent, int itemCount) {
+        if (mSettleListener == null || itemExtent <= 0 || mFirstVisible < 0) {
+            return;
+        }
+
+        // 用与列表相同的减速模型计算按当前速度fling能滚动的距离
+        int velocity = (int) (delta > 0 ? mPolicy.getVelocity() : -mPolicy.getVelocity());
+        mScroller.fling(0, 0, 0, velocity, 0, 0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        int distance = mScroller.getFinalY();
+        mScroller.forceFinished(true);
+
+        int offset = distance / itemExtent;
+        int visibleCount = mLastVisible - mFirstVisible;
+        int first = Math.max(0, Math.min(mFirstVisible + offset, itemCount - 1 - visibleCount));
+        int last = Math.min(itemCount - 1, first + visibleCount);
+        if (last >= first) {
+            mSettleListener.onSettleRangePredicted(first, last);
+        }
+    }
+
+    public boolean isPaused() {
+        return mPolicy.isPaused();
+    }
+
+    public int getPauseCount() {
+        return mPolicy.getPauseCount();
+    }
+
+    /**
+     * 累计暂停的时间，单位毫秒
+     */
+    public long getPausedMillis() {
+        return mPolicy.getPausedMillis();
+    }
+
+    /**
+     * 因快速滑动时暂停而省掉的图片请求数（按条目计）
+     */
+    public int getAvoidedRequestCount() {
+        return mPolicy.getAvoidedCount();
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.facebook.fresco.helper.scroll;
+
+/**
+ * 根据滚动速度决定是否暂停图片的网络请求：
+ * 1、速度超过pauseVelocity时暂停，速度降到resumeVelocity以下或滚动停止时恢复（两个阈值形成回差，避免频繁切换）
+ * 2、统计暂停期间滑入又滑出屏幕的条目数，这些条目的图片请求因暂停而被省掉
+ * <p>
+ * 不依赖Android API，时间和速度均由调用方传入。
+ */
+public class ScrollPausePolicy {
+
+    /**
+     * 两次滚动回调间隔超过该值时，不再与之前的速度做平滑
+     */
+    private static final long VELOCITY_RESET_MILLIS = 100;
+
+    /**
+     * 停止后的第一次滚动回调无法得知间隔，按一帧计算
+     */
+    private static final long FRAME_MILLIS = 16;
+
+    private final float mPauseVelocity;
+
+    private final float mResumeVelocity;
+
+    private float mVelocity;
+
+    private long mLastScrollTime;
+
+    private boolean mPaused;
+
+    private long mPauseStartTime;
+
+    private long mPausedMillis;
+
+    private int mPauseCount;
+
+    private int mAvoidedCount;
+
+    private int mFirstVisible = -1;
+
+    private int mLastVisible = -1;
+
+    private int mPauseFirst;
+
+    private int mPauseLast;
+
+    private int mSeenFirst;
+
+    private int mSeenLast;
+
+    /**
+     * @param pauseVelocity  暂停的速度阈值，单位px/s
+     * @param resumeVelocity 恢复的速度阈值，单位px/s，应小于pauseVelocity
+     */
+    public ScrollPausePolicy(float pauseVelocity, float resumeVelocity) {
+        if (resumeVelocity > pauseVelocity) {
+            throw new IllegalArgumentException("resumeVelocity must not exceed pauseVelocity");
+        }
+        mPauseVelocity = pauseVelocity;
+        mResumeVelocity = resumeVelocity;
+    }
+
+    /**
+     * 更新当前可见的条目范围
+     */
+    public void onVisibleRange(int first, int last) {
+        if (first < 0 || last < first) {
+            return;
+        }
+
+        mFirstVisible = first;
+        mLastVisible = last;
+        if (mPaused) {
+            mSeenFirst = Math.min(mSeenFirst, first);
+            mSeenLast = Math.max(mSeenLast, last);
+        }
+    }
+
+    /**
+     * 滚动了delta像素
+     *
+     * @param delta 本次滚动的距离，单位px
+     * @param now   当前时间，单位毫秒
+     * @return 暂停状态是否发生变化
+     */
+    public boolean onScrolled(int delta, long now) {
+        long elapsed = mLastScrollTime == 0 ? FRAME_MILLIS : now - mLastScrollTime;
+        float velocity = Math.abs(delta) * 1000f / Math.max(1, elapsed);
+        if (mLastScrollTime == 0 || elapsed > VELOCITY_RESET_MILLIS) {
+            mVelocity = velocity;
+        } else {
+            mVelocity = (mVelocity + velocity) / 2;
+        }
+        mLastScrollTime = now;
+
+        if (!mPaused && mVelocity > mPauseVelocity) {
+            pause(now);
+            return true;
+        } else if (mPaused && mVelocity < mResumeVelocity) {
+            resume(now);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 滚动停止
+     *
+     * @return 暂停状态是否发生变化
+     */
+    public boolean onIdle(long now) {
+        mVelocity = 0;
+        mLastScrollTime = 0;
+        if (mPaused) {
+            resume(now);
+            return true;
+        }
+        return false;
+    }
+
+    private void pause(long now) {
+        mPaused = true;
+        mPauseCount++;
+        mPauseStartTime = now;
+        mPauseFirst = mSeenFirst = mFirstVisible;
+        mPauseLast = mSeenLast = mLastVisible;
+    }
+
+    private void resume(long now) {
+        mPaused = false;
+        mPausedMillis += now - mPauseStartTime;
+        if (mPauseFirst >= 0 && mFirstVisible >= 0) {
+            // 暂停期间出现过的条目中，既不在暂停开始时可见、也不在恢复时可见的，其请求被省掉了
+            int seen = mSeenLast - mSeenFirst + 1;
+            int atPause = overlap(mSeenFirst, mSeenLast, mPauseFirst, mPauseLast);
+            int atResume = overlap(mSeenFirst, mSeenLast, mFirstVisible, mLastVisible);
+            int both = overlap(Math.max(mPauseFirst, mFirstVisible), Math.min(mPauseLast, mLastVisible),
+                    mSeenFirst, mSeenLast);
+            mAvoidedCount += Math.max(0, seen - atPause - atResume + both);
+        }
+    }
+
+    private static int overlap(int first1, int last1, int first2, int last2) {
+        return Math.max(0, Math.min(last1, last2) - Math.max(first1, first2) + 1);
+    }
+
+    public boolean isPaused() {
+        return mPaused;
+    }
+
+    /**
+     * 当前的滚动速度，单位px/s
+     */
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    public int getPauseCount() {
+        return mPauseCount;
+    }
+
+    /**
+     * 累计暂停的时间，单位毫秒
+     */
+    public long getPausedMillis() {
+        return mPausedMillis;
+    }
+
+    /**
+     * 因暂停而省掉的图片请求数（按条目计）
+     */
+    public int getAvoidedCount() {
+        return mAvoidedCount;
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.facebook.fresco.helper.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 合并相同的进行中请求：同一个key的请求只有第一个真正发起，其余的只登记回调，
+ * 请求完成时由发起方取出所有回调，把同一个结果分发给它们。
+ *
+ * @param <K> 请求的key，需要正确实现equals()和hashCode()
+ * @param <W> 等待结果的回调
+ */
+public class InFlightRequests<K, W> {
+
+    private final Map<K, List<W>> mWaiters = new HashMap<>();
+
+    private long mCoalescedCount;
+
+    /**
+     * 登记一个等待结果的回调
+     *
+     * @return true表示该key当前没有进行中的请求，调用方需要发起请求，并在完成后调用complete()
+     */
+    public synchronized boolean join(K key, W waiter) {
+        List<W> waiters = mWaiters.get(key);
+        if (waiters == null) {
+            waiters = new ArrayList<>(1);
+            waiters.add(waiter);
+            mWaiters.put(key, waiters);
+            return true;
+        }
+
+        waiters.add(waiter);
+        mCoalescedCount++;
+        return false;
+    }
+
+    /**
+     * 请求完成，取出该key登记的所有回调。之后同一个key的join()会重新发起请求
+     */
+    public synchronized List<W> complete(K key) {
+        List<W> waiters = mWaiters.remove(key);
+        return waiters != null ? waiters : Collections.<W>emptyList();
+    }
+
+    /**
+     * 当前进行中的请求数
+     */
+    public synchronized int getInFlightCount() {
+        return mWaiters.size();
+    }
+
+    /**
+     * 累计被合并（没有重复发起）的请求数
+     */
+    public synchronized long getCoalescedCount() {
+        return mCoalescedCount;
+    }
+
+}
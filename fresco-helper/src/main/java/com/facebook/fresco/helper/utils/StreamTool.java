@@ -2,11 +2,16 @@ package com.facebook.fresco.helper.utils;
 
 import android.graphics.Bitmap;
 
+import com.facebook.imagepipeline.memory.PooledByteBuffer;
+
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * 功能描述：数据流处理工具类
@@ -15,6 +20,11 @@ import java.io.InputStream;
  */
 public final class StreamTool {
 
+    /**
+     * 流式写文件时每次读写的块大小
+     */
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
     /**
      * 拷贝图片文件
      * @param oldPath 原图片所在路径
@@ -47,6 +57,49 @@ public final class StreamTool {
         fileOutputStream.close();
     }
 
+    /**
+     * 将PooledByteBuffer中的数据分块写入指定的文件，不会把全部数据读到Java堆中。
+     * 数据先写入同目录下的临时文件，写完后再重命名为目标文件，因此目标文件要么不存在，要么是完整的
+     *
+     * @param filePath         指定文件的路径
+     * @param pooledByteBuffer PooledByteBuffer，调用方负责关闭
+     * @throws IOException
+     */
+    public static void write(String filePath, PooledByteBuffer pooledByteBuffer) throws IOException {
+        File file = new File(filePath).getAbsoluteFile();
+        File tempFile = File.createTempFile("." + file.getName() + "-", ".tmp", file.getParentFile());
+        FileOutputStream fileOutputStream = new FileOutputStream(tempFile);
+        boolean success = false;
+        try {
+            FileChannel channel = fileOutputStream.getChannel();
+            byte[] chunk = new byte[STREAM_BUFFER_SIZE];
+            ByteBuffer byteBuffer = ByteBuffer.wrap(chunk);
+            int size = pooledByteBuffer.size();
+            int offset = 0;
+            while (offset < size) {
+                int length = Math.min(chunk.length, size - offset);
+                pooledByteBuffer.read(offset, chunk, 0, length);
+                byteBuffer.clear();
+                byteBuffer.limit(length);
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer);
+                }
+                offset += length;
+            }
+            success = true;
+        } finally {
+            fileOutputStream.close();
+            if (!success) {
+                tempFile.delete();
+            }
+        }
+
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("rename " + tempFile + " to " + file + " failed");
+        }
+    }
+
     /**
      * 根据文件路径获取byte[]
      * @param path 文件路径
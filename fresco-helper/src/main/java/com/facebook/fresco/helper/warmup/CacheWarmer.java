@@ -0,0 +1,313 @@
+package com.facebook.fresco.helper.warmup;
+
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.facebook.common.references.CloseableReference;
+import com.facebook.common.util.UriUtil;
+import com.facebook.datasource.BaseDataSubscriber;
+import com.facebook.datasource.DataSource;
+import com.facebook.drawee.backends.pipeline.Fresco;
+import com.facebook.fresco.helper.executor.ImageExecutors;
+import com.facebook.imagepipeline.common.Priority;
+import com.facebook.imagepipeline.common.ResizeOptions;
+import com.facebook.imagepipeline.common.RotationOptions;
+import com.facebook.imagepipeline.core.ImagePipeline;
+import com.facebook.imagepipeline.image.CloseableImage;
+import com.facebook.imagepipeline.listener.BaseRequestListener;
+import com.facebook.imagepipeline.request.ImageRequest;
+import com.facebook.imagepipeline.request.ImageRequestBuilder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 冷启动时预热已解码图片的内存缓存：
+ * 1、作为RequestListener记录页面加载的图片及其尺寸，带后处理的请求不记录
+ * 2、应用进入后台或内存紧张时通过save()把访问次数最多的条目写入HotSetManifest文件
+ * 3、启动时warmUp()读取清单，在IO线程池中以低优先级逐张从磁盘缓存解码，不访问网络，
+ *    达到图片数或内存上限后停止
+ * <p>
+ * 预热的结果和命中率通过getStats()查看。
+ */
+public class CacheWarmer extends BaseRequestListener {
+
+    private static final String TAG = "CacheWarmer";
+
+    /**
+     * 清单保存的条目数上限
+     */
+    public static final int MANIFEST_MAX_ENTRIES = 128;
+
+    public static final int DEFAULT_MAX_IMAGES = 24;
+
+    public static final long DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * 预热请求的callerContext，用于区分预热请求和页面的请求
+     */
+    private static final Object CALLER_CONTEXT = TAG;
+
+    /**
+     * 记录的URI长度上限，超过的不记录，避免清单文件过大
+     */
+    private static final int MAX_URI_LENGTH = 2048;
+
+    private final File mManifestFile;
+
+    private final HotSetManifest mManifest = new HotSetManifest(MANIFEST_MAX_ENTRIES);
+
+    private final AtomicInteger mRecordCount = new AtomicInteger();
+
+    private final Set<String> mWarmedKeys = Collections.synchronizedSet(new HashSet<String>());
+
+    private final Object mStatsLock = new Object();
+
+    private volatile int mSavedRecordCount;
+
+    private boolean mStarted;
+    private int mMaxImages;
+    private long mMaxBytes;
+    private int mManifestSize;
+    private int mWarmedCount;
+    private long mWarmedBytes;
+    private int mSkippedCount;
+    private int mFailedCount;
+    private int mHitCount;
+    private long mStartTime;
+    private long mDurationMillis = -1;
+
+    /**
+     * @param manifestFile 清单文件
+     */
+    public CacheWarmer(File manifestFile) {
+        mManifestFile = manifestFile;
+    }
+
+    @Override
+    public void onRequestStart(ImageRequest request, Object callerContext, String requestId, boolean isPrefetch) {
+        if (isPrefetch || callerContext == CALLER_CONTEXT || request.getPostprocessor() != null) {
+            return;
+        }
+
+        RotationOptions rotationOptions = request.getRotationOptions();
+        if (rotationOptions.canDeferUntilRendered()) {
+            return;
+        }
+        int rotation = rotationOptions.useImageMetadata()
+                ? HotSetManifest.ROTATION_AUTO : rotationOptions.getForcedAngle();
+        ResizeOptions resizeOptions = request.getResizeOptions();
+        int width = resizeOptions != null ? resizeOptions.width : 0;
+        int height = resizeOptions != null ? resizeOptions.height : 0;
+        if (width > Short.MAX_VALUE || height > Short.MAX_VALUE) {
+            return;
+        }
+        boolean smallDiskCache = request.getCacheChoice() == ImageRequest.CacheChoice.SMALL;
+
+        // 只记录网络图片和本地文件，data:等内联图片本身就在请求中，且可能很长
+        Uri sourceUri = request.getSourceUri();
+        if (!UriUtil.isNetworkUri(sourceUri) && !UriUtil.isLocalFileUri(sourceUri)) {
+            return;
+        }
+        String uri = sourceUri.toString();
+        if (uri.length() > MAX_URI_LENGTH) {
+            return;
+        }
+        mManifest.record(uri, width, height, rotation, smallDiskCache);
+        mRecordCount.incrementAndGet();
+
+        if (mWarmedKeys.remove(HotSetManifest.key(uri, width, height, rotation, smallDiskCache))) {
+            synchronized (mStatsLock) {
+                mHitCount++;
+            }
+        }
+    }
+
+    /**
+     * 读取清单并预热，只执行一次
+     *
+     * @param maxImages 最多预热的图片数，0表示不预热
+     * @param maxBytes  预热的已解码图片占用的内存上限，最后一张图片可能略微超出
+     */
+    public void warmUp(final int maxImages, final long maxBytes) {
+        synchronized (mStatsLock) {
+            if (mStarted || maxImages <= 0 || maxBytes <= 0) {
+                return;
+            }
+            mStarted = true;
+            mMaxImages = maxImages;
+            mMaxBytes = maxBytes;
+            mStartTime = SystemClock.uptimeMillis();
+        }
+
+        ImageExecutors.forIo().execute(new Runnable() {
+            @Override
+            public void run() {
+                int manifestSize = readManifest();
+                synchronized (mStatsLock) {
+                    mManifestSize = manifestSize;
+                }
+                warmNext(mManifest.getTop(maxImages), 0);
+            }
+        }, Priority.LOW);
+    }
+
+    /**
+     * 异步保存清单，距离上次保存没有新的记录时不做任何事
+     */
+    public void save() {
+        final int recordCount = mRecordCount.get();
+        if (recordCount == mSavedRecordCount) {
+            return;
+        }
+
+        ImageExecutors.forIo().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (writeManifest()) {
+                    mSavedRecordCount = recordCount;
+                }
+            }
+        }, Priority.LOW);
+    }
+
+    public WarmupStats getStats() {
+        synchronized (mStatsLock) {
+            return new WarmupStats(mMaxImages, mMaxBytes, mManifestSize, mWarmedCount, mWarmedBytes,
+                    mSkippedCount, mFailedCount, mHitCount, mDurationMillis);
+        }
+    }
+
+    private void warmNext(final List<HotSetManifest.Entry> entries, final int index) {
+        synchronized (mStatsLock) {
+            if (index >= entries.size() || mWarmedBytes >= mMaxBytes) {
+                mDurationMillis = SystemClock.uptimeMillis() - mStartTime;
+                return;
+            }
+        }
+
+        final HotSetManifest.Entry entry = entries.get(index);
+        ImageRequest imageRequest = buildImageRequest(entry);
+        ImagePipeline imagePipeline = Fresco.getImagePipeline();
+        if (imagePipeline.isInBitmapMemoryCache(imageRequest)) {
+            synchronized (mStatsLock) {
+                mSkippedCount++;
+            }
+            warmNext(entries, index + 1);
+            return;
+        }
+
+        // 逐张解码，避免与首屏的请求争抢解码线程
+        final Executor executor = ImageExecutors.forIo().withPriority(Priority.LOW);
+        final DataSource<CloseableReference<CloseableImage>> dataSource =
+                imagePipeline.fetchDecodedImage(imageRequest, CALLER_CONTEXT);
+        dataSource.subscribe(new BaseDataSubscriber<CloseableReference<CloseableImage>>() {
+            @Override
+            protected void onNewResultImpl(DataSource<CloseableReference<CloseableImage>> dataSource) {
+                if (!dataSource.isFinished()) {
+                    return;
+                }
+
+                CloseableReference<CloseableImage> imageReference = dataSource.getResult();
+                synchronized (mStatsLock) {
+                    if (imageReference != null) {
+                        mWarmedCount++;
+                        mWarmedBytes += imageReference.get().getSizeInBytes();
+                    } else {
+                        mFailedCount++;
+                    }
+                }
+                if (imageReference != null) {
+                    mWarmedKeys.add(entry.getKey());
+                }
+                CloseableReference.closeSafely(imageReference);
+                warmNext(entries, index + 1);
+            }
+
+            @Override
+            protected void onFailureImpl(DataSource<CloseableReference<CloseableImage>> dataSource) {
+                synchronized (mStatsLock) {
+                    mFailedCount++;
+                }
+                warmNext(entries, index + 1);
+            }
+        }, executor);
+    }
+
+    private static ImageRequest buildImageRequest(HotSetManifest.Entry entry) {
+        ImageRequestBuilder builder = ImageRequestBuilder.newBuilderWithSource(Uri.parse(entry.uri))
+                .setRotationOptions(entry.rotation == HotSetManifest.ROTATION_AUTO
+                        ? RotationOptions.autoRotate() : RotationOptions.forceRotation(entry.rotation))
+                .setLowestPermittedRequestLevel(ImageRequest.RequestLevel.DISK_CACHE)
+                .setRequestPriority(Priority.LOW);
+        if (entry.width > 0 && entry.height > 0) {
+            builder.setResizeOptions(new ResizeOptions(entry.width, entry.height));
+        }
+        if (entry.smallDiskCache) {
+            builder.setCacheChoice(ImageRequest.CacheChoice.SMALL);
+        }
+        return builder.build();
+    }
+
+    private int readManifest() {
+        if (!mManifestFile.exists()) {
+            return 0;
+        }
+
+        InputStream in = null;
+        try {
+            in = new BufferedInputStream(new FileInputStream(mManifestFile));
+            mManifest.readFrom(in);
+        } catch (IOException e) {
+            Log.w(TAG, "readManifest: " + e.toString());
+            mManifestFile.delete();
+        } finally {
+            closeQuietly(in);
+        }
+        return mManifest.size();
+    }
+
+    /**
+     * 先写临时文件再重命名，进程在写入过程中被杀时不会损坏已有的清单
+     */
+    private boolean writeManifest() {
+        File tempFile = new File(mManifestFile.getPath() + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(tempFile));
+            mManifest.writeTo(out);
+            out.close();
+            out = null;
+            return tempFile.renameTo(mManifestFile);
+        } catch (IOException e) {
+            Log.w(TAG, "writeManifest: " + e.toString());
+            return false;
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+package com.facebook.fresco.helper.warmup;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 最常显示的图片及其解码参数，用于冷启动时预热已解码图片的内存缓存。
+ * <p>
+ * 以紧凑的二进制格式保存：
+ * <pre>
+ * int magic, byte version, int count,
+ * count * (UTF uri, short width, short height, short rotation, byte flags, int count)
+ * </pre>
+ * 读取时计数减半，之前的访问次数逐次衰减，新的热门图片可以替换掉旧的。线程安全。
+ */
+public class HotSetManifest {
+
+    static final int MAGIC = 0x48534d46; // "HSMF"
+
+    static final int VERSION = 1;
+
+    /**
+     * RotationOptions.autoRotate()，其他值为RotationOptions.forceRotation()的角度
+     */
+    public static final int ROTATION_AUTO = -1;
+
+    private static final int FLAG_SMALL_DISK_CACHE = 1;
+
+    /**
+     * DataOutputStream.writeUTF()能写入的最大字节数
+     */
+    private static final int MAX_UTF_LENGTH = 65535;
+
+    private static final Comparator<Entry> BY_COUNT_DESC = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry lhs, Entry rhs) {
+            return lhs.mCount > rhs.mCount ? -1 : (lhs.mCount == rhs.mCount ? 0 : 1);
+        }
+    };
+
+    public static class Entry {
+
+        public final String uri;
+
+        public final int width;
+
+        public final int height;
+
+        public final int rotation;
+
+        public final boolean smallDiskCache;
+
+        private int mCount;
+
+        public Entry(String uri, int width, int height, int rotation, boolean smallDiskCache) {
+            this.uri = uri;
+            this.width = width;
+            this.height = height;
+            this.rotation = rotation;
+            this.smallDiskCache = smallDiskCache;
+        }
+
+        /**
+         * 同一张图片以不同尺寸解码时是不同的缓存条目
+         */
+        public String getKey() {
+            return key(uri, width, height, rotation, smallDiskCache);
+        }
+
+        public int getCount() {
+            return mCount;
+        }
+
+    }
+
+    private final int mMaxEntries;
+
+    private final Map<String, Entry> mEntries = new HashMap<>();
+
+    /**
+     * @param maxEntries 保存的条目数上限，记录时最多暂存两倍，超出后只保留访问次数最多的
+     */
+    public HotSetManifest(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be > 0");
+        }
+        mMaxEntries = maxEntries;
+    }
+
+    public static String key(String uri, int width, int height, int rotation, boolean smallDiskCache) {
+        return uri + '#' + width + 'x' + height + 'r' + rotation + (smallDiskCache ? "s" : "");
+    }
+
+    public synchronized void record(String uri, int width, int height, int rotation, boolean smallDiskCache) {
+        add(new Entry(uri, width, height, rotation, smallDiskCache), 1);
+        if (mEntries.size() > mMaxEntries * 2) {
+            List<Entry> top = getTop(mMaxEntries);
+            mEntries.clear();
+            for (Entry entry : top) {
+                mEntries.put(entry.getKey(), entry);
+            }
+        }
+    }
+
+    /**
+     * 访问次数最多的n个条目，按访问次数从多到少排列
+     */
+    public synchronized List<Entry> getTop(int n) {
+        List<Entry> entries = new ArrayList<>(mEntries.values());
+        Collections.sort(entries, BY_COUNT_DESC);
+        return entries.size() > n ? new ArrayList<>(entries.subList(0, n)) : entries;
+    }
+
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * 写入访问次数最多的maxEntries个条目，不关闭out。uri过长无法写入的条目直接丢弃
+     */
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        List<Entry> entries = getTop(mMaxEntries);
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (utfLength(entries.get(i).uri) > MAX_UTF_LENGTH) {
+                entries.remove(i);
+            }
+        }
+
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(MAGIC);
+        dataOut.writeByte(VERSION);
+        dataOut.writeInt(entries.size());
+        for (Entry entry : entries) {
+            dataOut.writeUTF(entry.uri);
+            dataOut.writeShort(entry.width);
+            dataOut.writeShort(entry.height);
+            dataOut.writeShort(entry.rotation);
+            dataOut.writeByte(entry.smallDiskCache ? FLAG_SMALL_DISK_CACHE : 0);
+            dataOut.writeInt(entry.mCount);
+        }
+        dataOut.flush();
+    }
+
+    /**
+     * 按DataOutputStream.writeUTF()使用的modified UTF-8计算编码后的字节数
+     */
+    static int utfLength(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                length++;
+            } else if (c <= 0x07FF) {
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 读取writeTo()写入的数据，与当前记录的条目合并，不关闭in
+     *
+     * @throws IOException 格式或版本不匹配
+     */
+    public synchronized void readFrom(InputStream in) throws IOException {
+        DataInputStream dataIn = new DataInputStream(in);
+        if (dataIn.readInt() != MAGIC || dataIn.readByte() != VERSION) {
+            throw new IOException("Unsupported hot set manifest");
+        }
+
+        int count = dataIn.readInt();
+        if (count < 0 || count > mMaxEntries * 2) {
+            throw new IOException("Invalid entry count " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            String uri = dataIn.readUTF();
+            int width = dataIn.readShort();
+            int height = dataIn.readShort();
+            int rotation = dataIn.readShort();
+            boolean smallDiskCache = (dataIn.readByte() & FLAG_SMALL_DISK_CACHE) != 0;
+            int hits = dataIn.readInt();
+            add(new Entry(uri, width, height, rotation, smallDiskCache), (hits + 1) / 2);
+        }
+    }
+
+    private void add(Entry entry, int count) {
+        String key = entry.getKey();
+        Entry existing = mEntries.get(key);
+        if (existing == null) {
+            mEntries.put(key, entry);
+            existing = entry;
+        }
+        existing.mCount += count;
+    }
+
+}
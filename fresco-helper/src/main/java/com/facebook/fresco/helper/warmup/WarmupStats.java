@@ -0,0 +1,84 @@
+package com.facebook.fresco.helper.warmup;
+
+import java.util.Locale;
+
+/**
+ * 冷启动内存缓存预热的统计信息
+ */
+public class WarmupStats {
+
+    /**
+     * 最多预热的图片数
+     */
+    public final int maxImages;
+
+    /**
+     * 预热的已解码图片占用的内存上限，单位字节
+     */
+    public final long maxBytes;
+
+    /**
+     * 从磁盘读取的清单中的条目数
+     */
+    public final int manifestSize;
+
+    /**
+     * 成功解码进内存缓存的图片数
+     */
+    public final int warmedCount;
+
+    /**
+     * 预热的已解码图片占用的内存，单位字节
+     */
+    public final long warmedBytes;
+
+    /**
+     * 已在内存缓存中而跳过的图片数
+     */
+    public final int skippedCount;
+
+    /**
+     * 不在磁盘缓存中或解码失败的图片数，预热不会访问网络
+     */
+    public final int failedCount;
+
+    /**
+     * 预热的图片中之后被页面加载的图片数
+     */
+    public final int hitCount;
+
+    /**
+     * 预热耗时，单位毫秒，未完成时为-1
+     */
+    public final long durationMillis;
+
+    public WarmupStats(int maxImages, long maxBytes, int manifestSize, int warmedCount, long warmedBytes,
+                       int skippedCount, int failedCount, int hitCount, long durationMillis) {
+        this.maxImages = maxImages;
+        this.maxBytes = maxBytes;
+        this.manifestSize = manifestSize;
+        this.warmedCount = warmedCount;
+        this.warmedBytes = warmedBytes;
+        this.skippedCount = skippedCount;
+        this.failedCount = failedCount;
+        this.hitCount = hitCount;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * 预热的图片被使用的比例，没有预热任何图片时返回0
+     */
+    public float getHitRate() {
+        return warmedCount == 0 ? 0 : (float) hitCount / warmedCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "WarmupStats{budget=%d images/%dKB, manifest=%d, warmed=%d (%dKB), skipped=%d, failed=%d, "
+                        + "hits=%d (%.1f%%), duration=%dms}",
+                maxImages, maxBytes / 1024, manifestSize, warmedCount, warmedBytes / 1024, skippedCount,
+                failedCount, hitCount, getHitRate() * 100, durationMillis);
+    }
+
+}
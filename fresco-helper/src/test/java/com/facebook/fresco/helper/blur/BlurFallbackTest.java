@@ -0,0 +1,92 @@
+package com.facebook.fresco.helper.blur;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 不依赖RenderScript运行时，验证模糊处理的降级逻辑
+ */
+public class BlurFallbackTest {
+
+    @Test
+    public void blur_usesPrimaryWhenItSucceeds() throws Exception {
+        CountingBlurrer primary = new CountingBlurrer(false);
+        CountingBlurrer fallback = new CountingBlurrer(false);
+        BlurFallback blur = new BlurFallback(primary, fallback);
+
+        blur.blur(null, null, 25);
+
+        assertEquals(1, primary.calls);
+        assertEquals(0, fallback.calls);
+    }
+
+    @Test
+    public void blur_fallsBackWhenPrimaryFails() throws Exception {
+        CountingBlurrer primary = new CountingBlurrer(true);
+        CountingBlurrer fallback = new CountingBlurrer(false);
+        BlurFallback blur = new BlurFallback(primary, fallback);
+
+        blur.blur(null, null, 25);
+
+        assertEquals(1, primary.calls);
+        assertEquals(1, fallback.calls);
+        assertFalse(blur.isPrimaryDisabled());
+    }
+
+    @Test
+    public void blur_disablesPrimaryAfterRepeatedFailures() throws Exception {
+        CountingBlurrer primary = new CountingBlurrer(true);
+        CountingBlurrer fallback = new CountingBlurrer(false);
+        BlurFallback blur = new BlurFallback(primary, fallback);
+
+        for (int i = 0; i < BlurFallback.MAX_PRIMARY_FAILURES + 2; i++) {
+            blur.blur(null, null, 25);
+        }
+
+        assertTrue(blur.isPrimaryDisabled());
+        assertEquals(BlurFallback.MAX_PRIMARY_FAILURES, primary.calls);
+        assertEquals(BlurFallback.MAX_PRIMARY_FAILURES + 2, fallback.calls);
+    }
+
+    @Test
+    public void blur_successResetsFailureCount() throws Exception {
+        CountingBlurrer primary = new CountingBlurrer(true);
+        BlurFallback blur = new BlurFallback(primary, new CountingBlurrer(false));
+
+        for (int i = 0; i < BlurFallback.MAX_PRIMARY_FAILURES - 1; i++) {
+            blur.blur(null, null, 25);
+        }
+        primary.fail = false;
+        blur.blur(null, null, 25);
+        primary.fail = true;
+        blur.blur(null, null, 25);
+
+        assertFalse(blur.isPrimaryDisabled());
+    }
+
+    private static class CountingBlurrer implements BlurFallback.Blurrer {
+
+        boolean fail;
+        int calls;
+
+        CountingBlurrer(boolean fail) {
+            this.fail = fail;
+        }
+
+        @Override
+        public Bitmap blur(Context context, Bitmap bitmap, int radius) {
+            calls++;
+            if (fail) {
+                throw new IllegalStateException("RenderScript unavailable");
+            }
+            return bitmap;
+        }
+    }
+
+}
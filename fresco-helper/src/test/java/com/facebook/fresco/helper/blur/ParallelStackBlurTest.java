@@ -0,0 +1,45 @@
+package com.facebook.fresco.helper.blur;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * 验证并行模糊与串行模糊的输出逐位一致
+ */
+public class ParallelStackBlurTest {
+
+    @Test
+    public void blur_matchesSerialBlur() throws Exception {
+        Random random = new Random(20160927L);
+        int[][] sizes = {{1080, 480}, {517, 613}, {2000, 140}};
+        for (int[] size : sizes) {
+            int w = size[0];
+            int h = size[1];
+            int[] source = new int[w * h];
+            for (int i = 0; i < source.length; i++) {
+                source[i] = random.nextInt();
+            }
+
+            for (int radius : new int[]{1, 25, 100}) {
+                int[] expected = Arrays.copyOf(source, source.length);
+                StackBlur.blur(expected, w, h, radius);
+
+                int[] actual = Arrays.copyOf(source, source.length);
+                ParallelStackBlur.blur(actual, w, h, radius);
+
+                assertArrayEquals("w=" + w + " h=" + h + " radius=" + radius, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void shouldParallelize_smallBitmapStaysSerial() throws Exception {
+        assertFalse(ParallelStackBlur.shouldParallelize(100, 100));
+    }
+
+}
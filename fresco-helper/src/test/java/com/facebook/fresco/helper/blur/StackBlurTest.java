@@ -0,0 +1,324 @@
+package com.facebook.fresco.helper.blur;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 验证StackBlur与原FastBlur算法的输出逐位一致
+ */
+public class StackBlurTest {
+
+    private static final int[][] SIZES = {{1, 1}, {1, 7}, {9, 1}, {3, 5}, {64, 48}, {101, 37}, {320, 240}};
+
+    private static final int[] RADII = {1, 2, 5, 25, 35, 100};
+
+    @Test
+    public void blur_isBitIdenticalToReference() throws Exception {
+        Random random = new Random(20161113L);
+        for (int[] size : SIZES) {
+            int w = size[0];
+            int h = size[1];
+            for (int radius : RADII) {
+                int[] source = new int[w * h];
+                for (int i = 0; i < source.length; i++) {
+                    source[i] = random.nextInt();
+                }
+
+                int[] expected = Arrays.copyOf(source, source.length);
+                referenceBlur(expected, w, h, radius);
+
+                int[] actual = Arrays.copyOf(source, source.length);
+                StackBlur.blur(actual, w, h, radius);
+
+                assertArrayEquals("w=" + w + " h=" + h + " radius=" + radius, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void blur_reusesReleasedBuffers() throws Exception {
+        StackBlur.releaseScratch();
+        int[] pix = StackBlur.obtainPixels(200 * 100);
+        StackBlur.releasePixels(pix);
+        assertSame(pix, StackBlur.obtainPixels(100 * 200));
+        StackBlur.releasePixels(pix);
+        assertSame(pix, StackBlur.obtainPixels(150 * 100));
+        StackBlur.releasePixels(pix);
+        assertSame(StackBlur.divTable(35), StackBlur.divTable(35));
+    }
+
+    @Test
+    public void blur_doesNotPoolLargeBuffers() throws Exception {
+        StackBlur.releaseScratch();
+        int size = 1080 * 1920;
+        int[] pix = StackBlur.obtainPixels(size);
+        assertEquals(size, pix.length);
+
+        StackBlur.releasePixels(pix);
+        assertEquals(0, StackBlur.getPooledSize());
+
+        int[] pixels = new int[size];
+        StackBlur.blur(pixels, 1080, 1920, 10);
+        assertEquals(0, StackBlur.getPooledSize());
+    }
+
+    @Test
+    public void blur_boundsPooledSize() throws Exception {
+        StackBlur.releaseScratch();
+        int[][] buffers = new int[8][];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = StackBlur.obtainPixels(BlurBufferPool.MAX_REUSABLE_SIZE);
+        }
+        for (int[] buffer : buffers) {
+            StackBlur.releasePixels(buffer);
+        }
+        assertEquals(BlurBufferPool.MAX_POOL_SIZE, StackBlur.getPooledSize());
+        StackBlur.releaseScratch();
+    }
+
+    @Test
+    public void releaseScratch_dropsBuffersAndTables() throws Exception {
+        int[] pix = StackBlur.obtainPixels(200 * 100);
+        int[] dv = StackBlur.divTable(35);
+        StackBlur.releasePixels(pix);
+
+        StackBlur.releaseScratch();
+
+        assertNotSame(pix, StackBlur.obtainPixels(200 * 100));
+        assertNotSame(dv, StackBlur.divTable(35));
+    }
+
+    @Test
+    public void releaseScratch_clearsBuffersUsedByOtherThreads() throws Exception {
+        StackBlur.releaseScratch();
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                StackBlur.blur(new int[320 * 240], 320, 240, 25);
+            }
+        });
+        worker.start();
+        worker.join();
+        assertTrue(StackBlur.getPooledSize() > 0);
+
+        StackBlur.releaseScratch();
+
+        assertEquals(0, StackBlur.getPooledSize());
+    }
+
+    @Test
+    public void bucket_roundsUpToPowerOfTwo() throws Exception {
+        assertEquals(1024, BlurBufferPool.bucket(1));
+        assertEquals(4096, BlurBufferPool.bucket(4096));
+        assertEquals(8192, BlurBufferPool.bucket(4097));
+        assertEquals(BlurBufferPool.MAX_REUSABLE_SIZE, BlurBufferPool.bucket(BlurBufferPool.MAX_REUSABLE_SIZE - 1));
+        assertEquals(BlurBufferPool.MAX_REUSABLE_SIZE + 1, BlurBufferPool.bucket(BlurBufferPool.MAX_REUSABLE_SIZE + 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void blur_rejectsRadiusAboveMax() throws Exception {
+        StackBlur.blur(new int[16], 4, 4, StackBlur.MAX_RADIUS + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void blur_rejectsZeroRadius() throws Exception {
+        StackBlur.blur(new int[4], 2, 2, 0);
+    }
+
+    /**
+     * 原FastBlur.blur()中的像素处理逻辑，原样保留作为对照
+     */
+    private static void referenceBlur(int[] pix, int w, int h, int radius) {
+        int wm = w - 1;
+        int hm = h - 1;
+        int wh = w * h;
+        int div = radius + radius + 1;
+
+        int r[] = new int[wh];
+        int g[] = new int[wh];
+        int b[] = new int[wh];
+        int rsum, gsum, bsum, x, y, i, p, yp, yi, yw;
+        int vmin[] = new int[Math.max(w, h)];
+
+        int divsum = (div + 1) >> 1;
+        divsum *= divsum;
+        int dv[] = new int[256 * divsum];
+        for (i = 0; i < 256 * divsum; i++) {
+            dv[i] = (i / divsum);
+        }
+
+        yw = yi = 0;
+
+        int[][] stack = new int[div][3];
+        int stackpointer;
+        int stackstart;
+        int[] sir;
+        int rbs;
+        int r1 = radius + 1;
+        int routsum, goutsum, boutsum;
+        int rinsum, ginsum, binsum;
+
+        for (y = 0; y < h; y++) {
+            rinsum = ginsum = binsum = routsum = goutsum = boutsum = rsum = gsum = bsum = 0;
+            for (i = -radius; i <= radius; i++) {
+                p = pix[yi + Math.min(wm, Math.max(i, 0))];
+                sir = stack[i + radius];
+                sir[0] = (p & 0xff0000) >> 16;
+                sir[1] = (p & 0x00ff00) >> 8;
+                sir[2] = (p & 0x0000ff);
+                rbs = r1 - Math.abs(i);
+                rsum += sir[0] * rbs;
+                gsum += sir[1] * rbs;
+                bsum += sir[2] * rbs;
+                if (i > 0) {
+                    rinsum += sir[0];
+                    ginsum += sir[1];
+                    binsum += sir[2];
+                } else {
+                    routsum += sir[0];
+                    goutsum += sir[1];
+                    boutsum += sir[2];
+                }
+            }
+            stackpointer = radius;
+
+            for (x = 0; x < w; x++) {
+
+                r[yi] = dv[rsum];
+                g[yi] = dv[gsum];
+                b[yi] = dv[bsum];
+
+                rsum -= routsum;
+                gsum -= goutsum;
+                bsum -= boutsum;
+
+                stackstart = stackpointer - radius + div;
+                sir = stack[stackstart % div];
+
+                routsum -= sir[0];
+                goutsum -= sir[1];
+                boutsum -= sir[2];
+
+                if (y == 0) {
+                    vmin[x] = Math.min(x + radius + 1, wm);
+                }
+                p = pix[yw + vmin[x]];
+
+                sir[0] = (p & 0xff0000) >> 16;
+                sir[1] = (p & 0x00ff00) >> 8;
+                sir[2] = (p & 0x0000ff);
+
+                rinsum += sir[0];
+                ginsum += sir[1];
+                binsum += sir[2];
+
+                rsum += rinsum;
+                gsum += ginsum;
+                bsum += binsum;
+
+                stackpointer = (stackpointer + 1) % div;
+                sir = stack[(stackpointer) % div];
+
+                routsum += sir[0];
+                goutsum += sir[1];
+                boutsum += sir[2];
+
+                rinsum -= sir[0];
+                ginsum -= sir[1];
+                binsum -= sir[2];
+
+                yi++;
+            }
+            yw += w;
+        }
+        for (x = 0; x < w; x++) {
+            rinsum = ginsum = binsum = routsum = goutsum = boutsum = rsum = gsum = bsum = 0;
+            yp = -radius * w;
+            for (i = -radius; i <= radius; i++) {
+                yi = Math.max(0, yp) + x;
+
+                sir = stack[i + radius];
+
+                sir[0] = r[yi];
+                sir[1] = g[yi];
+                sir[2] = b[yi];
+
+                rbs = r1 - Math.abs(i);
+
+                rsum += r[yi] * rbs;
+                gsum += g[yi] * rbs;
+                bsum += b[yi] * rbs;
+
+                if (i > 0) {
+                    rinsum += sir[0];
+                    ginsum += sir[1];
+                    binsum += sir[2];
+                } else {
+                    routsum += sir[0];
+                    goutsum += sir[1];
+                    boutsum += sir[2];
+                }
+
+                if (i < hm) {
+                    yp += w;
+                }
+            }
+            yi = x;
+            stackpointer = radius;
+            for (y = 0; y < h; y++) {
+                // Preserve alpha channel: ( 0xff000000 & pix[yi] )
+                pix[yi] = (0xff000000 & pix[yi]) | (dv[rsum] << 16) | (dv[gsum] << 8) | dv[bsum];
+
+                rsum -= routsum;
+                gsum -= goutsum;
+                bsum -= boutsum;
+
+                stackstart = stackpointer - radius + div;
+                sir = stack[stackstart % div];
+
+                routsum -= sir[0];
+                goutsum -= sir[1];
+                boutsum -= sir[2];
+
+                if (x == 0) {
+                    vmin[y] = Math.min(y + r1, hm) * w;
+                }
+                p = x + vmin[y];
+
+                sir[0] = r[p];
+                sir[1] = g[p];
+                sir[2] = b[p];
+
+                rinsum += sir[0];
+                ginsum += sir[1];
+                binsum += sir[2];
+
+                rsum += rinsum;
+                gsum += ginsum;
+                bsum += binsum;
+
+                stackpointer = (stackpointer + 1) % div;
+                sir = stack[stackpointer];
+
+                routsum += sir[0];
+                goutsum += sir[1];
+                boutsum += sir[2];
+
+                rinsum -= sir[0];
+                ginsum -= sir[1];
+                binsum -= sir[2];
+
+                yi += w;
+            }
+        }
+    }
+
+}
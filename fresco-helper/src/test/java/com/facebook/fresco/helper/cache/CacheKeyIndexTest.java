@@ -0,0 +1,62 @@
+package com.facebook.fresco.helper.cache;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CacheKeyIndexTest {
+
+    @Test
+    public void find_matchesByTagPrefixAndPredicate() throws Exception {
+        CacheKeyIndex index = new CacheKeyIndex(16);
+        index.tag("https://cdn/avatar/1/a.jpg", "user:1");
+        index.tag("https://cdn/avatar/1/b.jpg", "user:1", "avatar");
+        index.tag("https://cdn/avatar/2/a.jpg", "user:2");
+        index.record("https://cdn/feed/1.jpg");
+
+        List<String> byTag = index.findByTag("user:1");
+        Collections.sort(byTag);
+        assertEquals(Arrays.asList("https://cdn/avatar/1/a.jpg", "https://cdn/avatar/1/b.jpg"), byTag);
+
+        assertEquals(3, index.findByPrefix("https://cdn/avatar/").size());
+        assertEquals(Collections.singletonList("https://cdn/feed/1.jpg"), index.find(new CacheKeyIndex.UriPredicate() {
+            @Override
+            public boolean apply(String uri) {
+                return uri.contains("/feed/");
+            }
+        }));
+        assertTrue(index.findByTag("user:3").isEmpty());
+    }
+
+    @Test
+    public void remove_dropsUriFromAllTags() throws Exception {
+        CacheKeyIndex index = new CacheKeyIndex(16);
+        index.tag("a", "x", "y");
+        index.tag("b", "x");
+
+        index.remove(Collections.singletonList("a"));
+
+        assertEquals(Collections.singletonList("b"), index.findByTag("x"));
+        assertTrue(index.findByTag("y").isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void record_evictsLeastRecentlyLoadedUri() throws Exception {
+        CacheKeyIndex index = new CacheKeyIndex(2);
+        index.tag("a", "x");
+        index.tag("b", "x");
+        index.record("a");
+        index.record("c");
+
+        assertEquals(2, index.size());
+        assertEquals(Collections.singletonList("a"), index.findByTag("x"));
+        assertTrue(index.findByPrefix("b").isEmpty());
+    }
+
+}
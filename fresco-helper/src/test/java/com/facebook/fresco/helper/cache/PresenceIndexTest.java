@@ -0,0 +1,86 @@
+package com.facebook.fresco.helper.cache;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PresenceIndexTest {
+
+    @Test
+    public void get_expiresPositiveAndNegativeEntriesSeparately() throws Exception {
+        PresenceIndex<String> index = new PresenceIndex<>(16, 1000, 100);
+        index.put("present.jpg", true, 0);
+        index.put("missing.jpg", false, 0);
+
+        assertEquals(Boolean.TRUE, index.get("present.jpg", 99));
+        assertEquals(Boolean.FALSE, index.get("missing.jpg", 99));
+
+        assertNull(index.get("missing.jpg", 100));
+        assertEquals(Boolean.TRUE, index.get("present.jpg", 999));
+        assertNull(index.get("present.jpg", 1000));
+
+        assertEquals(3, index.getHitCount());
+        assertEquals(2, index.getMissCount());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedEntry() throws Exception {
+        PresenceIndex<String> index = new PresenceIndex<>(2, 1000, 1000);
+        index.put("a", true, 0);
+        index.put("b", true, 0);
+        index.get("a", 1);
+        index.put("c", false, 1);
+
+        assertEquals(Boolean.TRUE, index.get("a", 2));
+        assertNull(index.get("b", 2));
+        assertEquals(Boolean.FALSE, index.get("c", 2));
+    }
+
+    @Test
+    public void invalidate_removesEntry() throws Exception {
+        PresenceIndex<String> index = new PresenceIndex<>(16, 1000, 1000);
+        index.put("a", false, 0);
+        index.invalidate("a");
+
+        assertNull(index.get("a", 1));
+    }
+
+    @Test
+    public void put_skipsResultInvalidatedDuringLookup() throws Exception {
+        PresenceIndex<String> index = new PresenceIndex<>(16, 1000, 1000);
+        long version = index.getVersion("a");
+        index.invalidate("a");
+
+        assertFalse(index.put("a", false, 0, version));
+        assertNull(index.get("a", 1));
+
+        assertTrue(index.put("a", true, 0, index.getVersion("a")));
+        assertEquals(Boolean.TRUE, index.get("a", 1));
+    }
+
+    @Test
+    public void put_skipsStaleResultAfterInvalidationRecordEvicted() throws Exception {
+        PresenceIndex<String> index = new PresenceIndex<>(2, 1000, 1000);
+        long version = index.getVersion("a");
+        index.invalidate("a");
+        index.invalidate("b");
+        index.invalidate("c");
+
+        assertFalse(index.put("a", false, 0, version));
+        assertTrue(index.put("b", false, 0, index.getVersion("b")));
+    }
+
+    @Test
+    public void put_skipsResultStartedBeforeClear() throws Exception {
+        PresenceIndex<String> index = new PresenceIndex<>(16, 1000, 1000);
+        long version = index.getVersion("a");
+        index.clear();
+
+        assertFalse(index.put("a", true, 0, version));
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.facebook.fresco.helper.config;
+
+import com.facebook.common.util.ByteConstants;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdaptiveDiskCacheSizerTest {
+
+    private static final long MB = ByteConstants.MB;
+
+    private final AdaptiveDiskCacheSizer mSizer = new AdaptiveDiskCacheSizer(
+            AdaptiveDiskCacheSizer.CacheType.MAIN, 10 * MB, 200 * MB, 0.05f, null);
+
+    @Test
+    public void decide_sizesFromFreeSpaceWithinBounds() throws Exception {
+        DiskCacheDecision decision = mSizer.decide(1000 * MB, 0, 0, 0, 0);
+        assertEquals(DiskCacheDecision.Reason.FREE_SPACE, decision.reason);
+        assertEquals(50 * MB, decision.maxCacheSize);
+        assertEquals(12 * MB + MB / 2, decision.lowDiskSpaceCacheSize);
+        assertEquals(10 * MB, decision.veryLowDiskSpaceCacheSize);
+        assertEquals(-1f, decision.byteHitRate, 0f);
+
+        assertEquals(200 * MB, mSizer.decide(64000 * MB, 0, 0, 0, 0).maxCacheSize);
+        assertEquals(15 * MB, mSizer.decide(300 * MB, 0, 0, 0, 0).maxCacheSize);
+        assertEquals(10 * MB, mSizer.decide(199 * MB, 0, 0, 0, 0).maxCacheSize);
+    }
+
+    @Test
+    public void decide_usesMinimumWhenFreeSpaceIsLow() throws Exception {
+        DiskCacheDecision decision = mSizer.decide(100 * MB, 50 * MB, 10 * MB, 90 * MB, 100 * MB);
+        assertEquals(DiskCacheDecision.Reason.LOW_SPACE, decision.reason);
+        assertEquals(10 * MB, decision.maxCacheSize);
+    }
+
+    @Test
+    public void decide_growsWhenThrashing() throws Exception {
+        // 命中率20%，淘汰量超过上次大小的一半
+        DiskCacheDecision decision = mSizer.decide(1000 * MB, 50 * MB, 20 * MB, 80 * MB, 30 * MB);
+        assertEquals(DiskCacheDecision.Reason.GROW, decision.reason);
+        assertEquals(75 * MB, decision.maxCacheSize);
+        assertEquals(0.2f, decision.byteHitRate, 0.001f);
+
+        // 扩大后不超过可用空间比例的2倍
+        assertEquals(100 * MB, mSizer.decide(1000 * MB, 90 * MB, 20 * MB, 80 * MB, 90 * MB).maxCacheSize);
+    }
+
+    @Test
+    public void decide_doesNotGrowWithoutEvictions() throws Exception {
+        DiskCacheDecision decision = mSizer.decide(1000 * MB, 50 * MB, 20 * MB, 80 * MB, 0);
+        assertEquals(DiskCacheDecision.Reason.FREE_SPACE, decision.reason);
+        assertEquals(50 * MB, decision.maxCacheSize);
+    }
+
+}
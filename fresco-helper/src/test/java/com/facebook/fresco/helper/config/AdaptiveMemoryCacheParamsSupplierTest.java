@@ -0,0 +1,81 @@
+package com.facebook.fresco.helper.config;
+
+import android.content.ComponentCallbacks2;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdaptiveMemoryCacheParamsSupplierTest {
+
+    private static final int MB = 1024 * 1024;
+
+    private AdaptiveMemoryCacheParamsSupplier newSupplier() {
+        return new AdaptiveMemoryCacheParamsSupplier(AdaptiveMemoryCacheParamsSupplier.CacheType.BITMAP,
+                new CacheStatsTracker(), 4 * MB, 16 * MB, 32 * MB);
+    }
+
+    @Test
+    public void decide_holdsWithoutEnoughSamples() throws Exception {
+        MemoryCacheDecision decision = newSupplier().decide(1, 10, 16 * MB, 16, 0);
+
+        assertEquals(MemoryCacheDecision.Reason.HOLD, decision.reason);
+        assertEquals(16 * MB, decision.maxCacheSize);
+    }
+
+    @Test
+    public void decide_growsWhenFullAndMissingUpToMax() throws Exception {
+        AdaptiveMemoryCacheParamsSupplier supplier = newSupplier();
+
+        MemoryCacheDecision decision = supplier.decide(20, 80, 16 * MB, 16, 0);
+        assertEquals(MemoryCacheDecision.Reason.GROW, decision.reason);
+        assertEquals(20 * MB, decision.maxCacheSize);
+        // 平均1MB，按2倍容纳
+        assertEquals(40, decision.maxCacheEntries);
+
+        for (int i = 0; i < 10; i++) {
+            decision = supplier.decide(20, 80, 32 * MB, 32, 0);
+        }
+        assertEquals(32 * MB, decision.maxCacheSize);
+    }
+
+    @Test
+    public void decide_shrinksWhenUnderusedWithHighHitRate() throws Exception {
+        MemoryCacheDecision decision = newSupplier().decide(95, 5, 2 * MB, 4, 0);
+
+        assertEquals(MemoryCacheDecision.Reason.SHRINK, decision.reason);
+        assertEquals(14 * MB, decision.maxCacheSize);
+    }
+
+    @Test
+    public void decide_trimsByLevelWithinMin() throws Exception {
+        AdaptiveMemoryCacheParamsSupplier supplier = newSupplier();
+
+        MemoryCacheDecision decision = supplier.decide(20, 80, 16 * MB, 16,
+                ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(MemoryCacheDecision.Reason.TRIM, decision.reason);
+        assertEquals(8 * MB, decision.maxCacheSize);
+
+        decision = supplier.decide(0, 0, 0, 0, ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        assertEquals(4 * MB, decision.maxCacheSize);
+    }
+
+    @Test
+    public void onTrimMemory_keepsStrongestTrimRegardlessOfLevelOrder() throws Exception {
+        AdaptiveMemoryCacheParamsSupplier supplier = newSupplier();
+        supplier.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+        // UI_HIDDEN的数值更大，但不缩小缓存，不能覆盖之前的RUNNING_CRITICAL
+        supplier.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        supplier.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+        supplier.get();
+        MemoryCacheDecision decision = supplier.getLastDecision();
+        assertEquals(MemoryCacheDecision.Reason.TRIM, decision.reason);
+        assertEquals(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL, decision.trimLevel);
+        assertEquals(4 * MB, decision.maxCacheSize);
+
+        supplier.get();
+        assertEquals(MemoryCacheDecision.Reason.HOLD, supplier.getLastDecision().reason);
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.facebook.fresco.helper.config;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InitTraceTest {
+
+    @Test
+    public void mark_recordsPhasesInOrderWithThread() throws Exception {
+        InitTrace trace = new InitTrace();
+        trace.mark("first");
+        Thread.sleep(5);
+        trace.mark("second");
+        trace.addBlocked(TimeUnit.MILLISECONDS.toNanos(7));
+
+        List<InitTrace.Phase> phases = trace.getPhases();
+        assertEquals(2, phases.size());
+        assertEquals("first", phases.get(0).name);
+        assertEquals("second", phases.get(1).name);
+        assertTrue(phases.get(1).durationMillis >= 5);
+        assertEquals(Thread.currentThread().getName(), phases.get(1).threadName);
+        assertTrue(trace.getTotalMillis() >= phases.get(1).durationMillis);
+        assertEquals(7, trace.getBlockedMillis());
+        assertTrue(trace.toString().contains("blocked=7ms, first="));
+    }
+
+}
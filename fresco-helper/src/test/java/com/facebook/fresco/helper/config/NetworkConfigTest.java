@@ -0,0 +1,114 @@
+package com.facebook.fresco.helper.config;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NetworkConfigTest {
+
+    private MockWebServer mServer;
+
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                mRelease.await(5, TimeUnit.SECONDS);
+                return new MockResponse().setBody("image");
+            }
+        });
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mRelease.countDown();
+        mServer.shutdown();
+    }
+
+    @Test
+    public void createOkHttpClient_appliesPoolTimeoutsAndInterceptors() throws Exception {
+        final String[] header = new String[1];
+        OkHttpClient client = NetworkConfig.newBuilder()
+                .setReadTimeout(3, TimeUnit.SECONDS)
+                .setConnectTimeout(2, TimeUnit.SECONDS)
+                .setMaxRequestsPerHost(7)
+                .addInterceptor(new Interceptor() {
+                    @Override
+                    public Response intercept(Chain chain) throws IOException {
+                        return chain.proceed(chain.request().newBuilder().header("X-Image", "1").build());
+                    }
+                })
+                .build()
+                .createOkHttpClient();
+
+        assertEquals(3000, client.readTimeoutMillis());
+        assertEquals(2000, client.connectTimeoutMillis());
+        assertEquals(7, client.dispatcher().getMaxRequestsPerHost());
+
+        mRelease.countDown();
+        Response response = client.newCall(new Request.Builder().url(mServer.url("/a.jpg")).build()).execute();
+        assertEquals("image", response.body().string());
+        assertEquals("1", mServer.takeRequest().getHeader("X-Image"));
+    }
+
+    @Test
+    public void getInFlightCountsByHost_isBoundedByMaxRequestsPerHost() throws Exception {
+        OkHttpClient client = NetworkConfig.newBuilder()
+                .setMaxRequestsPerHost(2)
+                .build()
+                .createOkHttpClient();
+
+        final CountDownLatch done = new CountDownLatch(4);
+        for (int i = 0; i < 4; i++) {
+            client.newCall(new Request.Builder().url(mServer.url("/" + i + ".jpg")).build()).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    done.countDown();
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) throws IOException {
+                    response.body().close();
+                    done.countDown();
+                }
+            });
+        }
+
+        // 等待两个请求到达服务端
+        mServer.takeRequest(5, TimeUnit.SECONDS);
+        mServer.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals(Integer.valueOf(2), NetworkConfig.getInFlightCountsByHost(client).get(mServer.getHostName()));
+        assertEquals(2, client.dispatcher().queuedCallsCount());
+
+        mRelease.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // 回调返回之后请求才从dispatcher中移除
+        for (int i = 0; i < 50 && client.dispatcher().runningCallsCount() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(NetworkConfig.getInFlightCountsByHost(client).isEmpty());
+    }
+
+}
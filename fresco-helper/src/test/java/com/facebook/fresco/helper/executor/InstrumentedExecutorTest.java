@@ -0,0 +1,62 @@
+package com.facebook.fresco.helper.executor;
+
+import com.facebook.imagepipeline.common.Priority;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InstrumentedExecutorTest {
+
+    @Test
+    public void execute_runsHigherPriorityFirst() throws Exception {
+        InstrumentedExecutor executor = new InstrumentedExecutor("test", 1, Thread.NORM_PRIORITY);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(4);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        // 占住唯一的线程，使后面的任务全部进入队列
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocker.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        executor.execute(record(order, "low", done), Priority.LOW);
+        executor.execute(record(order, "medium1", done));
+        executor.withPriority(Priority.HIGH).execute(record(order, "high", done));
+        executor.execute(record(order, "medium2", done));
+        assertEquals(4, executor.getStats().queueDepth);
+
+        blocker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("high", "medium1", "medium2", "low"), order);
+
+        ExecutorStats stats = executor.getStats();
+        assertEquals(5, stats.submittedCount);
+        assertEquals(0, stats.queueDepth);
+        executor.shutdown();
+    }
+
+    private static Runnable record(final List<String> order, final String name, final CountDownLatch done) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                order.add(name);
+                done.countDown();
+            }
+        };
+    }
+
+}
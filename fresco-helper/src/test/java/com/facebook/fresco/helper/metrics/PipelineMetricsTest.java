@@ -0,0 +1,44 @@
+package com.facebook.fresco.helper.metrics;
+
+import com.facebook.imagepipeline.producers.BitmapMemoryCacheGetProducer;
+import com.facebook.imagepipeline.producers.BitmapMemoryCacheProducer;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class PipelineMetricsTest {
+
+    private static final Map<String, String> FOUND = Collections.singletonMap("cached_value_found", "true");
+
+    private static final Map<String, String> NOT_FOUND = Collections.singletonMap("cached_value_found", "false");
+
+    @Test
+    public void bitmapCacheMiss_countedOnceAcrossBothProducers() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.onProducerFinishWithSuccess("1", BitmapMemoryCacheGetProducer.PRODUCER_NAME, NOT_FOUND);
+        metrics.onProducerFinishWithSuccess("1", BitmapMemoryCacheProducer.PRODUCER_NAME, NOT_FOUND);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(0, snapshot.getHits(PipelineMetrics.CacheTier.BITMAP_MEMORY));
+        assertEquals(1, snapshot.getMisses(PipelineMetrics.CacheTier.BITMAP_MEMORY));
+    }
+
+    @Test
+    public void bitmapCacheHit_countedFromEitherProducer() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics();
+        // 第一个请求在BitmapMemoryCacheGetProducer命中
+        metrics.onProducerFinishWithSuccess("1", BitmapMemoryCacheGetProducer.PRODUCER_NAME, FOUND);
+        // 第二个请求在两次查找之间被其他请求写入缓存，在BitmapMemoryCacheProducer命中
+        metrics.onProducerFinishWithSuccess("2", BitmapMemoryCacheGetProducer.PRODUCER_NAME, NOT_FOUND);
+        metrics.onProducerFinishWithSuccess("2", BitmapMemoryCacheProducer.PRODUCER_NAME, FOUND);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getHits(PipelineMetrics.CacheTier.BITMAP_MEMORY));
+        assertEquals(0, snapshot.getMisses(PipelineMetrics.CacheTier.BITMAP_MEMORY));
+    }
+
+}
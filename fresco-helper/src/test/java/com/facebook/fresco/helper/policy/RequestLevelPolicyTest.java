@@ -0,0 +1,64 @@
+package com.facebook.fresco.helper.policy;
+
+import com.facebook.imagepipeline.request.ImageRequest.RequestLevel;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class RequestLevelPolicyTest {
+
+    @Test
+    public void flingingAndOffline_restrictToDiskCache() throws Exception {
+        RequestLevelPolicy policy = new RequestLevelPolicy();
+        assertEquals(RequestLevel.FULL_FETCH, policy.getLowestPermittedRequestLevel());
+
+        policy.setFlinging(true);
+        assertEquals(RequestLevel.DISK_CACHE, policy.getLowestPermittedRequestLevel());
+        assertEquals(RequestLevel.BITMAP_MEMORY_CACHE, policy.apply(RequestLevel.BITMAP_MEMORY_CACHE));
+
+        policy.setFlinging(false);
+        policy.setNetworkState(false, false);
+        assertEquals(RequestLevel.DISK_CACHE, policy.getLowestPermittedRequestLevel());
+
+        policy.setDiskOnlyWhenOffline(false);
+        assertEquals(RequestLevel.FULL_FETCH, policy.getLowestPermittedRequestLevel());
+    }
+
+    @Test
+    public void meteredLevel_appliesOnlyWhenConnected() throws Exception {
+        RequestLevelPolicy policy = new RequestLevelPolicy().setMeteredLevel(RequestLevel.ENCODED_MEMORY_CACHE);
+
+        policy.setNetworkState(true, true);
+        assertEquals(RequestLevel.ENCODED_MEMORY_CACHE, policy.getLowestPermittedRequestLevel());
+
+        policy.setNetworkState(false, true);
+        assertEquals(RequestLevel.DISK_CACHE, policy.getLowestPermittedRequestLevel());
+    }
+
+    @Test
+    public void onRelaxed_notifiedOnlyWhenRestrictionLoosens() throws Exception {
+        RequestLevelPolicy policy = new RequestLevelPolicy();
+        final AtomicInteger relaxedCount = new AtomicInteger();
+        policy.addOnRelaxedListener(new RequestLevelPolicy.OnRelaxedListener() {
+            @Override
+            public void onRequestLevelRelaxed() {
+                relaxedCount.incrementAndGet();
+            }
+        });
+
+        policy.setFlinging(true);
+        policy.setNetworkState(false, false);
+        assertEquals(0, relaxedCount.get());
+
+        // 仍然没有网络，限制没有变化
+        policy.setFlinging(false);
+        assertEquals(0, relaxedCount.get());
+
+        policy.setNetworkState(true, false);
+        assertEquals(1, relaxedCount.get());
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.facebook.fresco.helper.resize;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SizeBucketsTest {
+
+    @Test
+    public void roundUp_returnsSmallestBucketNotLessThanSize() throws Exception {
+        SizeBuckets buckets = new SizeBuckets(480, 120, 240);
+
+        assertEquals(120, buckets.roundUp(1));
+        assertEquals(120, buckets.roundUp(120));
+        assertEquals(240, buckets.roundUp(121));
+        assertEquals(480, buckets.roundUp(300));
+        assertEquals(480, buckets.getLargest());
+    }
+
+    @Test
+    public void roundUp_sizeLargerThanLargestBucket_returnsZero() throws Exception {
+        SizeBuckets buckets = new SizeBuckets(120, 240);
+
+        assertEquals(0, buckets.roundUp(241));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNonPositiveBucket() throws Exception {
+        new SizeBuckets(0, 120);
+    }
+
+}
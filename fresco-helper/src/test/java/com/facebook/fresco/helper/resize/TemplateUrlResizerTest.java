@@ -0,0 +1,63 @@
+package com.facebook.fresco.helper.resize;
+
+import android.net.Uri;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TemplateUrlResizerTest {
+
+    private final TemplateUrlResizer mResizer = new TemplateUrlResizer("w={width}&h={height}", "img.example.com");
+
+    @Test
+    public void resize_appendsQuery() throws Exception {
+        assertEquals("http://img.example.com/a.jpg?w=240&h=120",
+                mResizer.resize(Uri.parse("http://img.example.com/a.jpg"), 240, 120));
+    }
+
+    @Test
+    public void resize_joinsExistingQuery() throws Exception {
+        assertEquals("http://img.example.com/a.jpg?v=2&w=240&h=120",
+                mResizer.resize(Uri.parse("http://img.example.com/a.jpg?v=2"), 240, 120));
+        assertEquals("http://img.example.com/a.jpg?w=240&h=120",
+                mResizer.resize(Uri.parse("http://img.example.com/a.jpg?"), 240, 120));
+    }
+
+    @Test
+    public void resize_keepsFragmentLast() throws Exception {
+        assertEquals("http://img.example.com/a.jpg?w=240&h=120#top",
+                mResizer.resize(Uri.parse("http://img.example.com/a.jpg#top"), 240, 120));
+        assertEquals("http://img.example.com/a.jpg?v=2&w=240&h=120#x?y",
+                mResizer.resize(Uri.parse("http://img.example.com/a.jpg?v=2#x?y"), 240, 120));
+    }
+
+    @Test
+    public void resize_skipsOtherHosts() throws Exception {
+        assertNull(mResizer.resize(Uri.parse("http://cdn.other.com/a.jpg"), 240, 120));
+        assertEquals("http://cdn.other.com/a.jpg?w=240&h=120",
+                new TemplateUrlResizer("w={width}&h={height}").resize(Uri.parse("http://cdn.other.com/a.jpg"), 240, 120));
+    }
+
+    @Test
+    public void rewrite_tracksResizedUrisForEviction() throws Exception {
+        CdnResizer.setUrlResizer(mResizer);
+        try {
+            Uri uri = Uri.parse("http://img.example.com/b.jpg");
+            Uri resized = CdnResizer.rewrite(uri, 100, 100);
+
+            assertEquals(1, CdnResizer.getResizedUris(uri).size());
+            assertEquals(resized, CdnResizer.getResizedUris(uri).get(0));
+            assertEquals(0, CdnResizer.getResizedUris(Uri.parse("http://img.example.com/c.jpg")).size());
+        } finally {
+            CdnResizer.setUrlResizer(null);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsTemplateWithoutSize() throws Exception {
+        new TemplateUrlResizer("q=80");
+    }
+
+}
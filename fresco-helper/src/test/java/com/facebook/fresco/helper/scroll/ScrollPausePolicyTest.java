@@ -0,0 +1,53 @@
+package com.facebook.fresco.helper.scroll;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScrollPausePolicyTest {
+
+    @Test
+    public void onScrolled_pausesAboveThresholdAndResumesBelowHysteresis() throws Exception {
+        ScrollPausePolicy policy = new ScrollPausePolicy(3000, 1000);
+
+        // 16ms滚动32px，约2000px/s
+        assertFalse(policy.onScrolled(32, 1000));
+        assertFalse(policy.isPaused());
+
+        // 约6000px/s，平滑后超过3000px/s
+        assertTrue(policy.onScrolled(96, 1016));
+        assertTrue(policy.isPaused());
+
+        // 约2000px/s，介于两个阈值之间，保持暂停
+        assertFalse(policy.onScrolled(32, 1032));
+        assertTrue(policy.isPaused());
+
+        // 降到1000px/s以下后恢复
+        policy.onScrolled(8, 1048);
+        policy.onScrolled(8, 1064);
+        policy.onScrolled(8, 1080);
+        assertFalse(policy.isPaused());
+        assertEquals(1, policy.getPauseCount());
+    }
+
+    @Test
+    public void onIdle_resumesAndCountsAvoidedItems() throws Exception {
+        ScrollPausePolicy policy = new ScrollPausePolicy(3000, 1000);
+        policy.onVisibleRange(0, 4);
+        policy.onScrolled(200, 1000);
+        assertTrue(policy.isPaused());
+
+        policy.onVisibleRange(3, 7);
+        policy.onVisibleRange(10, 14);
+        policy.onVisibleRange(18, 22);
+        assertTrue(policy.onIdle(1500));
+
+        // 暂停期间出现过0~22，其中0~4和18~22仍需加载，5~17省掉
+        assertEquals(13, policy.getAvoidedCount());
+        assertEquals(500, policy.getPausedMillis());
+        assertFalse(policy.onIdle(1600));
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.facebook.fresco.helper.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InFlightRequestsTest {
+
+    @Test
+    public void join_onlyFirstWaiterStartsRequest() throws Exception {
+        InFlightRequests<String, String> requests = new InFlightRequests<>();
+
+        assertTrue(requests.join("a.jpg", "first"));
+        assertFalse(requests.join("a.jpg", "second"));
+        assertTrue(requests.join("b.jpg", "other"));
+
+        assertEquals(2, requests.getInFlightCount());
+        assertEquals(1, requests.getCoalescedCount());
+        assertEquals(Arrays.asList("first", "second"), requests.complete("a.jpg"));
+    }
+
+    @Test
+    public void complete_allowsKeyToStartAgain() throws Exception {
+        InFlightRequests<String, String> requests = new InFlightRequests<>();
+        requests.join("a.jpg", "first");
+        requests.complete("a.jpg");
+
+        assertTrue(requests.complete("a.jpg").isEmpty());
+        assertTrue(requests.join("a.jpg", "again"));
+    }
+
+}
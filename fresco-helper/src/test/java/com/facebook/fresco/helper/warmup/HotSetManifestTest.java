@@ -0,0 +1,98 @@
+package com.facebook.fresco.helper.warmup;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HotSetManifestTest {
+
+    @Test
+    public void getTop_ordersByCountAndSeparatesResizeSpecs() throws Exception {
+        HotSetManifest manifest = new HotSetManifest(8);
+        manifest.record("a", 100, 100, HotSetManifest.ROTATION_AUTO, false);
+        manifest.record("b", 0, 0, HotSetManifest.ROTATION_AUTO, true);
+        manifest.record("b", 0, 0, HotSetManifest.ROTATION_AUTO, true);
+        manifest.record("a", 200, 200, HotSetManifest.ROTATION_AUTO, false);
+        manifest.record("a", 200, 200, HotSetManifest.ROTATION_AUTO, false);
+        manifest.record("a", 200, 200, HotSetManifest.ROTATION_AUTO, false);
+
+        List<HotSetManifest.Entry> top = manifest.getTop(2);
+        assertEquals(2, top.size());
+        assertEquals("a", top.get(0).uri);
+        assertEquals(200, top.get(0).width);
+        assertEquals(3, top.get(0).getCount());
+        assertEquals("b", top.get(1).uri);
+        assertTrue(top.get(1).smallDiskCache);
+        assertEquals(3, manifest.size());
+    }
+
+    @Test
+    public void readFrom_restoresEntriesWithDecayedCounts() throws Exception {
+        HotSetManifest manifest = new HotSetManifest(8);
+        for (int i = 0; i < 4; i++) {
+            manifest.record("https://cdn/a.jpg", 120, 240, 90, false);
+        }
+        manifest.record("file:///b.jpg", 0, 0, HotSetManifest.ROTATION_AUTO, true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        manifest.writeTo(out);
+
+        HotSetManifest restored = new HotSetManifest(8);
+        restored.record("file:///b.jpg", 0, 0, HotSetManifest.ROTATION_AUTO, true);
+        restored.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        List<HotSetManifest.Entry> top = restored.getTop(8);
+        assertEquals(2, top.size());
+        HotSetManifest.Entry first = top.get(0);
+        assertEquals("https://cdn/a.jpg", first.uri);
+        assertEquals(120, first.width);
+        assertEquals(240, first.height);
+        assertEquals(90, first.rotation);
+        assertEquals(2, first.getCount());
+        assertEquals(HotSetManifest.ROTATION_AUTO, top.get(1).rotation);
+        assertEquals(2, top.get(1).getCount());
+    }
+
+    @Test
+    public void writeTo_dropsEntriesTooLongToEncode() throws Exception {
+        StringBuilder longUri = new StringBuilder("data:image/png;base64,");
+        while (longUri.length() <= 70 * 1024) {
+            longUri.append("iVBORw0KGgo");
+        }
+        HotSetManifest manifest = new HotSetManifest(8);
+        manifest.record(longUri.toString(), 0, 0, HotSetManifest.ROTATION_AUTO, false);
+        manifest.record(longUri.toString(), 0, 0, HotSetManifest.ROTATION_AUTO, false);
+        manifest.record("https://cdn/a.jpg", 0, 0, HotSetManifest.ROTATION_AUTO, false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        manifest.writeTo(out);
+
+        HotSetManifest restored = new HotSetManifest(8);
+        restored.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(1, restored.size());
+        assertEquals("https://cdn/a.jpg", restored.getTop(1).get(0).uri);
+    }
+
+    @Test
+    public void record_prunesToMostUsedEntries() throws Exception {
+        HotSetManifest manifest = new HotSetManifest(2);
+        manifest.record("hot", 0, 0, 0, false);
+        manifest.record("hot", 0, 0, 0, false);
+        for (int i = 0; i < 4; i++) {
+            manifest.record("cold" + i, 0, 0, 0, false);
+        }
+
+        assertTrue(manifest.size() <= 4);
+        assertEquals("hot", manifest.getTop(1).get(0).uri);
+    }
+
+    @Test(expected = IOException.class)
+    public void readFrom_rejectsUnknownFormat() throws Exception {
+        new HotSetManifest(8).readFrom(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9}));
+    }
+
+}